@@ -0,0 +1,331 @@
+package ast;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ast.Expression.Additive;
+import ast.Expression.Assignment;
+import ast.Expression.Constant;
+import ast.Expression.Equality;
+import ast.Expression.Grouped;
+import ast.Expression.Identifier;
+import ast.Expression.LogAnd;
+import ast.Expression.LogOr;
+import ast.Expression.Multiplicative;
+import ast.Expression.Relational;
+import ast.Expression.Unary;
+import ast.Statement.BlockStatement;
+import ast.Statement.Declaration;
+import ast.Statement.DeclarationList;
+import ast.Statement.ExpressionStmt;
+import ast.Statement.IfStatement;
+import ast.Statement.InputStatement;
+import ast.Statement.PrintStatement;
+import ast.Statement.StatementList;
+import ast.Statement.WhileStatement;
+import lexer.Token;
+import lexer.TokenType;
+
+import static ast.AstWriter.*;
+
+/**
+ * Reads statements written by {@link AstWriter} straight out of a
+ * ByteBuffer, e.g. a memory-mapped file, one top-level statement at a time.
+ * The bytes are not copied first; only pool strings are decoded, once each.
+ *
+ * Nodes are rebuilt bottom-up: a node with children is kept as a pending
+ * frame until they are all read, so deep nesting needs no recursion.
+ * Malformed input gives an IllegalArgumentException.
+ */
+public class AstReader {
+
+	private static final TokenType[] TYPES = TokenType.values();
+
+	private final ByteBuffer in;
+	private final List<String> pool = new ArrayList<>();
+	private byte[] scratch = new byte[64];
+	private int line, column;
+
+	private int[] tags = new int[64], needed = new int[64], bases = new int[64];
+	private Token[] operators = new Token[64];
+	private DataType[] types = new DataType[64];
+	private int frames;
+
+	private Object[] values = new Object[64];
+	private int valueCount;
+
+	/** Reads from the buffer's position on, without moving it. */
+	public AstReader(ByteBuffer buffer) {
+
+		this.in = buffer.duplicate();
+		for(byte b : MAGIC)
+			if(this.in.remaining() == 0 || this.in.get() != b)
+				throw new IllegalArgumentException("Not a CodeX AST");
+		int version = readVarint();
+		if(version != VERSION)
+			throw new IllegalArgumentException("Unsupported AST version " + version);
+	}
+
+
+	public boolean hasNext() {
+
+		return this.in.hasRemaining() && this.in.get(this.in.position()) != END;
+	}
+
+
+	/** The next top-level statement, or null at the end of the program. */
+	public Statement next() {
+
+		if(!hasNext())
+			return null;
+
+		try {
+			do {
+				readNode();
+			} while(this.frames > 0);
+			Statement statement = (Statement) this.values[--this.valueCount];
+			this.values[this.valueCount] = null;
+			return statement;
+		} catch(BufferUnderflowException | ClassCastException e) {
+			throw new IllegalArgumentException("Malformed AST", e);
+		}
+	}
+
+
+	public List<Statement> readAll() {
+
+		List<Statement> program = new ArrayList<>();
+		for(Statement statement = next(); statement != null; statement = next())
+			program.add(statement);
+		return program;
+	}
+
+
+	/** Reads one node header; a leaf is finished at once, anything else waits for its children. */
+	private void readNode() {
+
+		int tag = readVarint();
+		switch(tag) {
+			case ABSENT:	complete(null); break;
+			case INT:		complete(new Constant(readSigned())); break;
+			case FLOAT:		complete(new Constant(Float.intBitsToFloat(this.in.getInt()))); break;
+			case TRUE:		complete(new Constant(true)); break;
+			case FALSE:		complete(new Constant(false)); break;
+			case CHAR:		complete(new Constant((char) readVarint())); break;
+			case STRING:	complete(new Constant(readString())); break;
+			case NULL:		complete(new Constant(null)); break;
+			case IDENTIFIER: {
+				String name = readString();
+				int symbol = readVarint() - 1;
+				readPosition();
+				complete(new Identifier(Token.of(TokenType.IDENT, name, this.line, this.column, symbol)));
+				break;
+			}
+			case UNARY:
+				push(tag, 1, readOperator(), null);
+				break;
+			case MULTIPLICATIVE:
+			case ADDITIVE:
+			case RELATIONAL:
+			case EQUALITY:
+			case LOG_AND:
+			case LOG_OR:
+			case ASSIGNMENT:
+				push(tag, 2, readOperator(), null);
+				break;
+			case DECLARATION:
+				push(tag, 1, null, readType());
+				break;
+			case GROUPED:
+			case PRINT:
+			case INPUT:
+			case EXPRESSION_STMT:
+			case BLOCK:
+				push(tag, 1, null, null);
+				break;
+			case IF:
+				push(tag, 3, null, null);
+				break;
+			case WHILE:
+				push(tag, 2, null, null);
+				break;
+			case DECLARATION_LIST:
+			case STATEMENT_LIST: {
+				int count = readVarint();
+				if(count == 0)
+					complete(build(tag, null, null, this.valueCount));
+				else
+					push(tag, count, null, null);
+				break;
+			}
+			default:
+				throw new IllegalArgumentException("Unknown AST tag " + tag);
+		}
+	}
+
+
+	private void push(int tag, int children, Token operator, DataType type) {
+
+		if(this.frames == this.tags.length) {
+			int capacity = this.frames * 2;
+			this.tags = Arrays.copyOf(this.tags, capacity);
+			this.needed = Arrays.copyOf(this.needed, capacity);
+			this.bases = Arrays.copyOf(this.bases, capacity);
+			this.operators = Arrays.copyOf(this.operators, capacity);
+			this.types = Arrays.copyOf(this.types, capacity);
+		}
+		this.tags[this.frames] = tag;
+		this.needed[this.frames] = children;
+		this.bases[this.frames] = this.valueCount;
+		this.operators[this.frames] = operator;
+		this.types[this.frames++] = type;
+	}
+
+
+	/** Hands a finished node to its parent frame, building each parent that it completes. */
+	private void complete(Object node) {
+
+		while(true) {
+			if(this.valueCount == this.values.length)
+				this.values = Arrays.copyOf(this.values, this.valueCount * 2);
+			this.values[this.valueCount++] = node;
+
+			if(this.frames == 0 || --this.needed[this.frames - 1] > 0)
+				return;
+
+			int frame = --this.frames;
+			node = build(this.tags[frame], this.operators[frame], this.types[frame], this.bases[frame]);
+			this.operators[frame] = null;
+			this.types[frame] = null;
+		}
+	}
+
+
+	/** Makes the node of a finished frame from the values from base on, and drops them. */
+	private Object build(int tag, Token operator, DataType type, int base) {
+
+		Object[] values = this.values;
+		Object node;
+		switch(tag) {
+			case GROUPED:			node = new Grouped((Expression) values[base]); break;
+			case UNARY:				node = new Unary(operator, (Expression) values[base]); break;
+			case MULTIPLICATIVE:	node = new Multiplicative((Expression) values[base], operator, (Expression) values[base + 1]); break;
+			case ADDITIVE:			node = new Additive((Expression) values[base], operator, (Expression) values[base + 1]); break;
+			case RELATIONAL:		node = new Relational((Expression) values[base], operator, (Expression) values[base + 1]); break;
+			case EQUALITY:			node = new Equality((Expression) values[base], operator, (Expression) values[base + 1]); break;
+			case LOG_AND:			node = new LogAnd((Expression) values[base], operator, (Expression) values[base + 1]); break;
+			case LOG_OR:			node = new LogOr((Expression) values[base], operator, (Expression) values[base + 1]); break;
+			case ASSIGNMENT:		node = new Assignment((Expression) values[base], operator, (Expression) values[base + 1]); break;
+			case DECLARATION:		node = new Declaration(type, (Expression) values[base]); break;
+			case PRINT:				node = new PrintStatement((Expression) values[base]); break;
+			case INPUT:				node = new InputStatement((Expression) values[base]); break;
+			case EXPRESSION_STMT:	node = new ExpressionStmt((Expression) values[base]); break;
+			case BLOCK:				node = new BlockStatement((StatementList) values[base]); break;
+			case IF:
+				node = new IfStatement((Expression) values[base], (Statement) values[base + 1], (Statement) values[base + 2]);
+				break;
+			case WHILE:
+				node = new WhileStatement((Expression) values[base], (Statement) values[base + 1]);
+				break;
+			case DECLARATION_LIST: {
+				DeclarationList list = new DeclarationList();
+				for(int i = base; i < this.valueCount; i++)
+					list.addElement((Declaration) values[i]);
+				node = list;
+				break;
+			}
+			default: {
+				StatementList list = new StatementList();
+				for(int i = base; i < this.valueCount; i++)
+					list.addElement((Statement) values[i]);
+				node = list;
+				break;
+			}
+		}
+		Arrays.fill(values, base, this.valueCount, null);
+		this.valueCount = base;
+		return node;
+	}
+
+
+	private Token readOperator() {
+
+		int type = readVarint();
+		if(type < 0 || type >= TYPES.length)
+			throw new IllegalArgumentException("Unknown operator " + type);
+		readPosition();
+		return Token.of(TYPES[type], null, this.line, this.column, -1);
+	}
+
+
+	private DataType readType() {
+
+		switch(readVarint()) {
+			case 0:		return null;
+			case 1:		return new DataType.IntDataType();
+			case 2:		return new DataType.FloatDataType();
+			case 3:		return new DataType.BooleanDataType();
+			case 4:		return new DataType.CharDataType();
+			case 5:		return new DataType.StringDataType();
+			default:	throw new IllegalArgumentException("Unknown data type");
+		}
+	}
+
+
+	/** Moves line and column to the next position written. */
+	private void readPosition() {
+
+		this.line += readSigned();
+		this.column += readSigned();
+	}
+
+
+	private String readString() {
+
+		int index = readVarint();
+		if(index < this.pool.size())
+			return this.pool.get(index);
+		if(index != this.pool.size())
+			throw new IllegalArgumentException("Bad pool reference " + index);
+
+		int length = readVarint();
+		if(length < 0 || length > this.in.remaining())
+			throw new IllegalArgumentException("Malformed AST");
+		String value;
+		if(this.in.hasArray()) {
+			value = new String(this.in.array(), this.in.arrayOffset() + this.in.position(), length, StandardCharsets.UTF_8);
+			this.in.position(this.in.position() + length);
+		} else {
+			if(length > this.scratch.length)
+				this.scratch = new byte[Math.max(length, this.scratch.length * 2)];
+			this.in.get(this.scratch, 0, length);
+			value = new String(this.scratch, 0, length, StandardCharsets.UTF_8);
+		}
+		this.pool.add(value);
+		return value;
+	}
+
+
+	private int readSigned() {
+
+		int value = readVarint();
+		return value >>> 1 ^ -(value & 1);
+	}
+
+
+	private int readVarint() {
+
+		int value = 0;
+		for(int shift = 0; shift < 35; shift += 7) {
+			byte b = this.in.get();
+			value |= (b & 0x7F) << shift;
+			if(b >= 0)
+				return value;
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+}
\ No newline at end of file
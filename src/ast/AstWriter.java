@@ -0,0 +1,430 @@
+package ast;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.Expression.Additive;
+import ast.Expression.Assignment;
+import ast.Expression.Constant;
+import ast.Expression.Equality;
+import ast.Expression.Grouped;
+import ast.Expression.Identifier;
+import ast.Expression.LogAnd;
+import ast.Expression.LogOr;
+import ast.Expression.Multiplicative;
+import ast.Expression.Relational;
+import ast.Expression.Unary;
+import ast.Statement.BlockStatement;
+import ast.Statement.Declaration;
+import ast.Statement.DeclarationList;
+import ast.Statement.ExpressionStmt;
+import ast.Statement.IfStatement;
+import ast.Statement.InputStatement;
+import ast.Statement.PrintStatement;
+import ast.Statement.StatementList;
+import ast.Statement.WhileStatement;
+import lexer.Token;
+
+/**
+ * Writes statements in the binary AST format, one top-level statement at a
+ * time, so a program can be streamed out while it is being parsed.
+ *
+ * <pre>
+ * file        "CXAB" varint(VERSION) statement* END
+ * node        varint(tag) fields children, in pre-order
+ * </pre>
+ *
+ * Every number is a varint: seven bits per byte, low bits first, the high
+ * bit set on all bytes but the last. Signed numbers are zigzag encoded.
+ * A missing child is written as the tag ABSENT.
+ *
+ * <pre>
+ * INT                 zigzag value
+ * FLOAT               4 bytes, the raw float bits, big-endian
+ * TRUE, FALSE, NULL   nothing
+ * CHAR                char code
+ * STRING              pool reference
+ * IDENTIFIER          pool reference of the name, symbol + 1, position
+ * UNARY ... ASSIGNMENT operator ordinal, position, operand(s)
+ * DECLARATION         type (0 = none, then int, fp, bool, char, str), initializer
+ * IF                  condition, then, else
+ * WHILE               condition, body
+ * lists               element count, elements
+ * others              their one child
+ * </pre>
+ *
+ * A position is the token's line and then its column, each stored as the
+ * zigzag difference to the last one written.
+ * Strings go into a pool as they are first met: a pool reference equal to
+ * the pool's current size is followed by the length and UTF-8 bytes of a
+ * new entry, any smaller one names an entry already read.
+ */
+public class AstWriter implements Closeable {
+
+	public static final int VERSION = 2;
+
+	static final byte[] MAGIC = { 'C', 'X', 'A', 'B' };
+
+	static final int ABSENT = 0, END = 0;
+	static final int INT = 1, FLOAT = 2, TRUE = 3, FALSE = 4, CHAR = 5, STRING = 6, NULL = 7;
+	static final int IDENTIFIER = 8, GROUPED = 9, UNARY = 10;
+	static final int MULTIPLICATIVE = 11, ADDITIVE = 12, RELATIONAL = 13, EQUALITY = 14;
+	static final int LOG_AND = 15, LOG_OR = 16, ASSIGNMENT = 17;
+	static final int DECLARATION = 18, DECLARATION_LIST = 19, PRINT = 20, INPUT = 21;
+	static final int IF = 22, WHILE = 23, EXPRESSION_STMT = 24, BLOCK = 25, STATEMENT_LIST = 26;
+
+	private static final int FLUSH_SIZE = 1 << 16;
+
+	private final OutputStream out;
+	private final Encoder encoder = new Encoder();
+	private byte[] buffer = new byte[FLUSH_SIZE + 1024];
+	private int count;
+
+	private final Map<String, Integer> pool = new HashMap<>();
+	private int line, column;
+
+	public AstWriter(OutputStream out) {
+
+		this.out = out;
+		for(byte b : MAGIC)
+			writeByte(b);
+		writeVarint(VERSION);
+	}
+
+
+	/** The whole program in one byte array. */
+	public static byte[] toBytes(List<Statement> program) {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(AstWriter writer = new AstWriter(bytes)) {
+			writer.writeAll(program);
+		} catch(IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+
+	/** Appends one top-level statement. */
+	public void write(Statement statement) throws IOException {
+
+		this.encoder.encode(statement);
+		if(this.count >= FLUSH_SIZE)
+			drain();
+	}
+
+
+	public void writeAll(List<Statement> program) throws IOException {
+
+		for(Statement statement : program)
+			write(statement);
+	}
+
+
+	/** Ends the program, then flushes and closes the stream. */
+	@Override
+	public void close() throws IOException {
+
+		writeVarint(END);
+		drain();
+		this.out.close();
+	}
+
+
+	private void drain() throws IOException {
+
+		this.out.write(this.buffer, 0, this.count);
+		this.count = 0;
+	}
+
+
+	private void writeByte(int b) {
+
+		if(this.count == this.buffer.length)
+			this.buffer = Arrays.copyOf(this.buffer, this.count * 2);
+		this.buffer[this.count++] = (byte) b;
+	}
+
+
+	private void writeVarint(int value) {
+
+		if(this.count + 5 > this.buffer.length)
+			this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+		while((value & ~0x7F) != 0) {
+			this.buffer[this.count++] = (byte) (value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		this.buffer[this.count++] = (byte) value;
+	}
+
+
+	private void writeSigned(int value) {
+
+		writeVarint(value << 1 ^ value >> 31);
+	}
+
+
+	private void writePosition(Token token) {
+
+		writeSigned(token.line - this.line);
+		writeSigned(token.column - this.column);
+		this.line = token.line;
+		this.column = token.column;
+	}
+
+
+	private void writeString(String value) {
+
+		Integer index = this.pool.get(value);
+		if(index != null) {
+			writeVarint(index);
+			return;
+		}
+
+		writeVarint(this.pool.size());
+		this.pool.put(value, this.pool.size());
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarint(bytes.length);
+		for(byte b : bytes)
+			writeByte(b);
+	}
+
+
+	/**
+	 * Writes a node's tag and fields and queues its children, on an explicit
+	 * stack so that nesting depth does not matter. A queued null becomes
+	 * ABSENT.
+	 */
+	private class Encoder implements Expression.Visitor<Void>, Statement.Visitor<Void> {
+
+		private final DataType.Visitor<Integer> typeCode = new DataType.Visitor<Integer>() {
+			public Integer visitIntDataType(DataType.IntDataType dataType)			{ return 1; }
+			public Integer visitFloatDataType(DataType.FloatDataType dataType)		{ return 2; }
+			public Integer visitBooleanDataType(DataType.BooleanDataType dataType)	{ return 3; }
+			public Integer visitCharDataType(DataType.CharDataType dataType)		{ return 4; }
+			public Integer visitStringDataType(DataType.StringDataType dataType)	{ return 5; }
+		};
+
+		private Object[] pending = new Object[64];
+		private int size;
+
+		void encode(Statement statement) {
+
+			schedule(statement);
+			while(this.size > 0) {
+				Object node = this.pending[--this.size];
+				this.pending[this.size] = null;
+
+				if(node == null)
+					writeVarint(ABSENT);
+				else if(node instanceof Expression)
+					((Expression) node).accept(this);
+				else
+					((Statement) node).accept(this);
+			}
+		}
+
+		/** Children are scheduled last to first, so they come off the stack in order. */
+		private void schedule(Object node) {
+
+			if(this.size == this.pending.length)
+				this.pending = Arrays.copyOf(this.pending, this.size * 2);
+			this.pending[this.size++] = node;
+		}
+
+		private Void operator(int tag, Token operator, Expression lhs, Expression rhs) {
+
+			writeVarint(tag);
+			writeVarint(operator.type.ordinal());
+			writePosition(operator);
+			schedule(rhs);
+			schedule(lhs);
+			return null;
+		}
+
+		private Void list(int tag, List<? extends Statement> elements) {
+
+			writeVarint(tag);
+			writeVarint(elements.size());
+			for(int i = elements.size() - 1; i >= 0; i--)
+				schedule(elements.get(i));
+			return null;
+		}
+
+		private Void single(int tag, Object child) {
+
+			writeVarint(tag);
+			schedule(child);
+			return null;
+		}
+
+		@Override
+		public Void visitConstant(Constant expression) {
+
+			Object value = expression.value;
+			if(value instanceof Integer) {
+				writeVarint(INT);
+				writeSigned((Integer) value);
+			} else if(value instanceof Float) {
+				int bits = Float.floatToRawIntBits((Float) value);
+				writeVarint(FLOAT);
+				writeByte(bits >>> 24);
+				writeByte(bits >>> 16);
+				writeByte(bits >>> 8);
+				writeByte(bits);
+			} else if(value instanceof Boolean) {
+				writeVarint((Boolean) value ? TRUE : FALSE);
+			} else if(value instanceof Character) {
+				writeVarint(CHAR);
+				writeVarint((Character) value);
+			} else if(value instanceof String) {
+				writeVarint(STRING);
+				writeString((String) value);
+			} else if(value == null) {
+				writeVarint(NULL);
+			} else {
+				throw new IllegalArgumentException("Cannot write constant " + value);
+			}
+			return null;
+		}
+
+		@Override
+		public Void visitIdentifier(Identifier expression) {
+
+			writeVarint(IDENTIFIER);
+			writeString(expression.token.lexeme);
+			writeVarint(expression.symbol + 1);
+			writePosition(expression.token);
+			return null;
+		}
+
+		@Override
+		public Void visitGrouped(Grouped expression) {
+
+			return single(GROUPED, expression.expression);
+		}
+
+		@Override
+		public Void visitUnary(Unary expression) {
+
+			writeVarint(UNARY);
+			writeVarint(expression.operator.type.ordinal());
+			writePosition(expression.operator);
+			schedule(expression.rhs);
+			return null;
+		}
+
+		@Override
+		public Void visitMultiplicative(Multiplicative expression) {
+
+			return operator(MULTIPLICATIVE, expression.operator, expression.lhs, expression.rhs);
+		}
+
+		@Override
+		public Void visitAdditive(Additive expression) {
+
+			return operator(ADDITIVE, expression.operator, expression.lhs, expression.rhs);
+		}
+
+		@Override
+		public Void visitRelational(Relational expression) {
+
+			return operator(RELATIONAL, expression.operator, expression.lhs, expression.rhs);
+		}
+
+		@Override
+		public Void visitEquality(Equality expression) {
+
+			return operator(EQUALITY, expression.operator, expression.lhs, expression.rhs);
+		}
+
+		@Override
+		public Void visitLogAnd(LogAnd expression) {
+
+			return operator(LOG_AND, expression.operator, expression.lhs, expression.rhs);
+		}
+
+		@Override
+		public Void visitLogOr(LogOr expression) {
+
+			return operator(LOG_OR, expression.operator, expression.lhs, expression.rhs);
+		}
+
+		@Override
+		public Void visitAssignment(Assignment expression) {
+
+			return operator(ASSIGNMENT, expression.operator, expression.lhs, expression.rhs);
+		}
+
+		@Override
+		public Void visitDeclaration(Declaration statement) {
+
+			writeVarint(DECLARATION);
+			writeVarint(statement.type == null ? 0 : statement.type.accept(this.typeCode));
+			schedule(statement.initialization);
+			return null;
+		}
+
+		@Override
+		public Void visitDeclarationList(DeclarationList statement) {
+
+			return list(DECLARATION_LIST, statement.getList());
+		}
+
+		@Override
+		public Void visitPrintStmt(PrintStatement statement) {
+
+			return single(PRINT, statement.expression);
+		}
+
+		@Override
+		public Void visitInputStmt(InputStatement statement) {
+
+			return single(INPUT, statement.expression);
+		}
+
+		@Override
+		public Void visitIfStmt(IfStatement statement) {
+
+			writeVarint(IF);
+			schedule(statement.elseStatement);
+			schedule(statement.thenStatement);
+			schedule(statement.condition);
+			return null;
+		}
+
+		@Override
+		public Void visitWhileStmt(WhileStatement statement) {
+
+			writeVarint(WHILE);
+			schedule(statement.todoStatement);
+			schedule(statement.condition);
+			return null;
+		}
+
+		@Override
+		public Void visitExpressionStmt(ExpressionStmt statement) {
+
+			return single(EXPRESSION_STMT, statement.expression);
+		}
+
+		@Override
+		public Void visitBlockStmt(BlockStatement statement) {
+
+			return single(BLOCK, statement.statementList);
+		}
+
+		@Override
+		public Void visitStatementList(StatementList statement) {
+
+			return list(STATEMENT_LIST, statement.getList());
+		}
+	}
+}
\ No newline at end of file
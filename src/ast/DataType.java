@@ -1,65 +1,102 @@
-package ast;
-
-public abstract class DataType {
-
-	public interface Visitor<R> {
-		R visitIntDataType(IntDataType dataType);
-		R visitFloatDataType(FloatDataType dataType);
-		R visitBooleanDataType(BooleanDataType dataType);
-		R visitCharDataType(CharDataType dataType);
-		R visitStringDataType(StringDataType dataType);
-	}
-	
-	public abstract <R> R accept(Visitor<R> visitor);
-	
-	
-	public static class IntDataType extends DataType {
-
-		@Override
-		public <R> R accept(Visitor<R> visitor) {
-
-			return visitor.visitIntDataType(this);
-		}
-	}
-	
-	
-	public static class FloatDataType extends DataType {
-
-		@Override
-		public <R> R accept(Visitor<R> visitor) {
-
-			return visitor.visitFloatDataType(this);
-		}
-	}
-	
-	
-	public static class BooleanDataType extends DataType {
-
-		@Override
-		public <R> R accept(Visitor<R> visitor) {
-
-			return visitor.visitBooleanDataType(this);
-		}
-	}
-	
-	
-	public static class CharDataType extends DataType {
-
-		@Override
-		public <R> R accept(Visitor<R> visitor) {
-
-			return visitor.visitCharDataType(this);
-		}
-	}
-	
-	
-	public static class StringDataType extends DataType {
-
-		@Override
-		public <R> R accept(Visitor<R> visitor) {
-
-			return visitor.visitStringDataType(this);
-		}
-		
-	}
+package ast;
+
+public abstract class DataType {
+
+	public interface Visitor<R> {
+		R visitIntDataType(IntDataType dataType);
+		R visitFloatDataType(FloatDataType dataType);
+		R visitBooleanDataType(BooleanDataType dataType);
+		R visitCharDataType(CharDataType dataType);
+		R visitStringDataType(StringDataType dataType);
+	}
+	
+	public abstract <R> R accept(Visitor<R> visitor);
+	
+	/** One shared instance per type, so checked types can be compared with ==. */
+	public static final DataType INT = new IntDataType();
+	public static final DataType FP = new FloatDataType();
+	public static final DataType BOOL = new BooleanDataType();
+	public static final DataType CHAR = new CharDataType();
+	public static final DataType STR = new StringDataType();
+	
+	
+	public static class IntDataType extends DataType {
+
+		@Override
+		public <R> R accept(Visitor<R> visitor) {
+
+			return visitor.visitIntDataType(this);
+		}
+		
+		@Override
+		public String toString() {
+			
+			return "INT";
+		}
+	}
+	
+	
+	public static class FloatDataType extends DataType {
+
+		@Override
+		public <R> R accept(Visitor<R> visitor) {
+
+			return visitor.visitFloatDataType(this);
+		}
+		
+		@Override
+		public String toString() {
+			
+			return "FP";
+		}
+	}
+	
+	
+	public static class BooleanDataType extends DataType {
+
+		@Override
+		public <R> R accept(Visitor<R> visitor) {
+
+			return visitor.visitBooleanDataType(this);
+		}
+		
+		@Override
+		public String toString() {
+			
+			return "BOOL";
+		}
+	}
+	
+	
+	public static class CharDataType extends DataType {
+
+		@Override
+		public <R> R accept(Visitor<R> visitor) {
+
+			return visitor.visitCharDataType(this);
+		}
+		
+		@Override
+		public String toString() {
+			
+			return "CHAR";
+		}
+	}
+	
+	
+	public static class StringDataType extends DataType {
+
+		@Override
+		public <R> R accept(Visitor<R> visitor) {
+
+			return visitor.visitStringDataType(this);
+		}
+		
+		@Override
+		public String toString() {
+			
+			return "STR";
+		}
+		
+	}
 }
\ No newline at end of file
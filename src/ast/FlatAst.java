@@ -0,0 +1,654 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.Expression.Additive;
+import ast.Expression.Assignment;
+import ast.Expression.Constant;
+import ast.Expression.Equality;
+import ast.Expression.Grouped;
+import ast.Expression.Identifier;
+import ast.Expression.LogAnd;
+import ast.Expression.LogOr;
+import ast.Expression.Multiplicative;
+import ast.Expression.Relational;
+import ast.Expression.Unary;
+import ast.Statement.BlockStatement;
+import ast.Statement.Declaration;
+import ast.Statement.DeclarationList;
+import ast.Statement.ExpressionStmt;
+import ast.Statement.IfStatement;
+import ast.Statement.InputStatement;
+import ast.Statement.PrintStatement;
+import ast.Statement.StatementList;
+import ast.Statement.WhileStatement;
+import lexer.Token;
+import lexer.TokenType;
+
+/**
+ * Compact form of a parsed program. A node is an int handle into parallel
+ * arrays holding its kind, operator, up to three child slots and source line.
+ * Constant values and identifier names are kept once in a shared pool, and
+ * the elements of list nodes in one shared child array.
+ *
+ * <pre>
+ * CONSTANT                          operator = CONST_INT, CONST_FLOAT, CONST_BOOL or CONST_CHAR
+ *                                   with the value's bits in first, otherwise first = pool index
+ * IDENTIFIER                        first = pool index of the name, second = symbol id
+ * GROUPED, PRINT, INPUT,
+ * EXPRESSION_STMT, BLOCK            first = inner node
+ * UNARY                             operator, first = operand
+ * MULTIPLICATIVE ... ASSIGNMENT     operator, first = lhs, second = rhs
+ * DECLARATION                       operator = type keyword, first = initializer
+ * IF                                first = condition, second = then, third = else
+ * WHILE                             first = condition, second = body
+ * PROGRAM, STATEMENT_LIST,
+ * DECLARATION_LIST                  first = offset into the child array, second = count
+ * </pre>
+ *
+ * Missing children are NONE. Nodes are numbered in pre-order, so a parent
+ * always has a smaller handle than its children.
+ */
+public class FlatAst {
+
+	public enum Kind {
+		PROGRAM, CONSTANT, IDENTIFIER, GROUPED, UNARY,
+		MULTIPLICATIVE, ADDITIVE, RELATIONAL, EQUALITY, LOG_AND, LOG_OR, ASSIGNMENT,
+		DECLARATION, DECLARATION_LIST, PRINT, INPUT, IF, WHILE, EXPRESSION_STMT, BLOCK, STATEMENT_LIST
+	}
+
+	public interface Visitor<R> {
+		R visitProgram(FlatAst ast, int node);
+		R visitConstant(FlatAst ast, int node);
+		R visitIdentifier(FlatAst ast, int node);
+		R visitGrouped(FlatAst ast, int node);
+		R visitUnary(FlatAst ast, int node);
+		R visitBinary(FlatAst ast, int node);
+		R visitDeclaration(FlatAst ast, int node);
+		R visitDeclarationList(FlatAst ast, int node);
+		R visitPrintStmt(FlatAst ast, int node);
+		R visitInputStmt(FlatAst ast, int node);
+		R visitIfStmt(FlatAst ast, int node);
+		R visitWhileStmt(FlatAst ast, int node);
+		R visitExpressionStmt(FlatAst ast, int node);
+		R visitBlockStmt(FlatAst ast, int node);
+		R visitStatementList(FlatAst ast, int node);
+	}
+
+	public static final int NONE = -1;
+	private static final Kind[] KINDS = Kind.values();
+	private static final TokenType[] TYPES = TokenType.values();
+	private static final int INITIAL_CAPACITY = 256;
+
+	private byte[] kind = new byte[INITIAL_CAPACITY];
+	private int[] operator = new int[INITIAL_CAPACITY];
+	private int[] first = new int[INITIAL_CAPACITY];
+	private int[] second = new int[INITIAL_CAPACITY];
+	private int[] third = new int[INITIAL_CAPACITY];
+	private int[] line = new int[INITIAL_CAPACITY];
+	private int size;
+
+	private int[] children = new int[INITIAL_CAPACITY];
+	private int childCount;
+
+	private final ArrayList<Object> constants = new ArrayList<>();
+	private Map<Object, Integer> constantIndex = new HashMap<>();
+	private int[] symbolIndex = new int[INITIAL_CAPACITY];
+	private int root = NONE;
+
+
+	public static FlatAst of(List<Statement> program) {
+
+		return new Adapter(new FlatAst()).convert(program);
+	}
+
+
+	public int root() {
+
+		return this.root;
+	}
+
+
+	public int size() {
+
+		return this.size;
+	}
+
+
+	public Kind kind(int node) {
+
+		return KINDS[this.kind[node]];
+	}
+
+
+	/** The operator token type, the type keyword of a declaration, or null. */
+	public TokenType operator(int node) {
+
+		int type = this.operator[node];
+		return type < 0 ? null : TYPES[type];
+	}
+
+
+	public int line(int node) {
+
+		return this.line[node];
+	}
+
+
+	public int childCount(int node) {
+
+		switch(kind(node)) {
+			case CONSTANT:
+			case IDENTIFIER:
+				return 0;
+			case PROGRAM:
+			case STATEMENT_LIST:
+			case DECLARATION_LIST:
+				return this.second[node];
+			case IF:
+				return 3;
+			case MULTIPLICATIVE:
+			case ADDITIVE:
+			case RELATIONAL:
+			case EQUALITY:
+			case LOG_AND:
+			case LOG_OR:
+			case ASSIGNMENT:
+			case WHILE:
+				return 2;
+			default:
+				return 1;
+		}
+	}
+
+
+	/** The index-th child of node, or NONE for an absent optional child. */
+	public int child(int node, int index) {
+
+		switch(kind(node)) {
+			case PROGRAM:
+			case STATEMENT_LIST:
+			case DECLARATION_LIST:
+				if(index < 0 || index >= this.second[node])
+					throw new IndexOutOfBoundsException("Child " + index + " of node " + node);
+				return this.children[this.first[node] + index];
+			default:
+				switch(index) {
+					case 0:	return this.first[node];
+					case 1:	return this.second[node];
+					case 2:	return this.third[node];
+					default:
+						throw new IndexOutOfBoundsException("Child " + index + " of node " + node);
+				}
+		}
+	}
+
+
+	public Object constant(int node) {
+
+		int bits = this.first[node];
+		switch(this.operator[node] < 0 ? TokenType.EOF : TYPES[this.operator[node]]) {
+			case CONST_INT:		return bits;
+			case CONST_FLOAT:	return Float.intBitsToFloat(bits);
+			case CONST_BOOL:	return bits != 0;
+			case CONST_CHAR:	return (char) bits;
+			default:			return this.constants.get(bits);
+		}
+	}
+
+
+	public String name(int node) {
+
+		return (String) this.constants.get(this.first[node]);
+	}
+
+
+	public int symbol(int node) {
+
+		return this.second[node];
+	}
+
+
+	public <R> R accept(int node, Visitor<R> visitor) {
+
+		switch(kind(node)) {
+			case PROGRAM:			return visitor.visitProgram(this, node);
+			case CONSTANT:			return visitor.visitConstant(this, node);
+			case IDENTIFIER:		return visitor.visitIdentifier(this, node);
+			case GROUPED:			return visitor.visitGrouped(this, node);
+			case UNARY:				return visitor.visitUnary(this, node);
+			case DECLARATION:		return visitor.visitDeclaration(this, node);
+			case DECLARATION_LIST:	return visitor.visitDeclarationList(this, node);
+			case PRINT:				return visitor.visitPrintStmt(this, node);
+			case INPUT:				return visitor.visitInputStmt(this, node);
+			case IF:				return visitor.visitIfStmt(this, node);
+			case WHILE:				return visitor.visitWhileStmt(this, node);
+			case EXPRESSION_STMT:	return visitor.visitExpressionStmt(this, node);
+			case BLOCK:				return visitor.visitBlockStmt(this, node);
+			case STATEMENT_LIST:	return visitor.visitStatementList(this, node);
+			default:				return visitor.visitBinary(this, node);
+		}
+	}
+
+
+	public Cursor cursor() {
+
+		return new Cursor(this.root);
+	}
+
+
+	public Cursor cursor(int node) {
+
+		return new Cursor(node);
+	}
+
+
+	/**
+	 * Walks a subtree in pre-order on an explicit stack, so it works at any
+	 * nesting depth. Absent children are skipped.
+	 */
+	public class Cursor {
+
+		private int[] nodes = new int[64];
+		private int[] depths = new int[64];
+		private int count, current = NONE, depth;
+
+		private Cursor(int node) {
+
+			if(node != NONE)
+				push(node, 0);
+		}
+
+		private void push(int node, int depth) {
+
+			if(this.count == this.nodes.length) {
+				this.nodes = Arrays.copyOf(this.nodes, this.count * 2);
+				this.depths = Arrays.copyOf(this.depths, this.count * 2);
+			}
+			this.nodes[this.count] = node;
+			this.depths[this.count++] = depth;
+		}
+
+		public boolean hasNext() {
+
+			return this.count > 0;
+		}
+
+		/** Moves to the next node and returns its handle. */
+		public int next() {
+
+			this.current = this.nodes[--this.count];
+			this.depth = this.depths[this.count];
+			for(int i = childCount(this.current) - 1; i >= 0; i--) {
+				int child = child(this.current, i);
+				if(child != NONE)
+					push(child, this.depth + 1);
+			}
+			return this.current;
+		}
+
+		/** Leaves out the children of the node last returned by next(). */
+		public void skipChildren() {
+
+			while(this.count > 0 && this.depths[this.count - 1] > this.depth)
+				this.count--;
+		}
+
+		public int depth() {
+
+			return this.depth;
+		}
+	}
+
+
+	private int add(Kind kind, TokenType operator, int line) {
+
+		if(this.size == this.kind.length) {
+			int capacity = this.size * 2;
+			this.kind = Arrays.copyOf(this.kind, capacity);
+			this.operator = Arrays.copyOf(this.operator, capacity);
+			this.first = Arrays.copyOf(this.first, capacity);
+			this.second = Arrays.copyOf(this.second, capacity);
+			this.third = Arrays.copyOf(this.third, capacity);
+			this.line = Arrays.copyOf(this.line, capacity);
+		}
+
+		int node = this.size++;
+		this.kind[node] = (byte) kind.ordinal();
+		this.operator[node] = operator == null ? NONE : operator.ordinal();
+		this.first[node] = NONE;
+		this.second[node] = NONE;
+		this.third[node] = NONE;
+		this.line[node] = line;
+		return node;
+	}
+
+
+	private int addList(Kind kind, int count) {
+
+		int node = add(kind, null, 0);
+		if(this.childCount + count > this.children.length)
+			this.children = Arrays.copyOf(this.children, Math.max(this.children.length * 2, this.childCount + count));
+		this.first[node] = this.childCount;
+		this.second[node] = count;
+		Arrays.fill(this.children, this.childCount, this.childCount + count, NONE);
+		this.childCount += count;
+		return node;
+	}
+
+
+	private int pool(Object value) {
+
+		Integer index = this.constantIndex.get(value);
+		if(index == null) {
+			index = this.constants.size();
+			this.constants.add(value);
+			this.constantIndex.put(value, index);
+		}
+		return index;
+	}
+
+
+	private int pool(String name, int symbol) {
+
+		if(symbol < 0)
+			return pool(name);
+
+		if(symbol >= this.symbolIndex.length)
+			this.symbolIndex = Arrays.copyOf(this.symbolIndex, Math.max(this.symbolIndex.length * 2, symbol + 1));
+		if(this.symbolIndex[symbol] == 0) {
+			this.constants.add(name);
+			this.symbolIndex[symbol] = this.constants.size();
+		}
+		return this.symbolIndex[symbol] - 1;
+	}
+
+
+	private void trim() {
+
+		this.kind = Arrays.copyOf(this.kind, this.size);
+		this.operator = Arrays.copyOf(this.operator, this.size);
+		this.first = Arrays.copyOf(this.first, this.size);
+		this.second = Arrays.copyOf(this.second, this.size);
+		this.third = Arrays.copyOf(this.third, this.size);
+		this.line = Arrays.copyOf(this.line, this.size);
+		this.children = Arrays.copyOf(this.children, this.childCount);
+		this.constants.trimToSize();
+		this.constantIndex = null;
+		this.symbolIndex = null;
+	}
+
+
+	/** Gives nodes without a token of their own the line of their first child that has one. */
+	private void fillLines() {
+
+		for(int node = this.size - 1; node >= 0; node--) {
+			for(int i = 0, count = childCount(node); this.line[node] == 0 && i < count; i++) {
+				int child = child(node, i);
+				if(child != NONE)
+					this.line[node] = this.line[child];
+			}
+		}
+	}
+
+
+	/**
+	 * Converts the object tree without recursion: each visit adds one node and
+	 * queues its children, which are linked into their parent's slot when
+	 * they are converted in turn.
+	 */
+	private static class Adapter implements Expression.Visitor<Void>, Statement.Visitor<Void> {
+
+		private static final int LIST = 3;
+		private static final DataType.Visitor<TokenType> TYPE_KEYWORD = new DataType.Visitor<TokenType>() {
+			public TokenType visitIntDataType(DataType.IntDataType dataType)			{ return TokenType.INT; }
+			public TokenType visitFloatDataType(DataType.FloatDataType dataType)		{ return TokenType.FP; }
+			public TokenType visitBooleanDataType(DataType.BooleanDataType dataType)	{ return TokenType.BOOL; }
+			public TokenType visitCharDataType(DataType.CharDataType dataType)		{ return TokenType.CHAR; }
+			public TokenType visitStringDataType(DataType.StringDataType dataType)	{ return TokenType.STR; }
+		};
+
+		private final FlatAst ast;
+		private final List<Object> pending = new ArrayList<>();
+		private int[] parents = new int[64], slots = new int[64];
+		private int parent, slot;
+
+		Adapter(FlatAst ast) {
+
+			this.ast = ast;
+		}
+
+		FlatAst convert(List<Statement> program) {
+
+			int root = this.ast.addList(Kind.PROGRAM, program.size());
+			this.ast.root = root;
+			for(int i = program.size() - 1; i >= 0; i--)
+				schedule(program.get(i), root, LIST + i);
+
+			while(!this.pending.isEmpty()) {
+				int top = this.pending.size() - 1;
+				Object node = this.pending.remove(top);
+				this.parent = this.parents[top];
+				this.slot = this.slots[top];
+
+				if(node instanceof Expression)
+					((Expression) node).accept(this);
+				else
+					((Statement) node).accept(this);
+			}
+			this.ast.fillLines();
+			this.ast.trim();
+			return this.ast;
+		}
+
+		private void schedule(Object node, int parent, int slot) {
+
+			if(node == null)
+				return;
+
+			int top = this.pending.size();
+			if(top == this.parents.length) {
+				this.parents = Arrays.copyOf(this.parents, top * 2);
+				this.slots = Arrays.copyOf(this.slots, top * 2);
+			}
+			this.parents[top] = parent;
+			this.slots[top] = slot;
+			this.pending.add(node);
+		}
+
+		private int add(Kind kind, Token operator) {
+
+			return link(this.ast.add(kind, operator == null ? null : operator.type, operator == null ? 0 : operator.line));
+		}
+
+		private int link(int node) {
+
+			switch(this.slot) {
+				case 0:	this.ast.first[this.parent] = node; break;
+				case 1:	this.ast.second[this.parent] = node; break;
+				case 2:	this.ast.third[this.parent] = node; break;
+				default:
+					this.ast.children[this.ast.first[this.parent] + this.slot - LIST] = node;
+					break;
+			}
+			return node;
+		}
+
+		private Void binary(Kind kind, Expression lhs, Token operator, Expression rhs) {
+
+			int node = add(kind, operator);
+			schedule(rhs, node, 1);
+			schedule(lhs, node, 0);
+			return null;
+		}
+
+		private Void list(Kind kind, List<? extends Statement> elements) {
+
+			int node = link(this.ast.addList(kind, elements.size()));
+			for(int i = elements.size() - 1; i >= 0; i--)
+				schedule(elements.get(i), node, LIST + i);
+			return null;
+		}
+
+		@Override
+		public Void visitConstant(Constant expression) {
+
+			Object value = expression.value;
+			TokenType type = value instanceof Integer ? TokenType.CONST_INT
+							: value instanceof Float ? TokenType.CONST_FLOAT
+							: value instanceof Boolean ? TokenType.CONST_BOOL
+							: value instanceof Character ? TokenType.CONST_CHAR
+							: value instanceof String ? TokenType.CONST_STR : null;
+			int node = link(this.ast.add(Kind.CONSTANT, type, 0));
+
+			if(type == TokenType.CONST_INT)
+				this.ast.first[node] = (Integer) value;
+			else if(type == TokenType.CONST_FLOAT)
+				this.ast.first[node] = Float.floatToRawIntBits((Float) value);
+			else if(type == TokenType.CONST_BOOL)
+				this.ast.first[node] = (Boolean) value ? 1 : 0;
+			else if(type == TokenType.CONST_CHAR)
+				this.ast.first[node] = (Character) value;
+			else
+				this.ast.first[node] = this.ast.pool(value);
+			return null;
+		}
+
+		@Override
+		public Void visitIdentifier(Identifier expression) {
+
+			int node = link(this.ast.add(Kind.IDENTIFIER, null, expression.token.line));
+			this.ast.first[node] = this.ast.pool(expression.token.lexeme, expression.symbol);
+			this.ast.second[node] = expression.symbol;
+			return null;
+		}
+
+		@Override
+		public Void visitGrouped(Grouped expression) {
+
+			schedule(expression.expression, add(Kind.GROUPED, null), 0);
+			return null;
+		}
+
+		@Override
+		public Void visitUnary(Unary expression) {
+
+			schedule(expression.rhs, add(Kind.UNARY, expression.operator), 0);
+			return null;
+		}
+
+		@Override
+		public Void visitMultiplicative(Multiplicative expression) {
+
+			return binary(Kind.MULTIPLICATIVE, expression.lhs, expression.operator, expression.rhs);
+		}
+
+		@Override
+		public Void visitAdditive(Additive expression) {
+
+			return binary(Kind.ADDITIVE, expression.lhs, expression.operator, expression.rhs);
+		}
+
+		@Override
+		public Void visitRelational(Relational expression) {
+
+			return binary(Kind.RELATIONAL, expression.lhs, expression.operator, expression.rhs);
+		}
+
+		@Override
+		public Void visitEquality(Equality expression) {
+
+			return binary(Kind.EQUALITY, expression.lhs, expression.operator, expression.rhs);
+		}
+
+		@Override
+		public Void visitLogAnd(LogAnd expression) {
+
+			return binary(Kind.LOG_AND, expression.lhs, expression.operator, expression.rhs);
+		}
+
+		@Override
+		public Void visitLogOr(LogOr expression) {
+
+			return binary(Kind.LOG_OR, expression.lhs, expression.operator, expression.rhs);
+		}
+
+		@Override
+		public Void visitAssignment(Assignment expression) {
+
+			return binary(Kind.ASSIGNMENT, expression.lhs, expression.operator, expression.rhs);
+		}
+
+		@Override
+		public Void visitDeclaration(Declaration statement) {
+
+			TokenType type = statement.type == null ? null : statement.type.accept(TYPE_KEYWORD);
+			int node = link(this.ast.add(Kind.DECLARATION, type, 0));
+			schedule(statement.initialization, node, 0);
+			return null;
+		}
+
+		@Override
+		public Void visitDeclarationList(DeclarationList statement) {
+
+			return list(Kind.DECLARATION_LIST, statement.getList());
+		}
+
+		@Override
+		public Void visitPrintStmt(PrintStatement statement) {
+
+			schedule(statement.expression, add(Kind.PRINT, null), 0);
+			return null;
+		}
+
+		@Override
+		public Void visitInputStmt(InputStatement statement) {
+
+			schedule(statement.expression, add(Kind.INPUT, null), 0);
+			return null;
+		}
+
+		@Override
+		public Void visitIfStmt(IfStatement statement) {
+
+			int node = add(Kind.IF, null);
+			schedule(statement.elseStatement, node, 2);
+			schedule(statement.thenStatement, node, 1);
+			schedule(statement.condition, node, 0);
+			return null;
+		}
+
+		@Override
+		public Void visitWhileStmt(WhileStatement statement) {
+
+			int node = add(Kind.WHILE, null);
+			schedule(statement.todoStatement, node, 1);
+			schedule(statement.condition, node, 0);
+			return null;
+		}
+
+		@Override
+		public Void visitExpressionStmt(ExpressionStmt statement) {
+
+			schedule(statement.expression, add(Kind.EXPRESSION_STMT, null), 0);
+			return null;
+		}
+
+		@Override
+		public Void visitBlockStmt(BlockStatement statement) {
+
+			schedule(statement.statementList, add(Kind.BLOCK, null), 0);
+			return null;
+		}
+
+		@Override
+		public Void visitStatementList(StatementList statement) {
+
+			return list(Kind.STATEMENT_LIST, statement.getList());
+		}
+	}
+}
\ No newline at end of file
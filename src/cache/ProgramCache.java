@@ -0,0 +1,261 @@
+package cache;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import ast.AstReader;
+import ast.AstWriter;
+import ast.Statement;
+import lexer.Lexer;
+import lexer.TokenStream;
+import parser.Parser;
+
+/**
+ * Keeps parsed programs on disk so that running an unchanged source again
+ * skips the lexer and parser. An entry is the program in the binary AST
+ * format, filed under the SHA-256 of the cache version and the source text.
+ * Entries are read through a memory-mapped buffer.
+ *
+ * <pre>
+ * int    magic "CXAC"
+ * int    VERSION
+ * byte[] 32-byte key, checked against the file name's
+ * ...    AstWriter output
+ * </pre>
+ *
+ * The cache is only a shortcut: an entry that is missing, unreadable or of
+ * another version is a miss, and a failed store is ignored.
+ *
+ * The directory is kept small. A hit marks its entry as used by touching
+ * its modification time. After each store, entries unused for longer than
+ * the maximum age are deleted, and then the least recently used ones until
+ * the rest fit in the maximum size. Leftover temporary files are deleted
+ * once they are older than the maximum age.
+ */
+public class ProgramCache {
+
+	/** Bump whenever the lexer, parser or stored form can give a different result for the same source. */
+	public static final int VERSION = 3;
+
+	public static final long DEFAULT_MAX_SIZE = 64L << 20;
+	public static final long DEFAULT_MAX_AGE = TimeUnit.DAYS.toMillis(30);
+
+	private static final int MAGIC = 0x43584143;
+	private static final String SUFFIX = ".cxc", TEMPORARY_SUFFIX = ".tmp";
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final Path directory;
+	private final long maxSize, maxAge;
+	private int hits, misses, evictions;
+
+	public ProgramCache(Path directory) {
+
+		this(directory, DEFAULT_MAX_SIZE, DEFAULT_MAX_AGE);
+	}
+
+
+	/** A cache holding at most maxSize bytes of entries, none unused for more than maxAge milliseconds. */
+	public ProgramCache(Path directory, long maxSize, long maxAge) {
+
+		this.directory = directory;
+		this.maxSize = maxSize;
+		this.maxAge = maxAge;
+	}
+
+
+	/** The cached program, or lexes, parses and stores the source on a miss. */
+	public List<Statement> get(String source) {
+
+		byte[] key = key(source);
+		List<Statement> program = load(key);
+		if(program == null) {
+			program = new Parser(new TokenStream(new Lexer(source).getTokenBuffer())).parseStatementList();
+			store(key, program);
+		}
+		return program;
+	}
+
+
+	/** The cached program for source, or null. */
+	public List<Statement> load(String source) {
+
+		return load(key(source));
+	}
+
+
+	public void store(String source, List<Statement> program) {
+
+		store(key(source), program);
+	}
+
+
+	public int getHits() {
+
+		return this.hits;
+	}
+
+
+	public int getMisses() {
+
+		return this.misses;
+	}
+
+
+	/** How many entries this cache has deleted to stay within its limits. */
+	public int getEvictions() {
+
+		return this.evictions;
+	}
+
+
+	private List<Statement> load(byte[] key) {
+
+		Path path = path(key);
+		if(!Files.isRegularFile(path)) {
+			this.misses++;
+			return null;
+		}
+
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(in.getInt() != MAGIC || in.getInt() != VERSION) {
+				this.misses++;
+				return null;
+			}
+			byte[] stored = new byte[key.length];
+			in.get(stored);
+			if(!Arrays.equals(stored, key)) {
+				this.misses++;
+				return null;
+			}
+
+			List<Statement> program = new AstReader(in).readAll();
+			this.hits++;
+			touch(path);
+			return program;
+		} catch(IOException | BufferUnderflowException | IllegalArgumentException e) {
+			this.misses++;
+			return null;
+		}
+	}
+
+
+	/** Writes to a temporary file first, so a reader never maps a half-written entry. */
+	private void store(byte[] key, List<Statement> program) {
+
+		Path path = path(key);
+		Path temporary = null;
+		try {
+			Files.createDirectories(this.directory);
+			temporary = Files.createTempFile(this.directory, "entry", TEMPORARY_SUFFIX);
+			try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16)) {
+				out.write(ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION).array());
+				out.write(key);
+				AstWriter writer = new AstWriter(out);
+				writer.writeAll(program);
+				writer.close();
+			}
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch(IOException e) {
+			try {
+				if(temporary != null)
+					Files.deleteIfExists(temporary);
+			} catch(IOException ignored) {
+			}
+			return;
+		}
+		evict();
+	}
+
+
+	private static void touch(Path path) {
+
+		try {
+			Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch(IOException ignored) {
+		}
+	}
+
+
+	/** Deletes entries past the maximum age, then the least recently used until the rest fit in the maximum size. */
+	private void evict() {
+
+		Map<Path, BasicFileAttributes> files = new HashMap<>();
+		try(Stream<Path> list = Files.list(this.directory)) {
+			for(Path path : (Iterable<Path>) list::iterator) {
+				String name = path.getFileName().toString();
+				if(name.endsWith(SUFFIX) || name.endsWith(TEMPORARY_SUFFIX))
+					files.put(path, Files.readAttributes(path, BasicFileAttributes.class));
+			}
+		} catch(IOException e) {
+			return;
+		}
+
+		long size = 0;
+		for(BasicFileAttributes attributes : files.values())
+			size += attributes.size();
+		List<Path> leastRecent = new ArrayList<>(files.keySet());
+		leastRecent.sort(Comparator.comparing(path -> files.get(path).lastModifiedTime()));
+
+		long oldest = System.currentTimeMillis() - this.maxAge;
+		for(Path path : leastRecent) {
+			BasicFileAttributes attributes = files.get(path);
+			boolean temporary = path.getFileName().toString().endsWith(TEMPORARY_SUFFIX);
+			boolean old = attributes.lastModifiedTime().toMillis() < oldest;
+			if(!old && (temporary || size <= this.maxSize))
+				continue;
+			try {
+				if(Files.deleteIfExists(path) && !temporary)
+					this.evictions++;
+				size -= attributes.size();
+			} catch(IOException ignored) {
+			}
+		}
+	}
+
+
+	private Path path(byte[] key) {
+
+		char[] name = new char[key.length * 2];
+		for(int i = 0; i < key.length; i++) {
+			name[2 * i] = HEX[(key[i] >> 4) & 0xF];
+			name[2 * i + 1] = HEX[key[i] & 0xF];
+		}
+		return this.directory.resolve(new String(name) + SUFFIX);
+	}
+
+
+	private static byte[] key(String source) {
+
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(ByteBuffer.allocate(4).putInt(VERSION).array());
+			digest.update(source.getBytes(StandardCharsets.UTF_8));
+			return digest.digest();
+		} catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package interpreter;
+
+/**
+ * The variables of a running program, in the slots the resolver gave them.
+ * INT, BOOL and CHAR values share the int array, BOOLs as 0 or 1.
+ */
+public class Frame {
+
+	public final int[] ints;
+	public final float[] floats;
+	public final Object[] objects;
+
+	public Frame(int ints, int floats, int objects) {
+
+		this.ints = new int[ints];
+		this.floats = new float[floats];
+		this.objects = new Object[objects];
+	}
+}
\ No newline at end of file
@@ -1,276 +1,513 @@
-package interpreter;
-
-import ast.Statement;
-import ast.Statement.Declaration;
-import ast.Statement.ExpressionStmt;
-import ast.Statement.PrintStatement;
-
-import java.util.List;
-
-import ast.Expression;
-import ast.Expression.Additive;
-import ast.Expression.Assignment;
-import ast.Expression.Constant;
-import ast.Expression.Equality;
-import ast.Expression.Grouped;
-import ast.Expression.Identifier;
-import ast.Expression.LogAnd;
-import ast.Expression.LogOr;
-import ast.Expression.Multiplicative;
-import ast.Expression.Relational;
-import ast.Expression.Unary;
-import lexer.TokenType;
-
-public class Interpreter implements Expression.Visitor<Object>, Statement.Visitor<Object> {
-	
-	
-	@Override
-	public Object visitDeclaration(Declaration statement) {
-		// TODO Auto-generated method stub
-		return null;
-	}
-	
-	
-	@Override
-	public Object visitExpressionStmt(ExpressionStmt statement) {
-
-		evaluate(statement.expression);
-		return null;
-	}
-	
-	
-	@Override
-	public Object visitPrintStmt(PrintStatement statement) {
-
-		Object expression = evaluate(statement.expression);
-		System.out.println(toString(expression));
-		return null;
-	}
-	
-	
-	@Override
-	public Object visitConstant(Constant expression) {
-		
-		return expression.value;
-	}
-
-	//TODO
-	@Override
-	public Object visitIdentifier(Identifier expression) {
-
-		return null;
-	}
-
-	
-	@Override
-	public Object visitGrouped(Grouped expression) {
-		
-		return evaluate(expression.expression);
-	}
-
-	@Override
-	public Object visitUnary(Unary expression) {
-		
-		Object rhs = evaluate(expression.rhs);
-
-		switch(expression.operator.type) {
-			case NOT:
-				return !isTrue(rhs);
-			default:
-				break;
-		}
-		return null;
-	}
-
-
-	@Override
-	public Object visitMultiplicative(Multiplicative expression) {
-		
-		Object lhs = evaluate(expression.lhs);
-		Object rhs = evaluate(expression.rhs);
-		
-		switch(expression.operator.type) {
-			case MULTI:
-				if(lhs instanceof Integer && rhs instanceof Integer)
-					return (int)lhs * (int)rhs;
-				if(lhs instanceof Float && rhs instanceof Float)
-					return (float)lhs * (float)rhs;
-				break;
-			case DIV:
-				if(lhs instanceof Integer && rhs instanceof Integer)
-					return (int)lhs / (int)rhs;
-				if(lhs instanceof Float && rhs instanceof Float)
-					return (float)lhs / (float)rhs;
-				break;
-			case MOD:
-				if(lhs instanceof Integer && rhs instanceof Integer)
-					return (int)lhs % (int)rhs;
-				if(lhs instanceof Float && rhs instanceof Float)
-					return (float)lhs % (float)rhs;
-				break;
-			default:
-				break;
-		}
-		return null;
-	}
-	
-
-	@Override
-	public Object visitAdditive(Additive expression) {
-		
-		Object lhs = evaluate(expression.lhs);
-		Object rhs = evaluate(expression.rhs);
-		
-		switch(expression.operator.type) {
-			case PLUS:
-				if(lhs instanceof Integer && rhs instanceof Integer)
-					return (int)lhs + (int)rhs;
-				if(lhs instanceof Float && rhs instanceof Float)
-					return (float)lhs + (float)rhs;
-				break;
-			case MINUS:
-				if(lhs instanceof Integer && rhs instanceof Integer)
-					return (int)lhs - (int)rhs;
-				if(lhs instanceof Float && rhs instanceof Float)
-					return (float)lhs - (float)rhs;
-				break;
-			default:
-				break;
-		}
-		return null;
-	}
-	
-
-	@Override
-	public Object visitRelational(Relational expression) {
-		
-		Object lhs = evaluate(expression.lhs);
-		Object rhs = evaluate(expression.rhs);
-		
-		switch(expression.operator.type) {
-			case GREATER:
-				if(lhs instanceof Integer && rhs instanceof Integer)
-					return (int)lhs > (int)rhs;
-				if(lhs instanceof Float && rhs instanceof Float)
-					return (float)lhs > (float)rhs;
-				break;
-			case GREATEREQ:
-				if(lhs instanceof Integer && rhs instanceof Integer)
-					return (int)lhs >= (int)rhs;
-				if(lhs instanceof Float && rhs instanceof Float)
-					return (float)lhs >= (float)rhs;
-				break;
-			case LESS:
-				if(lhs instanceof Integer && rhs instanceof Integer)
-					return (int)lhs < (int)rhs;
-				if(lhs instanceof Float && rhs instanceof Float)
-					return (float)lhs < (float)rhs;
-				break;
-			case LESSEQ:
-				if(lhs instanceof Integer && rhs instanceof Integer)
-					return (int)lhs <= (int)rhs;
-				if(lhs instanceof Float && rhs instanceof Float)
-					return (float)lhs <= (float)rhs;
-			default:
-				break;
-		}
-		return null;
-	}
-	
-
-	@Override
-	public Object visitEquality(Equality expression) {
-		
-		Object lhs = evaluate(expression.lhs);
-		Object rhs = evaluate(expression.rhs);
-		
-		switch(expression.operator.type) {
-			case EQUALTO: return !isEqual(lhs, rhs);
-			case NEQUALTO: return isEqual(lhs, rhs);
-			default:
-				break;
-		}
-		return null;
-	}
-
-
-	@Override
-	public Object visitLogAnd(LogAnd expression) {
-		
-		Object lhs = evaluate(expression.lhs);
-		
-		if(expression.operator.type == TokenType.AND)
-			if(!isTrue(lhs)) return lhs;
-		
-		return evaluate(expression.rhs);
-	}
-
-	@Override
-	public Object visitLogOr(LogOr expression) {
-		
-		Object lhs = evaluate(expression.lhs);
-		
-		if(expression.operator.type == TokenType.OR)
-			if(isTrue(lhs)) return lhs;
-		
-		return evaluate(expression.rhs);
-	}
-
-	@Override
-	public Object visitAssignment(Assignment expression) {
-		// TODO Auto-generated method stub
-		return null;
-	}
-	
-	
-	private Object evaluate(Expression expression) {
-		
-		return expression.accept(this);
-	}
-	
-	
-	private boolean isTrue(Object object) {
-		
-	    if (object == null) return false;
-	    if (object instanceof Boolean) return (boolean)object;
-	    return true;
-	}
-	
-	
-	private boolean isEqual(Object lhs, Object rhs) {
-		
-		if (lhs == null && rhs == null) return true;
-	    if (lhs == null) return false;
-
-	    return lhs.equals(rhs);
-	}
-	
-	
-	private String toString(Object object) {
-		
-		if(object == null)
-			return "NULL";
-		
-		if(object instanceof Float) {
-		    String text = object.toString();
-		    if(text.endsWith(".0")) {
-		        text = text.substring(0, text.length() - 1);
-		     }
-		     return text;
-		}
-		return object.toString();
-	}
-	
-	
-	public void interpret(List<Statement> stmtList) {
-		
-		//List<Statement> stmtList = new StatementList();
-		
-		for(Statement statements : stmtList)
-			execute(statements);
-	}
-	
-	private void execute(Statement statement) {
-	    statement.accept(this);
-	  }
+package interpreter;
+
+import ast.Statement;
+import ast.Statement.BlockStatement;
+import ast.Statement.Declaration;
+import ast.Statement.DeclarationList;
+import ast.Statement.ExpressionStmt;
+import ast.Statement.IfStatement;
+import ast.Statement.InputStatement;
+import ast.Statement.PrintStatement;
+import ast.Statement.StatementList;
+import ast.Statement.WhileStatement;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.DataType;
+import ast.Expression;
+import ast.Expression.Additive;
+import ast.Expression.Assignment;
+import ast.Expression.Constant;
+import ast.Expression.Equality;
+import ast.Expression.Grouped;
+import ast.Expression.Identifier;
+import ast.Expression.LogAnd;
+import ast.Expression.LogOr;
+import ast.Expression.Multiplicative;
+import ast.Expression.Relational;
+import ast.Expression.Unary;
+import jit.CompiledCode;
+import jit.JvmCompiler;
+import lexer.TokenType;
+import parser.CodeXRuntimeException;
+import semantic.Optimizer;
+import semantic.Resolver;
+import semantic.TypeChecker;
+
+public class Interpreter implements Expression.Visitor<Object>, Statement.Visitor<Object> {
+	
+	@SuppressWarnings("serial")
+	public static class RuntimeError extends CodeXRuntimeException {
+
+		RuntimeError(String message) {
+			super(message, false);
+		}
+	}
+	
+	/** What the interpreter knows about one WHILE loop: how often it has run, and its compiled code once it is hot. */
+	private static class Loop {
+		
+		int iterations;
+		CompiledCode compiled;
+		boolean givenUp;
+	}
+	
+	/** Iterations after which a loop is compiled, unless changed with {@link #setTierThreshold}. */
+	public static final int DEFAULT_TIER_THRESHOLD = 1000;
+	
+	private static BufferedReader input;
+	
+	private Frame frame;
+	private Resolver resolver;
+	private int eliminated;
+	
+	private int tierThreshold = DEFAULT_TIER_THRESHOLD;
+	private final Map<WhileStatement, Loop> loops = new IdentityHashMap<>();
+	private final List<TierUp> tierUps = new ArrayList<>();
+	private final List<TierUp.Listener> listeners = new ArrayList<>();
+	
+	
+	/** Slots are reused by later blocks, so a declaration without a value must reset its slot. */
+	@Override
+	public Object visitDeclaration(Declaration statement) {
+
+		if(statement.initialization instanceof Assignment) {
+			evaluate(statement.initialization);
+		} else {
+			Identifier name = (Identifier) statement.initialization;
+			store(name, zero(name.type));
+		}
+		return null;
+	}
+	
+	
+	@Override
+	public Object visitExpressionStmt(ExpressionStmt statement) {
+
+		evaluate(statement.expression);
+		return null;
+	}
+	
+	
+	@Override
+	public Object visitPrintStmt(PrintStatement statement) {
+
+		Object expression = evaluate(statement.expression);
+		System.out.println(toString(expression));
+		return null;
+	}
+	
+	
+	@Override
+	public Object visitInputStmt(InputStatement statement) {
+
+		Identifier name = (Identifier) statement.expression;
+		store(name, read(name.type, name.token.line));
+		return null;
+	}
+	
+	
+	/**
+	 * Reads one line from standard input, parsed as a value of type. Every
+	 * engine reads through this one reader, so none loses input another
+	 * has buffered.
+	 */
+	public static Object read(DataType type, int lineNumber) {
+		
+		String line;
+		try {
+			synchronized(Interpreter.class) {
+				if(input == null)
+					input = new BufferedReader(new InputStreamReader(System.in));
+				line = input.readLine();
+			}
+		} catch(IOException e) {
+			throw new RuntimeError("XIN failed: " + e.getMessage());
+		}
+		if(line == null)
+			throw new RuntimeError("XIN reached the end of the input");
+		
+		try {
+			if(type == DataType.INT)
+				return Integer.parseInt(line.trim());
+			if(type == DataType.FP)
+				return Float.parseFloat(line.trim());
+			if(type == DataType.BOOL && (line.trim().equals("true") || line.trim().equals("false")))
+				return line.trim().equals("true");
+			if(type == DataType.CHAR && line.length() == 1)
+				return line.charAt(0);
+			if(type == DataType.STR)
+				return line;
+		} catch(NumberFormatException e) {
+		}
+		throw new RuntimeError("[line " + lineNumber + "] '" + line + "' is not a " + type);
+	}
+	
+	
+	@Override
+	public Object visitIfStmt(IfStatement statement) {
+
+		if((boolean) evaluate(statement.condition))
+			execute(statement.thenStatement);
+		else if(statement.elseStatement != null)
+			execute(statement.elseStatement);
+		return null;
+	}
+	
+	
+	/**
+	 * Runs a loop's compiled code if it has any. Otherwise interprets it,
+	 * counting its iterations across every time it is entered, and once
+	 * they reach the threshold compiles it and lets the compiled code run
+	 * the rest. The compiled code works on the same frame and starts with
+	 * the condition, so it picks up right after the iteration just
+	 * interpreted.
+	 */
+	@Override
+	public Object visitWhileStmt(WhileStatement statement) {
+
+		Loop loop = this.loops.get(statement);
+		if(loop == null) {
+			loop = new Loop();
+			this.loops.put(statement, loop);
+		}
+		if(loop.compiled != null) {
+			loop.compiled.run(this.frame);
+			return null;
+		}
+		
+		boolean counting = this.tierThreshold > 0 && !loop.givenUp;
+		while((boolean) evaluate(statement.condition)) {
+			execute(statement.todoStatement);
+			if(counting && ++loop.iterations >= this.tierThreshold) {
+				counting = false;
+				if(tierUp(statement, loop)) {
+					loop.compiled.run(this.frame);
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+	
+	
+	/**
+	 * Compiles a hot loop and reports it, and returns whether it compiled.
+	 * Compiling must not change what the program does, so a loop the JIT
+	 * fails on is reported with the error and stays interpreted.
+	 */
+	private boolean tierUp(WhileStatement statement, Loop loop) {
+		
+		long start = System.nanoTime();
+		Throwable error = null;
+		try {
+			loop.compiled = new JvmCompiler().compile(Collections.singletonList(statement), this.resolver);
+		} catch(RuntimeException | LinkageError | StackOverflowError e) {
+			loop.compiled = null;
+			error = e;
+		}
+		loop.givenUp = loop.compiled == null;
+		TierUp event = new TierUp(line(statement.condition), loop.iterations, System.nanoTime() - start,
+				!loop.givenUp, loop.givenUp ? 0 : loop.compiled.classFile.length, error);
+		this.tierUps.add(event);
+		for(TierUp.Listener listener : this.listeners)
+			listener.tierUp(event);
+		return !loop.givenUp;
+	}
+	
+	
+	/** The line of the first token in an expression, or -1 if it has none. */
+	private static int line(Expression expression) {
+		
+		if(expression instanceof Identifier)
+			return ((Identifier) expression).token.line;
+		if(expression instanceof Grouped)
+			return line(((Grouped) expression).expression);
+		if(expression instanceof Unary)
+			return ((Unary) expression).operator.line;
+		if(expression instanceof Relational)
+			return ((Relational) expression).operator.line;
+		if(expression instanceof Equality)
+			return ((Equality) expression).operator.line;
+		if(expression instanceof LogAnd)
+			return ((LogAnd) expression).operator.line;
+		if(expression instanceof LogOr)
+			return ((LogOr) expression).operator.line;
+		if(expression instanceof Assignment)
+			return ((Assignment) expression).operator.line;
+		return -1;
+	}
+	
+	
+	@Override
+	public Object visitBlockStmt(BlockStatement statement) {
+
+		execute(statement.statementList);
+		return null;
+	}
+	
+	
+	@Override
+	public Object visitStatementList(StatementList statement) {
+
+		for(Statement element : statement.getList())
+			execute(element);
+		return null;
+	}
+	
+	
+	@Override
+	public Object visitDeclarationList(DeclarationList statement) {
+
+		for(Declaration declaration : statement.getList())
+			execute(declaration);
+		return null;
+	}
+	
+	
+	@Override
+	public Object visitConstant(Constant expression) {
+		
+		return expression.value;
+	}
+
+	@Override
+	public Object visitIdentifier(Identifier expression) {
+
+		int slot = expression.slot;
+		if(expression.type == DataType.INT)
+			return this.frame.ints[slot];
+		if(expression.type == DataType.FP)
+			return this.frame.floats[slot];
+		if(expression.type == DataType.BOOL)
+			return this.frame.ints[slot] != 0;
+		if(expression.type == DataType.CHAR)
+			return (char) this.frame.ints[slot];
+		return this.frame.objects[slot];
+	}
+
+	
+	@Override
+	public Object visitGrouped(Grouped expression) {
+		
+		return evaluate(expression.expression);
+	}
+
+	@Override
+	public Object visitUnary(Unary expression) {
+		
+		return !(boolean) evaluate(expression.rhs);
+	}
+
+
+	@Override
+	public Object visitMultiplicative(Multiplicative expression) {
+		
+		Object lhs = evaluate(expression.lhs);
+		Object rhs = evaluate(expression.rhs);
+		
+		if(expression.type == DataType.INT) {
+			switch(expression.operator.type) {
+				case MULTI:	return (int)lhs * (int)rhs;
+				case DIV:	return (int)lhs / (int)rhs;
+				default:	return (int)lhs % (int)rhs;
+			}
+		}
+		switch(expression.operator.type) {
+			case MULTI:	return (float)lhs * (float)rhs;
+			case DIV:	return (float)lhs / (float)rhs;
+			default:	return (float)lhs % (float)rhs;
+		}
+	}
+	
+
+	@Override
+	public Object visitAdditive(Additive expression) {
+		
+		Object lhs = evaluate(expression.lhs);
+		Object rhs = evaluate(expression.rhs);
+		
+		if(expression.type == DataType.INT)
+			return expression.operator.type == TokenType.PLUS ? (int)lhs + (int)rhs : (int)lhs - (int)rhs;
+		return expression.operator.type == TokenType.PLUS ? (float)lhs + (float)rhs : (float)lhs - (float)rhs;
+	}
+	
+
+	@Override
+	public Object visitRelational(Relational expression) {
+		
+		Object lhs = evaluate(expression.lhs);
+		Object rhs = evaluate(expression.rhs);
+		
+		if(expression.lhs.type == DataType.INT) {
+			switch(expression.operator.type) {
+				case GREATER:	return (int)lhs > (int)rhs;
+				case GREATEREQ:	return (int)lhs >= (int)rhs;
+				case LESS:		return (int)lhs < (int)rhs;
+				default:		return (int)lhs <= (int)rhs;
+			}
+		}
+		switch(expression.operator.type) {
+			case GREATER:	return (float)lhs > (float)rhs;
+			case GREATEREQ:	return (float)lhs >= (float)rhs;
+			case LESS:		return (float)lhs < (float)rhs;
+			default:		return (float)lhs <= (float)rhs;
+		}
+	}
+	
+
+	@Override
+	public Object visitEquality(Equality expression) {
+		
+		Object lhs = evaluate(expression.lhs);
+		Object rhs = evaluate(expression.rhs);
+		
+		boolean equal = isEqual(lhs, rhs);
+		return expression.operator.type == TokenType.EQUALTO ? equal : !equal;
+	}
+
+
+	@Override
+	public Object visitLogAnd(LogAnd expression) {
+		
+		return (boolean) evaluate(expression.lhs) && (boolean) evaluate(expression.rhs);
+	}
+
+	@Override
+	public Object visitLogOr(LogOr expression) {
+		
+		return (boolean) evaluate(expression.lhs) || (boolean) evaluate(expression.rhs);
+	}
+
+	@Override
+	public Object visitAssignment(Assignment expression) {
+		
+		Object value = evaluate(expression.rhs);
+		store((Identifier) expression.lhs, value);
+		return value;
+	}
+	
+	
+	private void store(Identifier name, Object value) {
+		
+		int slot = name.slot;
+		if(name.type == DataType.INT)
+			this.frame.ints[slot] = (int) value;
+		else if(name.type == DataType.FP)
+			this.frame.floats[slot] = (float) value;
+		else if(name.type == DataType.BOOL)
+			this.frame.ints[slot] = (boolean) value ? 1 : 0;
+		else if(name.type == DataType.CHAR)
+			this.frame.ints[slot] = (char) value;
+		else
+			this.frame.objects[slot] = value;
+	}
+	
+	
+	private static Object zero(DataType type) {
+		
+		if(type == DataType.INT)
+			return 0;
+		if(type == DataType.FP)
+			return 0.0f;
+		if(type == DataType.BOOL)
+			return false;
+		if(type == DataType.CHAR)
+			return '\0';
+		return "";
+	}
+	
+	
+	private Object evaluate(Expression expression) {
+		
+		return expression.accept(this);
+	}
+	
+	
+	private boolean isEqual(Object lhs, Object rhs) {
+		
+		if (lhs == null && rhs == null) return true;
+	    if (lhs == null) return false;
+
+	    return lhs.equals(rhs);
+	}
+	
+	
+	/** How XOUT shows a value; an FP drops the 0 of a trailing .0. */
+	public static String toString(Object object) {
+		
+		if(object == null)
+			return "NULL";
+		
+		if(object instanceof Float) {
+		    String text = object.toString();
+		    if(text.endsWith(".0")) {
+		        text = text.substring(0, text.length() - 1);
+		     }
+		     return text;
+		}
+		return object.toString();
+	}
+	
+	
+	/**
+	 * Type checks the program, then runs it. The checked types pick each
+	 * operation, so values are never inspected for their type, and the
+	 * resolved slots say where each variable is, so no name is looked up.
+	 * Constant expressions and dead branches are taken out in between.
+	 * WHILE loops that run hot are compiled to JVM code while running.
+	 */
+	public void interpret(List<Statement> stmtList) {
+		
+		new TypeChecker().check(stmtList);
+		Optimizer optimizer = new Optimizer();
+		stmtList = optimizer.optimize(stmtList);
+		this.eliminated = optimizer.getEliminated();
+		this.resolver = new Resolver();
+		this.resolver.resolve(stmtList);
+		this.frame = new Frame(this.resolver.getFrameSize(Resolver.INTS), this.resolver.getFrameSize(Resolver.FLOATS),
+				this.resolver.getFrameSize(Resolver.OBJECTS));
+		this.loops.clear();
+		this.tierUps.clear();
+		
+		for(Statement statements : stmtList)
+			execute(statements);
+	}
+	
+	
+	/** Sets how many iterations make a loop hot enough to compile; 0 or less keeps every loop interpreted. */
+	public void setTierThreshold(int iterations) {
+		
+		this.tierThreshold = iterations;
+	}
+	
+	
+	public void addTierUpListener(TierUp.Listener listener) {
+		
+		this.listeners.add(listener);
+	}
+	
+	
+	/** The loops compiled, or found too large to compile, during the last run. */
+	public List<TierUp> getTierUps() {
+		
+		return Collections.unmodifiableList(this.tierUps);
+	}
+	
+	/** How many nodes the optimizer took out of the last program run. */
+	public int getEliminated() {
+		
+		return this.eliminated;
+	}
+	
+	private void execute(Statement statement) {
+	    statement.accept(this);
+	  }
 }
\ No newline at end of file
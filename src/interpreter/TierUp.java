@@ -0,0 +1,46 @@
+package interpreter;
+
+/**
+ * A WHILE loop that became hot in the interpreter and was handed to the
+ * JIT. Gives the loop's line, the iterations it had run when it crossed
+ * the threshold, and how long compiling took. A loop too large for one
+ * JVM method, or one the JIT failed on, is reported as not compiled and
+ * stays interpreted.
+ */
+public class TierUp {
+
+	/** Told of every loop the interpreter tries to compile, as it happens. */
+	public interface Listener {
+		void tierUp(TierUp event);
+	}
+
+	/** The line of the loop's condition, or -1 if the condition has no token to tell. */
+	public final int line;
+	public final int iterations;
+	public final long compileNanos;
+	public final boolean compiled;
+	/** The size of the class file the loop was compiled to, 0 if it was not. */
+	public final int classSize;
+	/** Why compiling failed, or null if it did not fail; a loop that is only too large has none. */
+	public final Throwable error;
+
+	TierUp(int line, int iterations, long compileNanos, boolean compiled, int classSize, Throwable error) {
+
+		this.line = line;
+		this.iterations = iterations;
+		this.compileNanos = compileNanos;
+		this.compiled = compiled;
+		this.classSize = classSize;
+		this.error = error;
+	}
+
+
+	@Override
+	public String toString() {
+
+		return String.format("[line %d] WHILE %s after %d iterations in %.2f ms%s", this.line,
+				this.compiled ? "compiled" : this.error != null ? "failed to compile (" + this.error + ")" : "too large to compile",
+				this.iterations, this.compileNanos / 1e6,
+				this.compiled ? ", " + this.classSize + " bytes" : "");
+	}
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package jit;
+
+import ast.DataType;
+import interpreter.Interpreter;
+
+/**
+ * What compiled programs call for XOUT and XIN. Values arrive and leave
+ * unboxed. They print and parse exactly as in the interpreter, since they
+ * go through the interpreter's own methods.
+ */
+final class Builtins {
+
+	static final String OWNER = "jit/Builtins";
+
+	private Builtins() {
+	}
+
+
+	static void print(int value) {
+
+		System.out.println(Interpreter.toString(value));
+	}
+
+
+	static void print(float value) {
+
+		System.out.println(Interpreter.toString(value));
+	}
+
+
+	static void print(boolean value) {
+
+		System.out.println(Interpreter.toString(value));
+	}
+
+
+	static void print(char value) {
+
+		System.out.println(Interpreter.toString(value));
+	}
+
+
+	static void print(Object value) {
+
+		System.out.println(Interpreter.toString(value));
+	}
+
+
+	static int readInt(int line) {
+
+		return (Integer) Interpreter.read(DataType.INT, line);
+	}
+
+
+	static float readFloat(int line) {
+
+		return (Float) Interpreter.read(DataType.FP, line);
+	}
+
+
+	static boolean readBool(int line) {
+
+		return (Boolean) Interpreter.read(DataType.BOOL, line);
+	}
+
+
+	static char readChar(int line) {
+
+		return (Character) Interpreter.read(DataType.CHAR, line);
+	}
+
+
+	static Object readString(int line) {
+
+		return Interpreter.read(DataType.STR, line);
+	}
+}
\ No newline at end of file
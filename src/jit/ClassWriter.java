@@ -0,0 +1,163 @@
+package jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a class file with one public static method, which is all a
+ * compiled CodeX program needs. The constant pool is filled while the
+ * method's code is emitted, and each entry is added only once.
+ *
+ * The class file version is 49, from before stack map frames, so the JVM
+ * works out the types at branch targets itself and nothing but the code
+ * has to be written.
+ *
+ * A class that would break one of the class file's limits gives a
+ * TooLarge, after which the writer is not used again.
+ */
+final class ClassWriter {
+
+	/** Thrown when the class does not fit the limits of a class file. */
+	@SuppressWarnings("serial")
+	static class TooLarge extends RuntimeException {
+
+		TooLarge() {
+			super(null, null, false, false);
+		}
+	}
+
+	/** The largest constant pool index, and the most bytes of code one method can have. */
+	static final int MAX_INDEX = 0xFFFE, MAX_CODE = 0xFFFF;
+
+	private static final int MAGIC = 0xCAFEBABE, VERSION = 49;
+	private static final int ACC_PUBLIC = 0x0001, ACC_STATIC = 0x0008, ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+	private static final int UTF8 = 1, INTEGER = 3, FLOAT = 4, CLASS = 7, STRING = 8, METHODREF = 10, NAME_AND_TYPE = 12;
+
+	private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+	private final DataOutputStream poolOut = new DataOutputStream(this.pool);
+	private final Map<String, Integer> entries = new HashMap<>();
+	private int count = 1;
+
+
+	int utf8(String value) {
+
+		Integer index = this.entries.get(UTF8 + ":" + value);
+		if(index != null)
+			return index;
+		try {
+			this.poolOut.writeByte(UTF8);
+			this.poolOut.writeUTF(value);
+		} catch(UTFDataFormatException e) {
+			throw new TooLarge();
+		} catch(IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return added(UTF8 + ":" + value);
+	}
+
+
+	int classRef(String internalName) {
+
+		return entry(CLASS, internalName, utf8(internalName), -1);
+	}
+
+
+	int string(String value) {
+
+		return entry(STRING, value, utf8(value), -1);
+	}
+
+
+	int integer(int value) {
+
+		return entry(INTEGER, Integer.toString(value), value >>> 16, value & 0xFFFF);
+	}
+
+
+	/** Keyed by the raw bits, so -0.0 and 0.0 stay two entries. */
+	int floating(float value) {
+
+		int bits = Float.floatToRawIntBits(value);
+		return entry(FLOAT, Integer.toString(bits), bits >>> 16, bits & 0xFFFF);
+	}
+
+
+	int methodRef(String owner, String name, String descriptor) {
+
+		int nameAndType = entry(NAME_AND_TYPE, name + descriptor, utf8(name), utf8(descriptor));
+		return entry(METHODREF, owner + "." + name + descriptor, classRef(owner), nameAndType);
+	}
+
+
+	/** An entry of two u2 fields, or one if second is -1; an INTEGER or FLOAT is the two halves of its u4. */
+	private int entry(int tag, String key, int first, int second) {
+
+		Integer index = this.entries.get(tag + ":" + key);
+		if(index != null)
+			return index;
+		try {
+			this.poolOut.writeByte(tag);
+			this.poolOut.writeShort(first);
+			if(second >= 0)
+				this.poolOut.writeShort(second);
+		} catch(IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return added(tag + ":" + key);
+	}
+
+
+	private int added(String key) {
+
+		if(this.count > MAX_INDEX)
+			throw new TooLarge();
+		this.entries.put(key, this.count);
+		return this.count++;
+	}
+
+
+	/** The whole class file: a final class extending Object, with the one method. */
+	byte[] toByteArray(String name, String method, String descriptor, byte[] code, int length, int maxStack, int maxLocals) {
+
+		int thisClass = classRef(name), superClass = classRef("java/lang/Object");
+		int methodName = utf8(method), methodDescriptor = utf8(descriptor), codeAttribute = utf8("Code");
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(this.pool.size() + length + 64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(MAGIC);
+			out.writeShort(0);
+			out.writeShort(VERSION);
+			out.writeShort(this.count);
+			this.pool.writeTo(out);
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(0);		// interfaces
+			out.writeShort(0);		// fields
+
+			out.writeShort(1);
+			out.writeShort(ACC_PUBLIC | ACC_STATIC);
+			out.writeShort(methodName);
+			out.writeShort(methodDescriptor);
+			out.writeShort(1);
+			out.writeShort(codeAttribute);
+			out.writeInt(12 + length);
+			out.writeShort(maxStack);
+			out.writeShort(maxLocals);
+			out.writeInt(length);
+			out.write(code, 0, length);
+			out.writeShort(0);		// exception table
+			out.writeShort(0);		// code attributes
+
+			out.writeShort(0);		// class attributes
+		} catch(IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+}
\ No newline at end of file
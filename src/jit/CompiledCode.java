@@ -0,0 +1,49 @@
+package jit;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import interpreter.Frame;
+
+/**
+ * A program compiled to a JVM class. The class is defined as a hidden
+ * class, so nothing can link to it by name. Once this object is
+ * unreachable the class can be unloaded with it.
+ */
+public class CompiledCode {
+
+	static final String NAME = "jit/CodeXProgram", METHOD = "run", DESCRIPTOR = "([I[F[Ljava/lang/Object;)V";
+
+	private static final MethodType TYPE = MethodType.methodType(void.class, int[].class, float[].class, Object[].class);
+
+	/** The class file, for inspecting what was generated. */
+	public final byte[] classFile;
+
+	private final MethodHandle run;
+
+
+	CompiledCode(byte[] classFile) {
+
+		this.classFile = classFile;
+		try {
+			MethodHandles.Lookup program = MethodHandles.lookup().defineHiddenClass(classFile, true);
+			this.run = program.findStatic(program.lookupClass(), METHOD, TYPE);
+		} catch(IllegalAccessException | NoSuchMethodException e) {
+			throw new IllegalStateException("Compiled program cannot be loaded", e);
+		}
+	}
+
+
+	/** Runs the code on a frame laid out as the resolver said. The variables are in the frame again when it returns. */
+	public void run(Frame frame) {
+
+		try {
+			this.run.invokeExact(frame.ints, frame.floats, frame.objects);
+		} catch(RuntimeException | Error e) {
+			throw e;
+		} catch(Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+}
\ No newline at end of file
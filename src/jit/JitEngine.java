@@ -0,0 +1,51 @@
+package jit;
+
+import java.util.List;
+
+import ast.Statement;
+import interpreter.Frame;
+import interpreter.Interpreter;
+import semantic.Optimizer;
+import semantic.Resolver;
+import semantic.TypeChecker;
+
+/**
+ * Runs a program as JVM code. The program is compiled to a hidden class,
+ * and HotSpot optimizes it like any other Java method.
+ *
+ * Defining the class costs a few milliseconds, and HotSpot compiles the
+ * code only once it is hot. A short script therefore runs sooner in the
+ * {@link Interpreter}, and a long-running one much faster here.
+ */
+public class JitEngine {
+
+	private CompiledCode compiled;
+
+
+	/**
+	 * Checks, compiles and runs a program, like {@link Interpreter#interpret}.
+	 * A program too large for one JVM method is run by the interpreter.
+	 */
+	public void interpret(List<Statement> program) {
+
+		new TypeChecker().check(program);
+		program = new Optimizer().optimize(program);
+		Resolver resolver = new Resolver();
+		resolver.resolve(program);
+
+		this.compiled = new JvmCompiler().compile(program, resolver);
+		if(this.compiled == null) {
+			new Interpreter().interpret(program);
+			return;
+		}
+		this.compiled.run(new Frame(resolver.getFrameSize(Resolver.INTS), resolver.getFrameSize(Resolver.FLOATS),
+				resolver.getFrameSize(Resolver.OBJECTS)));
+	}
+
+
+	/** The code the last program was compiled to, or null if it was too large and was interpreted. */
+	public CompiledCode getCompiled() {
+
+		return this.compiled;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,694 @@
+package jit;
+
+import java.util.Arrays;
+import java.util.List;
+
+import ast.DataType;
+import ast.Expression;
+import ast.Expression.Additive;
+import ast.Expression.Assignment;
+import ast.Expression.Constant;
+import ast.Expression.Equality;
+import ast.Expression.Grouped;
+import ast.Expression.Identifier;
+import ast.Expression.LogAnd;
+import ast.Expression.LogOr;
+import ast.Expression.Multiplicative;
+import ast.Expression.Relational;
+import ast.Expression.Unary;
+import ast.Statement;
+import ast.Statement.BlockStatement;
+import ast.Statement.Declaration;
+import ast.Statement.DeclarationList;
+import ast.Statement.ExpressionStmt;
+import ast.Statement.IfStatement;
+import ast.Statement.InputStatement;
+import ast.Statement.PrintStatement;
+import ast.Statement.StatementList;
+import ast.Statement.WhileStatement;
+import lexer.TokenType;
+import semantic.Resolver;
+
+import static jit.JvmOpcode.*;
+
+/**
+ * Compiles a checked, optimized and resolved program to one static JVM
+ * method that takes the three arrays of a frame.
+ *
+ * Every frame slot gets a JVM local of its own. INT, BOOL and CHAR slots
+ * become int locals, FP slots float locals and STR slots reference locals.
+ * The method copies the frame into its locals on entry and back on
+ * return. In between it works on unboxed locals only, which HotSpot keeps
+ * in registers.
+ *
+ * Conditions are compiled to branches, so {@code i < n} is a single
+ * IF_ICMPGE. WHILE is compiled with its test at the bottom, as javac
+ * compiles it.
+ *
+ * HotSpot does not compile methods longer than 8000 bytes of code. A
+ * program that large still runs, but in the JVM's own interpreter.
+ */
+public class JvmCompiler implements Expression.Visitor<Void>, Statement.Visitor<Void> {
+
+	/** A branch target, and the branches to it emitted before it was known. */
+	private static class Label {
+
+		int target = -1;
+		int[] sites = new int[4];
+		int count;
+	}
+
+	/** The frame's int[], float[] and Object[] are the method's locals 0 to 2. */
+	private static final int ARGUMENTS = 3;
+
+	/** The instructions for a local of the INTS, FLOATS and OBJECTS banks. */
+	private static final int[] LOAD = { ILOAD, FLOAD, ALOAD }, STORE = { ISTORE, FSTORE, ASTORE };
+
+	private ClassWriter classWriter;
+	private byte[] code;
+	private int count, depth, maxStack;
+
+	/** Per bank: the local of slot 0, and how many slots the frame has. */
+	private final int[] base = new int[3], size = new int[3];
+
+
+	/**
+	 * Compiles the statements, which may be a whole program or a part of
+	 * one, against the resolver's frame layout. Returns null if the code
+	 * does not fit in one JVM method or its constants in one class file.
+	 */
+	public CompiledCode compile(List<Statement> program, Resolver resolver) {
+
+		this.classWriter = new ClassWriter();
+		this.code = new byte[256];
+		this.count = this.depth = this.maxStack = 0;
+		int locals = ARGUMENTS;
+		for(int bank = 0; bank < 3; bank++) {
+			this.base[bank] = locals;
+			this.size[bank] = resolver.getFrameSize(bank);
+			locals += this.size[bank];
+		}
+		if(locals > 0xFFFF)
+			return null;
+
+		byte[] classFile;
+		try {
+			copyFrame(true);
+			for(Statement statement : program)
+				compile(statement);
+			copyFrame(false);
+			emit(RETURN);
+			classFile = this.classWriter.toByteArray(CompiledCode.NAME, CompiledCode.METHOD, CompiledCode.DESCRIPTOR,
+					this.code, this.count, this.maxStack, locals);
+		} catch(ClassWriter.TooLarge e) {
+			return null;
+		}
+		return new CompiledCode(classFile);
+	}
+
+
+	/** Loads every frame slot into its local, or stores every local back. */
+	private void copyFrame(boolean in) {
+
+		int[] arrayLoad = { IALOAD, FALOAD, AALOAD }, arrayStore = { IASTORE, FASTORE, AASTORE };
+		for(int bank = 0; bank < 3; bank++) {
+			for(int slot = 0; slot < this.size[bank]; slot++) {
+				local(ALOAD, bank);
+				pushInt(slot);
+				if(in) {
+					emit(arrayLoad[bank]);
+					store(bank, slot);
+				} else {
+					load(bank, slot);
+					emit(arrayStore[bank]);
+				}
+			}
+		}
+	}
+
+
+	private void compile(Statement statement) {
+
+		statement.accept(this);
+	}
+
+
+	/** Leaves the expression's value on the operand stack. */
+	private void compile(Expression expression) {
+
+		expression.accept(this);
+	}
+
+
+	private void emit(int op) {
+
+		ensure(1);
+		this.code[this.count++] = (byte) op;
+		adjust(EFFECT[op]);
+	}
+
+
+	private void adjust(int effect) {
+
+		this.depth += effect;
+		if(this.depth > this.maxStack)
+			this.maxStack = this.depth;
+	}
+
+
+	private void u1(int value) {
+
+		ensure(1);
+		this.code[this.count++] = (byte) value;
+	}
+
+
+	private void u2(int value) {
+
+		ensure(2);
+		this.code[this.count++] = (byte) (value >> 8);
+		this.code[this.count++] = (byte) value;
+	}
+
+
+	/** Gives up as soon as the method outgrows the class file's limit, rather than emitting the rest first. */
+	private void ensure(int bytes) {
+
+		if(this.count + bytes > ClassWriter.MAX_CODE)
+			throw new ClassWriter.TooLarge();
+		if(this.count + bytes > this.code.length)
+			this.code = Arrays.copyOf(this.code, this.code.length * 2);
+	}
+
+
+	/** A load or store of a local, through WIDE if its index needs two bytes. */
+	private void local(int op, int index) {
+
+		if(index > 0xFF) {
+			u1(WIDE);
+			emit(op);
+			u2(index);
+		} else {
+			emit(op);
+			u1(index);
+		}
+	}
+
+
+	private void load(int bank, int slot) {
+
+		local(LOAD[bank], this.base[bank] + slot);
+	}
+
+
+	private void store(int bank, int slot) {
+
+		local(STORE[bank], this.base[bank] + slot);
+	}
+
+
+	private void load(Identifier name) {
+
+		load(Resolver.storage(name.type), name.slot);
+	}
+
+
+	private void store(Identifier name) {
+
+		store(Resolver.storage(name.type), name.slot);
+	}
+
+
+	private void pushInt(int value) {
+
+		if(value >= -1 && value <= 5)
+			emit(ICONST_0 + value);
+		else if(value == (byte) value) {
+			emit(BIPUSH);
+			u1(value);
+		} else if(value == (short) value) {
+			emit(SIPUSH);
+			u2(value);
+		} else
+			ldc(this.classWriter.integer(value));
+	}
+
+
+	private void pushFloat(float value) {
+
+		if(Float.floatToRawIntBits(value) == 0)
+			emit(FCONST_0);
+		else
+			ldc(this.classWriter.floating(value));
+	}
+
+
+	private void ldc(int index) {
+
+		if(index > 0xFF) {
+			emit(LDC_W);
+			u2(index);
+		} else {
+			emit(LDC);
+			u1(index);
+		}
+	}
+
+
+	private void invoke(String owner, String name, String descriptor, int effect) {
+
+		emit(INVOKESTATIC);
+		u2(this.classWriter.methodRef(owner, name, descriptor));
+		adjust(effect);
+	}
+
+
+	private void jump(int op, Label label) {
+
+		int site = this.count;
+		emit(op);
+		u2(0);
+		if(label.target >= 0) {
+			patch(site, label.target);
+			return;
+		}
+		if(label.count == label.sites.length)
+			label.sites = Arrays.copyOf(label.sites, label.count * 2);
+		label.sites[label.count++] = site;
+	}
+
+
+	private void bind(Label label) {
+
+		label.target = this.count;
+		for(int i = 0; i < label.count; i++)
+			patch(label.sites[i], label.target);
+	}
+
+
+	/** Branch offsets count from the branch instruction itself. */
+	private void patch(int site, int target) {
+
+		int offset = target - site;
+		if(offset != (short) offset)
+			throw new ClassWriter.TooLarge();
+		this.code[site + 1] = (byte) (offset >> 8);
+		this.code[site + 2] = (byte) offset;
+	}
+
+
+	/** The IF_ICMP instruction that branches when the relation holds. */
+	private static int compare(TokenType operator) {
+
+		switch(operator) {
+			case GREATER:	return IF_ICMPGT;
+			case GREATEREQ:	return IF_ICMPGE;
+			case LESS:		return IF_ICMPLT;
+			default:		return IF_ICMPLE;
+		}
+	}
+
+
+	/** Jumps to the label if the condition's value is when, and falls through if not. */
+	private void branch(Expression condition, boolean when, Label label) {
+
+		if(condition instanceof Grouped) {
+			branch(((Grouped) condition).expression, when, label);
+		} else if(condition instanceof Unary) {
+			branch(((Unary) condition).rhs, !when, label);
+		} else if(condition instanceof LogAnd) {
+			shortCircuit(((LogAnd) condition).lhs, ((LogAnd) condition).rhs, false, when, label);
+		} else if(condition instanceof LogOr) {
+			shortCircuit(((LogOr) condition).lhs, ((LogOr) condition).rhs, true, when, label);
+		} else if(condition instanceof Relational) {
+			Relational relational = (Relational) condition;
+			int compare = compare(relational.operator.type);
+			compile(relational.lhs);
+			compile(relational.rhs);
+			// NaN makes FCMPG give 1 and FCMPL -1, so a relation with NaN is false either way
+			if(relational.lhs.type == DataType.FP) {
+				emit(compare == IF_ICMPLT || compare == IF_ICMPLE ? FCMPG : FCMPL);
+				compare = againstZero(compare);
+			}
+			jump(when ? compare : negate(compare), label);
+		} else if(condition instanceof Equality) {
+			equality((Equality) condition, when, label);
+		} else if(condition instanceof Constant) {
+			if((Boolean) ((Constant) condition).value == when)
+				jump(GOTO, label);
+		} else {
+			compile(condition);
+			jump(when ? IFNE : IFEQ, label);
+		}
+	}
+
+
+	/** The left operand decides the outcome when it is deciding, false for & and true for |. */
+	private void shortCircuit(Expression lhs, Expression rhs, boolean deciding, boolean when, Label label) {
+
+		if(when == deciding) {
+			branch(lhs, deciding, label);
+			branch(rhs, when, label);
+			return;
+		}
+		Label decided = new Label();
+		branch(lhs, deciding, decided);
+		branch(rhs, when, label);
+		bind(decided);
+	}
+
+
+	/** FPs compare as Float.equals does and STRs as Objects.equals, as in the interpreter. */
+	private void equality(Equality equality, boolean when, Label label) {
+
+		boolean equal = equality.operator.type == TokenType.EQUALTO;
+		int compare = equal ? IF_ICMPEQ : IF_ICMPNE;
+		if(equality.lhs.type == DataType.FP) {
+			compile(equality.lhs);
+			invoke("java/lang/Float", "floatToIntBits", "(F)I", 0);
+			compile(equality.rhs);
+			invoke("java/lang/Float", "floatToIntBits", "(F)I", 0);
+		} else if(equality.lhs.type == DataType.STR) {
+			compile(equality.lhs);
+			compile(equality.rhs);
+			invoke("java/util/Objects", "equals", "(Ljava/lang/Object;Ljava/lang/Object;)Z", -1);
+			compare = equal ? IFNE : IFEQ;
+		} else {
+			compile(equality.lhs);
+			compile(equality.rhs);
+		}
+		jump(when ? compare : negate(compare), label);
+	}
+
+
+	/** A condition's value as an int, 1 or 0. */
+	private void condition(Expression condition) {
+
+		Label no = new Label(), end = new Label();
+		branch(condition, false, no);
+		emit(ICONST_1);
+		jump(GOTO, end);
+		adjust(-1);		// the ICONST_0 is reached without the ICONST_1
+		bind(no);
+		emit(ICONST_0);
+		bind(end);
+	}
+
+
+	@Override
+	public Void visitConstant(Constant expression) {
+
+		Object value = expression.value;
+		if(value instanceof Integer)
+			pushInt((Integer) value);
+		else if(value instanceof Float)
+			pushFloat((Float) value);
+		else if(value instanceof Boolean)
+			emit((Boolean) value ? ICONST_1 : ICONST_0);
+		else if(value instanceof Character)
+			pushInt((Character) value);
+		else if(value instanceof String)
+			ldc(this.classWriter.string((String) value));
+		else
+			throw new IllegalArgumentException("Cannot compile constant " + value);
+		return null;
+	}
+
+
+	@Override
+	public Void visitIdentifier(Identifier expression) {
+
+		load(expression);
+		return null;
+	}
+
+
+	@Override
+	public Void visitGrouped(Grouped expression) {
+
+		compile(expression.expression);
+		return null;
+	}
+
+
+	@Override
+	public Void visitUnary(Unary expression) {
+
+		compile(expression.rhs);
+		emit(ICONST_1);
+		emit(IXOR);
+		return null;
+	}
+
+
+	/** Both operands, then the int or the FP variant of the operation, by the operands' type. */
+	private void binary(Expression lhs, Expression rhs, int intOp, int floatOp) {
+
+		compile(lhs);
+		compile(rhs);
+		emit(lhs.type == DataType.FP ? floatOp : intOp);
+	}
+
+
+	@Override
+	public Void visitMultiplicative(Multiplicative expression) {
+
+		switch(expression.operator.type) {
+			case MULTI:	binary(expression.lhs, expression.rhs, IMUL, FMUL); break;
+			case DIV:	binary(expression.lhs, expression.rhs, IDIV, FDIV); break;
+			default:	binary(expression.lhs, expression.rhs, IREM, FREM); break;
+		}
+		return null;
+	}
+
+
+	@Override
+	public Void visitAdditive(Additive expression) {
+
+		if(expression.operator.type == TokenType.PLUS)
+			binary(expression.lhs, expression.rhs, IADD, FADD);
+		else
+			binary(expression.lhs, expression.rhs, ISUB, FSUB);
+		return null;
+	}
+
+
+	@Override
+	public Void visitRelational(Relational expression) {
+
+		condition(expression);
+		return null;
+	}
+
+
+	@Override
+	public Void visitEquality(Equality expression) {
+
+		condition(expression);
+		return null;
+	}
+
+
+	@Override
+	public Void visitLogAnd(LogAnd expression) {
+
+		condition(expression);
+		return null;
+	}
+
+
+	@Override
+	public Void visitLogOr(LogOr expression) {
+
+		condition(expression);
+		return null;
+	}
+
+
+	/** An assignment's value is its result, so a copy stays on the stack. */
+	@Override
+	public Void visitAssignment(Assignment expression) {
+
+		compile(expression.rhs);
+		emit(DUP);
+		store((Identifier) expression.lhs);
+		return null;
+	}
+
+
+	/** A declaration without a value resets its slot, which an earlier block may have used. */
+	@Override
+	public Void visitDeclaration(Declaration statement) {
+
+		Identifier name;
+		if(statement.initialization instanceof Assignment) {
+			Assignment assignment = (Assignment) statement.initialization;
+			name = (Identifier) assignment.lhs;
+			compile(assignment.rhs);
+		} else {
+			name = (Identifier) statement.initialization;
+			if(name.type == DataType.FP)
+				emit(FCONST_0);
+			else if(name.type == DataType.STR)
+				ldc(this.classWriter.string(""));
+			else
+				emit(ICONST_0);
+		}
+		store(name);
+		return null;
+	}
+
+
+	@Override
+	public Void visitDeclarationList(DeclarationList statement) {
+
+		for(Declaration declaration : statement.getList())
+			compile(declaration);
+		return null;
+	}
+
+
+	@Override
+	public Void visitPrintStmt(PrintStatement statement) {
+
+		compile(statement.expression);
+		DataType type = statement.expression.type;
+		invoke(Builtins.OWNER, "print", "(" + descriptor(type) + ")V", -1);
+		return null;
+	}
+
+
+	@Override
+	public Void visitInputStmt(InputStatement statement) {
+
+		Identifier name = (Identifier) statement.expression;
+		String method;
+		if(name.type == DataType.INT)
+			method = "readInt";
+		else if(name.type == DataType.FP)
+			method = "readFloat";
+		else if(name.type == DataType.BOOL)
+			method = "readBool";
+		else if(name.type == DataType.CHAR)
+			method = "readChar";
+		else
+			method = "readString";
+		pushInt(name.token.line);
+		invoke(Builtins.OWNER, method, "(I)" + descriptor(name.type), 0);
+		store(name);
+		return null;
+	}
+
+
+	private static String descriptor(DataType type) {
+
+		if(type == DataType.INT)
+			return "I";
+		if(type == DataType.FP)
+			return "F";
+		if(type == DataType.BOOL)
+			return "Z";
+		if(type == DataType.CHAR)
+			return "C";
+		if(type == DataType.STR)
+			return "Ljava/lang/Object;";
+		throw new IllegalArgumentException("Program is not type checked");
+	}
+
+
+	@Override
+	public Void visitIfStmt(IfStatement statement) {
+
+		Label otherwise = new Label();
+		branch(statement.condition, false, otherwise);
+		compile(statement.thenStatement);
+		if(statement.elseStatement == null) {
+			bind(otherwise);
+			return null;
+		}
+		Label end = new Label();
+		jump(GOTO, end);
+		bind(otherwise);
+		compile(statement.elseStatement);
+		bind(end);
+		return null;
+	}
+
+
+	@Override
+	public Void visitWhileStmt(WhileStatement statement) {
+
+		Label body = new Label(), test = new Label();
+		jump(GOTO, test);
+		bind(body);
+		compile(statement.todoStatement);
+		bind(test);
+		branch(statement.condition, true, body);
+		return null;
+	}
+
+
+	/** An assignment on its own stores its value without keeping a copy; i = i + k is an IINC. */
+	@Override
+	public Void visitExpressionStmt(ExpressionStmt statement) {
+
+		if(!(statement.expression instanceof Assignment)) {
+			compile(statement.expression);
+			emit(POP);
+			return null;
+		}
+		Assignment assignment = (Assignment) statement.expression;
+		Identifier name = (Identifier) assignment.lhs;
+		int step = step(name, assignment.rhs);
+		if(step == 0) {
+			compile(assignment.rhs);
+			store(name);
+			return null;
+		}
+		int index = this.base[Resolver.INTS] + name.slot;
+		if(index > 0xFF || step != (byte) step) {
+			u1(WIDE);
+			emit(IINC);
+			u2(index);
+			u2(step);
+		} else {
+			emit(IINC);
+			u1(index);
+			u1(step);
+		}
+		return null;
+	}
+
+
+	/** k for an INT assignment name = name + k or name = name - k with k a non-zero short, and 0 for any other. */
+	private static int step(Identifier name, Expression value) {
+
+		if(name.type != DataType.INT || !(value instanceof Additive))
+			return 0;
+		Additive additive = (Additive) value;
+		if(!(additive.lhs instanceof Identifier) || ((Identifier) additive.lhs).slot != name.slot
+				|| !(additive.rhs instanceof Constant))
+			return 0;
+		int step = (Integer) ((Constant) additive.rhs).value;
+		if(additive.operator.type == TokenType.MINUS)
+			step = -step;
+		return step == (short) step ? step : 0;
+	}
+
+
+	@Override
+	public Void visitBlockStmt(BlockStatement statement) {
+
+		compile(statement.statementList);
+		return null;
+	}
+
+
+	@Override
+	public Void visitStatementList(StatementList statement) {
+
+		for(Statement element : statement.getList())
+			compile(element);
+		return null;
+	}
+}
\ No newline at end of file
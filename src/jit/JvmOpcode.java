@@ -0,0 +1,57 @@
+package jit;
+
+/**
+ * The JVM instructions the JIT emits, with their opcodes from the Java
+ * Virtual Machine Specification, chapter 6.
+ */
+final class JvmOpcode {
+
+	static final int ICONST_M1 = 2, ICONST_0 = 3, ICONST_1 = 4, ICONST_5 = 8, FCONST_0 = 11;
+	static final int BIPUSH = 16, SIPUSH = 17, LDC = 18, LDC_W = 19;
+	static final int ILOAD = 21, FLOAD = 23, ALOAD = 25;
+	static final int IALOAD = 46, FALOAD = 48, AALOAD = 50;
+	static final int ISTORE = 54, FSTORE = 56, ASTORE = 58;
+	static final int IASTORE = 79, FASTORE = 81, AASTORE = 83;
+	static final int POP = 87, DUP = 89;
+	static final int IADD = 96, FADD = 98, ISUB = 100, FSUB = 102, IMUL = 104, FMUL = 106;
+	static final int IDIV = 108, FDIV = 110, IREM = 112, FREM = 114;
+	static final int IXOR = 130, IINC = 132;
+	static final int FCMPL = 149, FCMPG = 150;
+	static final int IFEQ = 153, IFNE = 154, IFLT = 155, IFGE = 156, IFGT = 157, IFLE = 158;
+	static final int IF_ICMPEQ = 159, IF_ICMPNE = 160, IF_ICMPLT = 161, IF_ICMPGE = 162, IF_ICMPGT = 163, IF_ICMPLE = 164;
+	static final int GOTO = 167, RETURN = 177, INVOKESTATIC = 184, WIDE = 196;
+
+	/** How many values each instruction leaves on the operand stack, less the ones it takes; not for INVOKESTATIC. */
+	static final int[] EFFECT = new int[256];
+
+	static {
+		for(int op = ICONST_M1; op <= ICONST_5; op++)
+			EFFECT[op] = 1;
+		for(int op : new int[] { FCONST_0, BIPUSH, SIPUSH, LDC, LDC_W, ILOAD, FLOAD, ALOAD, DUP })
+			EFFECT[op] = 1;
+		for(int op : new int[] { IALOAD, FALOAD, AALOAD, ISTORE, FSTORE, ASTORE, POP, IFEQ, IFNE, IFLT, IFGE, IFGT, IFLE,
+				IADD, FADD, ISUB, FSUB, IMUL, FMUL, IDIV, FDIV, IREM, FREM, IXOR, FCMPL, FCMPG })
+			EFFECT[op] = -1;
+		for(int op = IF_ICMPEQ; op <= IF_ICMPLE; op++)
+			EFFECT[op] = -2;
+		for(int op : new int[] { IASTORE, FASTORE, AASTORE })
+			EFFECT[op] = -3;
+	}
+
+	private JvmOpcode() {
+	}
+
+
+	/** The branch taken exactly when the given one is not: IFEQ and IFNE, IF_ICMPLT and IF_ICMPGE, and so on. */
+	static int negate(int branch) {
+
+		return ((branch - IFEQ) ^ 1) + IFEQ;
+	}
+
+
+	/** The branch that compares one int against zero the way the given one compares two ints. */
+	static int againstZero(int compare) {
+
+		return compare - (IF_ICMPEQ - IFEQ);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,178 @@
+package lexer;
+
+import parser.CodeXRuntimeException;
+
+/**
+ * Keeps a token buffer in step with an edited document. An edit is relexed
+ * from the end of the last token before it, and lexing stops as soon as a new
+ * token starts where an old token after the edit started, shifted by the edit
+ * size. Past that point the text is identical, so the old tokens are kept and
+ * only their offsets and lines are moved.
+ */
+public class IncrementalLexer {
+
+	private final StringBuilder source;
+	private final SymbolTable symbols;
+	private TokenBuffer tokenBuffer;
+	private int damageStart, damageOldEnd, damageNewEnd;
+
+	public IncrementalLexer() {
+
+		this("");
+	}
+
+
+	public IncrementalLexer(CharSequence text) {
+
+		this.source = new StringBuilder(text);
+		this.symbols = new SymbolTable();
+		relexAll();
+	}
+
+
+	/**
+	 * Applies a document edit and returns the updated buffer, or null while the
+	 * source has a lexical error. Errors are not reported here; lexing the text
+	 * again with a plain Lexer reports them.
+	 */
+	public TokenBuffer edit(int offset, int removedLength, CharSequence insertedText) {
+
+		int removedLines = countLines(this.source, offset, offset + removedLength);
+		this.source.replace(offset, offset + removedLength, insertedText.toString());
+
+		if(this.tokenBuffer == null)
+			return relexAll();
+
+		try {
+			relex(offset, removedLength, insertedText.length(),
+					countLines(insertedText, 0, insertedText.length()) - removedLines);
+		} catch(CodeXRuntimeException cre) {
+			this.tokenBuffer = null;
+		}
+		return this.tokenBuffer;
+	}
+
+
+	private void relex(int offset, int removedLength, int insertedLength, int lineDelta) {
+
+		TokenBuffer old = this.tokenBuffer;
+		int delta = insertedLength - removedLength;
+		int editEnd = offset + removedLength;
+
+		int restart = lastBefore(old, offset);
+
+		int pos = restart < 0 ? 0 : old.end(restart);
+		int line = restart < 0 ? 1 : old.line(restart);
+		Lexer lexer = new Lexer(SourceReader.of(this.source), this.symbols, pos, line);
+		lexer.reportErrors = false;
+
+		TokenBuffer relexed = new TokenBuffer(this.source, this.symbols);
+		int next = restart + 1;
+
+		while(true) {
+			TokenType type = lexer.scanInto(relexed);
+			int last = relexed.size() - 1;
+			int start = relexed.start(last) - delta;
+
+			while(next < old.size() && (old.start(next) < start || old.start(next) < editEnd))
+				next++;
+			// EOF takes its line from the text before it, so it is never shared
+			if(type != TokenType.EOF && next < old.size() && old.start(next) == start && start >= editEnd) {
+				relexed.truncate(last);
+				break;
+			}
+			if(type == TokenType.EOF) {
+				next = old.size();
+				break;
+			}
+		}
+
+		this.damageStart = restart + 1;
+		this.damageOldEnd = next;
+		this.damageNewEnd = restart + 1 + relexed.size();
+		old.splice(restart + 1, next, relexed, delta, lineDelta);
+	}
+
+
+	/** Index of the last token that ends before offset, or -1. */
+	private static int lastBefore(TokenBuffer tokens, int offset) {
+
+		int low = 0, high = tokens.size() - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			if(tokens.end(mid) < offset)
+				low = mid + 1;
+			else
+				high = mid - 1;
+		}
+		return high;
+	}
+
+
+	private TokenBuffer relexAll() {
+
+		Lexer lexer = new Lexer(SourceReader.of(this.source), this.symbols);
+		lexer.reportErrors = false;
+
+		try {
+			this.tokenBuffer = lexer.getTokenBuffer();
+		} catch(CodeXRuntimeException cre) {
+			this.tokenBuffer = null;
+			return null;
+		}
+		this.damageStart = 0;
+		this.damageOldEnd = 0;
+		this.damageNewEnd = this.tokenBuffer.size();
+		return this.tokenBuffer;
+	}
+
+
+	private static int countLines(CharSequence text, int start, int end) {
+
+		int lines = 0;
+		for(int i = start; i < end; i++) {
+			if(text.charAt(i) == '\n')
+				lines++;
+		}
+		return lines;
+	}
+
+
+	public TokenBuffer getTokenBuffer() {
+
+		return this.tokenBuffer;
+	}
+
+
+	public CharSequence getSource() {
+
+		return this.source;
+	}
+
+
+	public SymbolTable getSymbols() {
+
+		return this.symbols;
+	}
+
+
+	/** First token index touched by the last edit. */
+	public int getDamageStart() {
+
+		return this.damageStart;
+	}
+
+
+	/** End of the replaced token range, in indices before the last edit. */
+	public int getDamageOldEnd() {
+
+		return this.damageOldEnd;
+	}
+
+
+	/** End of the relexed token range, in indices after the last edit. */
+	public int getDamageNewEnd() {
+
+		return this.damageNewEnd;
+	}
+}
\ No newline at end of file
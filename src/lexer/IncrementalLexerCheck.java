@@ -0,0 +1,95 @@
+package lexer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Checks the IncrementalLexer against a full relex after every edit.
+ *
+ * <pre>
+ * java lexer.IncrementalLexerCheck [-edits N] [-seed S] [script.txt]
+ * </pre>
+ *
+ * The document is first typed in one character at a time, then edited at
+ * random places with N small random edits (2000 by default), so it both
+ * grows past its first length and changes in the middle. After each edit
+ * every token's type, offsets, line, column, lexeme and literal value must
+ * equal those of a plain Lexer run on the whole text, and a source with a
+ * lexical error must give no buffer in both. Without a script a built-in
+ * program is used. Exits with status 1 on the first mismatch.
+ */
+public class IncrementalLexerCheck {
+
+	private static final String PROGRAM = "INT x = 12;\nFP y = 2.5;\n! a comment\nSTR s = \"text\";\nCHAR c = 'q';\n"
+			+ "WHILE (x < 100) {\n\tx = x + 7 * 3;\n\tIF (x >= 50 & ~(y == 0.5)) { XOUT(x); } ELSE { y = y + 1.25; }\n}\n"
+			+ "? block\ncomment ?\nXOUT(s);\n";
+
+	private static final String[] FRAGMENTS = { "", "x", " ", "\n", "?", "!", "\"", "'", "1", "42", ".", "5.", "3.75",
+			"=", ">", "~", "IF", "abc_1", "\"q\"", "'c'", "\n!c\n", "?\n?", "INT", " 12.5 ", "1000000" };
+
+
+	public static void main(String[] args) throws IOException {
+
+		int edits = 2000;
+		long seed = 1;
+		String text = PROGRAM;
+		for(int i = 0; i < args.length; i++) {
+			if(args[i].equals("-edits"))
+				edits = Integer.parseInt(args[++i]);
+			else if(args[i].equals("-seed"))
+				seed = Long.parseLong(args[++i]);
+			else
+				text = new String(Files.readAllBytes(Paths.get(args[i])), StandardCharsets.UTF_8);
+		}
+
+		IncrementalLexer lexer = new IncrementalLexer();
+		StringBuilder document = new StringBuilder();
+		for(int i = 0; i < text.length(); i++)
+			check(lexer, document, i, 0, text.substring(i, i + 1), "typing " + i);
+
+		Random random = new Random(seed);
+		for(int k = 0; k < edits; k++) {
+			int offset = random.nextInt(document.length() + 1);
+			int removed = Math.min(random.nextInt(4), document.length() - offset);
+			check(lexer, document, offset, removed, FRAGMENTS[random.nextInt(FRAGMENTS.length)], "edit " + k);
+		}
+		System.out.println((text.length() + edits) + " edits match a full relex");
+	}
+
+
+	private static void check(IncrementalLexer lexer, StringBuilder document, int offset, int removed, String inserted,
+			String what) {
+
+		document.replace(offset, offset + removed, inserted);
+		String incremental = describe(lexer.edit(offset, removed, inserted));
+		String full;
+		try {
+			Lexer plain = new Lexer(document.toString());
+			plain.reportErrors = false;
+			full = describe(plain.getTokenBuffer());
+		} catch(RuntimeException e) {
+			full = describe(null);
+		}
+		if(!incremental.equals(full)) {
+			System.out.println("Mismatch after " + what + ": offset " + offset + ", removed " + removed + ", inserted '"
+					+ inserted + "'");
+			System.exit(1);
+		}
+	}
+
+
+	private static String describe(TokenBuffer tokens) {
+
+		if(tokens == null)
+			return "lexical error";
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < tokens.size(); i++)
+			text.append(tokens.type(i)).append(' ').append(tokens.start(i)).append(' ').append(tokens.length(i)).append(' ')
+					.append(tokens.line(i)).append(':').append(tokens.column(i)).append(' ').append(tokens.lexeme(i))
+					.append(' ').append(tokens.value(i)).append('\n');
+		return text.toString();
+	}
+}
\ No newline at end of file
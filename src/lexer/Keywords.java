@@ -0,0 +1,45 @@
+package lexer;
+
+/**
+ * Recognizes the reserved words and boolean literals straight from the source,
+ * dispatching on length and first character so no substring is built.
+ */
+public final class Keywords {
+
+	private Keywords() {}
+
+
+	public static TokenType match(SourceReader source, int start, int length) {
+
+		int first = source.read(start);
+		if(length < 2 || length > 5 || first >= 128)
+			return null;
+
+		switch(length * 128 + first) {
+			case 2 * 128 + 'I':	return matches(source, start, "IF") ? TokenType.IF : null;
+			case 2 * 128 + 'F':	return matches(source, start, "FP") ? TokenType.FP : null;
+			case 3 * 128 + 'X':	return matches(source, start, "XIN") ? TokenType.XIN : null;
+			case 3 * 128 + 'I':	return matches(source, start, "INT") ? TokenType.INT : null;
+			case 3 * 128 + 'S':	return matches(source, start, "STR") ? TokenType.STR : null;
+			case 4 * 128 + 'X':	return matches(source, start, "XOUT") ? TokenType.XOUT : null;
+			case 4 * 128 + 'E':	return matches(source, start, "ELSE") ? TokenType.ELSE : null;
+			case 4 * 128 + 'C':	return matches(source, start, "CHAR") ? TokenType.CHAR : null;
+			case 4 * 128 + 'B':	return matches(source, start, "BOOL") ? TokenType.BOOL : null;
+			case 4 * 128 + 't':	return matches(source, start, "true") ? TokenType.CONST_BOOL : null;
+			case 5 * 128 + 'W':	return matches(source, start, "WHILE") ? TokenType.WHILE : null;
+			case 5 * 128 + 'f':	return matches(source, start, "false") ? TokenType.CONST_BOOL : null;
+			default:
+				return null;
+		}
+	}
+
+
+	private static boolean matches(SourceReader source, int start, String keyword) {
+
+		for(int i = 1; i < keyword.length(); i++) {
+			if(source.read(start + i) != keyword.charAt(i))
+				return false;
+		}
+		return true;
+	}
+}
\ No newline at end of file
@@ -1,244 +1,624 @@
-package lexer;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-import parser.CodeXRuntimeException;
-
-public class Lexer {
-	
-	private int pos, line;
-	private char ch;
-	private String input;
-	
-	public Lexer(String sourceCode) {
-
-		this.pos = 0;
-		this.line = 1;
-		this.input = sourceCode;
-		this.ch = this.input.charAt(0);
-	}
-	
-	@SuppressWarnings("serial")
-	private static class TokenizationError extends CodeXRuntimeException {}
-	
-	private TokenizationError error(int line, String value, String message) {
-		CodeXRuntimeException.error(line, value, message);
-		return new TokenizationError();
-	}
-	
-	
-	private Map<String, TokenType> getKeyword(){
-		
-		Map<String, TokenType> keyword = new HashMap<>();
-		
-		keyword.put("XOUT", TokenType.XOUT);
-		keyword.put("XIN", TokenType.XIN);
-		keyword.put("IF", TokenType.IF);
-		keyword.put("ELSE", TokenType.ELSE);
-		keyword.put("WHILE", TokenType.WHILE);
-		keyword.put("INT", TokenType.INT);
-		keyword.put("FP", TokenType.FP);
-		keyword.put("CHAR", TokenType.CHAR);
-		keyword.put("STR", TokenType.STR);
-		keyword.put("BOOL", TokenType.BOOL);
-		
-		return keyword;
-	}
-	
-	
-	private char getNextChar() {
-		
-		this.pos++;
-		
-		if(this.pos >= this.input.length()) {
-			this.ch = '\u0000';
-			return this.ch;
-		}
-		
-		if(this.ch == '\n') {
-			this.line++;
-		}
-		
-		this.ch = this.input.charAt(this.pos); 
-		return this.ch;
-	}
-	
-	
-	private boolean isAcceptableChar(char ch) {
-		
-		if(Character.isLetterOrDigit(this.ch) || 
-			this.ch == '.' ||  this.ch == '_' || 
-			hasInvalidChar(String.valueOf(this.ch)))
-				return true;
-		return false;
-	}
-	
-	
-	private boolean hasInvalidChar(String string) {
-		
-		String invalidChar = "`$@[]\\:#.";
-		for(int i=0; i < string.length(); i++) {
-			  char currentChar = string.charAt(i);
-			  if(invalidChar.contains(Character.toString(currentChar))) {
-				  return true;
-			  }
-		 }
-		return false;
-	}
-	
-	
-	private boolean hasIdentDuplicate(String value, List<String> identList) {
-		
-		for(String ident : identList) {
-			if(value.equalsIgnoreCase(ident)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
-	
-	private void lineComment() {
-		
-		while(this.ch != '\n' && this.ch != '\u0000') {
-			getNextChar();
-		}
-	}
-	
-	
-	private void blockComment() {
-		
-		int line = this.line;
-		getNextChar();
-			
-		while(this.ch != '?') {	
-			getNextChar();
-			if(this.ch == '\u0000')
-				throw error(line, "","Unexpected end of comment at " + line);
-		}
-	}		
-	
-
-	private Token charLit() {
-		
-		getNextChar();
-		char value = 0;
-		if(this.ch >= 32 && this.ch <= 126) {
-			value = this.ch;
-			if(getNextChar() == '\'') 
-				return new Token(TokenType.CONST_CHAR, String.valueOf(value), value, this.line);
-		}
-		throw error(this.line, " at '" + value + "'", " Invalid character constant");
-	}
-
-	
-	private Token stringLit() {
-		
-		String value = "";
-		while(getNextChar() != '"') {
-			if(this.ch == '\u0000' || this.ch == '\n')
-				throw error(this.line, " at '" + value + "'", " Unclosed string literal");
-			value += this.ch;
-		}
-		return new Token(TokenType.CONST_STR, value, value, this.line);
-	} 
-	
-
-	private Token ident(List<String> identList) {
-
-		String value = "";
-		long decimalPoint = 0;
-		boolean isNum = true;
-		
-		while(isAcceptableChar(this.ch)) {
-			value += this.ch;
-				if(!Character.isDigit(this.ch) && this.ch != '.')
-					isNum = false;
-			getNextChar();
-		}
-
-		decimalPoint = value.chars().filter(ch -> ch == '.').count();
-		
-		if(isNum) {
-			if(decimalPoint == 0)
-				return new Token(TokenType.CONST_INT, value, Integer.parseInt(value), this.line);
-			else if(decimalPoint == 1) 
-				return new Token(TokenType.CONST_FLOAT, value, Float.parseFloat(value),this.line);
-			else 
-				throw error(line, " at '" + value + "'", " Invalid numerical constant");
-		}
-		
-		else if(getKeyword().containsKey(value)) 
-			return new Token(getKeyword().get(value), value, null, this.line);
-		
-		else if(value.equals("true") || value.equals("false"))
-			return new Token(TokenType.CONST_BOOL, value, Boolean.parseBoolean(value), this.line);
-		
-		else if(Character.isLetter(value.charAt(0)) && value.length() <= 20 && !hasInvalidChar(value)) {
-			identList.add(value);
-			return new Token(TokenType.IDENT, value, value, this.line);
-		}
-			
-		else 
-			throw error(line, " at '" + value + "'", " Invalid token");
-		
-	}
-	
-	
-	private Token succedingChar(char expectedChar, Token ifTrue, Token ifFalse) {
-		
-		if(getNextChar() == expectedChar) {
-			getNextChar();
-			return ifTrue;
-		}
-		return ifFalse;
-	}
-	
-	
-	public List<Token> getToken() {
-		
-		List<Token> tokenList = new ArrayList<Token>();
-		List<String> identList = new ArrayList<String>();
-		
-		while(this.ch != '\u0000') {
-			while(Character.isWhitespace(this.ch)) 
-				getNextChar();
-			
-			switch(this.ch) {
-				case '\u0000': break;
-				case '+': getNextChar(); tokenList.add(new Token(TokenType.PLUS , "+", null, this.line)); break;
-				case '-': getNextChar(); tokenList.add(new Token(TokenType.MINUS, "-", null, this.line)); break;
-				case '*': getNextChar(); tokenList.add(new Token(TokenType.MULTI, "*", null, this.line)); break;
-				case '/': getNextChar(); tokenList.add(new Token(TokenType.DIV, "/", null, this.line)); break;
-				case '%': getNextChar(); tokenList.add(new Token(TokenType.MOD, "%", null, this.line)); break;
-				case '^': getNextChar(); tokenList.add(new Token(TokenType.EXP, "^", null, this.line)); break;
-				case '>': tokenList.add(succedingChar('=', new Token(TokenType.GREATEREQ, ">=", null, this.line), 
-														   new Token(TokenType.GREATER, ">", null, this.line))); break;
-				case '<': tokenList.add(succedingChar('=', new Token(TokenType.LESSEQ, "<=", null, this.line), 
-														   new Token(TokenType.LESS, "<", null, this.line))); break;
-				case '=': tokenList.add(succedingChar('=', new Token(TokenType.EQUALTO, "==", null, this.line), 
-						                                   new Token(TokenType.EQUAL, "=", null, this.line))); break;
-				case '~': tokenList.add(succedingChar('=', new Token(TokenType.NEQUALTO, "~=", null, this.line), 
-						                                   new Token(TokenType.NOT, "~", null, this.line))); break;
-				case '&': getNextChar(); tokenList.add(new Token(TokenType.AND, "&", null, this.line)); break;
-				case '|': getNextChar(); tokenList.add(new Token(TokenType.OR, "|", null, this.line)); break;
-				case '(': getNextChar(); tokenList.add(new Token(TokenType.LPAREN, "(", null, this.line)); break;
-				case ')': getNextChar(); tokenList.add(new Token(TokenType.RPAREN, ")", null, this.line)); break;
-				case '{': getNextChar(); tokenList.add(new Token(TokenType.LBRACE, "{", null, this.line)); break;
-				case '}': getNextChar(); tokenList.add(new Token(TokenType.RBRACE, "}", null, this.line)); break;
-				case ';': getNextChar(); tokenList.add(new Token(TokenType.SEMI, ";", null, this.line)); break;
-				case ',': getNextChar(); tokenList.add(new Token(TokenType.COMMA, ",", null, this.line)); break;
-				case '?': blockComment(); getNextChar(); break;
-				case '!': lineComment(); getNextChar(); break;
- 				case '\'':tokenList.add(charLit()); getNextChar(); break;
-				case '"': tokenList.add(stringLit()); getNextChar(); break;
-				default : tokenList.add(ident(identList)); break;
-			}
-		}
-		tokenList.add(new Token(TokenType.EOF, "EOF", null, this.line));
-		return tokenList;
-	}
+package lexer;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import parser.CodeXRuntimeException;
+import parser.Diagnostic;
+import parser.Diagnostics;
+
+public class Lexer {
+
+	//Character classes
+	private static final int C_EOF = 0, C_SPACE = 1, C_WS = 2, C_NL = 3,
+			C_LETTER = 4, C_DIGIT = 5, C_DOT = 6, C_UNDERSCORE = 7, C_BADWORD = 8,
+			C_GT = 9, C_LT = 10, C_EQ = 11, C_TILDE = 12, C_OPERATOR = 13,
+			C_QUESTION = 14, C_BANG = 15, C_QUOTE = 16, C_DQUOTE = 17, C_CTRL = 18,
+			C_U_LETTER = 19, C_U_DIGIT = 20, C_U_SPACE = 21, C_U_OTHER = 22;
+	private static final int CLASSES = 23;
+
+	//DFA states
+	private static final int STOP = -1, START = 0,
+			LINE_COMMENT = 1, BLOCK_COMMENT = 2, OPERATOR = 3,
+			GT = 4, GE = 5, LT = 6, LE = 7, EQ = 8, EQEQ = 9, NOT = 10, NE = 11,
+			STRING = 12, STRING_END = 13, CHAR_OPEN = 14, CHAR_BODY = 15, CHAR_END = 16,
+			INT = 17, DOT = 18, FLOAT = 19, BADNUM = 20, IDENT = 21, INVALID = 22, BAD_CHAR = 23;
+	private static final int STATES = 24;
+
+	private static final byte[] CHAR_CLASS = new byte[128];
+	private static final byte[][] TRANSITION = new byte[STATES][CLASSES];
+	private static final TokenType[] ACCEPT = new TokenType[STATES];
+	private static final TokenType[] OPERATOR_TYPE = new TokenType[128];
+	private static final boolean[] SPACE_RUN = new boolean[128];
+	private static final boolean[] IDENT_RUN = new boolean[128];
+	private static final boolean[] DIGIT_RUN = new boolean[128];
+
+	static {
+		for(int ch = 0; ch < 128; ch++)
+			CHAR_CLASS[ch] = C_CTRL;
+		for(int ch = 33; ch < 127; ch++)
+			CHAR_CLASS[ch] = C_BADWORD;
+		for(int ch = 'a'; ch <= 'z'; ch++)
+			CHAR_CLASS[ch] = C_LETTER;
+		for(int ch = 'A'; ch <= 'Z'; ch++)
+			CHAR_CLASS[ch] = C_LETTER;
+		for(int ch = '0'; ch <= '9'; ch++)
+			CHAR_CLASS[ch] = C_DIGIT;
+		for(char ch : "\t\u000B\f\r\u001C\u001D\u001E\u001F".toCharArray())
+			CHAR_CLASS[ch] = C_WS;
+
+		CHAR_CLASS[0] = C_EOF;
+		CHAR_CLASS[' '] = C_SPACE;
+		CHAR_CLASS['\n'] = C_NL;
+		CHAR_CLASS['.'] = C_DOT;
+		CHAR_CLASS['_'] = C_UNDERSCORE;
+		CHAR_CLASS['>'] = C_GT;
+		CHAR_CLASS['<'] = C_LT;
+		CHAR_CLASS['='] = C_EQ;
+		CHAR_CLASS['~'] = C_TILDE;
+		CHAR_CLASS['?'] = C_QUESTION;
+		CHAR_CLASS['!'] = C_BANG;
+		CHAR_CLASS['\''] = C_QUOTE;
+		CHAR_CLASS['"'] = C_DQUOTE;
+
+		operator('+', TokenType.PLUS);	operator('-', TokenType.MINUS);
+		operator('*', TokenType.MULTI);	operator('/', TokenType.DIV);
+		operator('%', TokenType.MOD);	operator('^', TokenType.EXP);
+		operator('&', TokenType.AND);	operator('|', TokenType.OR);
+		operator('(', TokenType.LPAREN);operator(')', TokenType.RPAREN);
+		operator('{', TokenType.LBRACE);operator('}', TokenType.RBRACE);
+		operator(';', TokenType.SEMI);	operator(',', TokenType.COMMA);
+
+		for(byte[] row : TRANSITION)
+			Arrays.fill(row, (byte) STOP);
+
+		on(START, START, C_SPACE, C_WS, C_NL, C_U_SPACE);
+		on(START, IDENT, C_LETTER, C_U_LETTER);
+		on(START, INT, C_DIGIT, C_U_DIGIT);
+		on(START, DOT, C_DOT);
+		on(START, INVALID, C_UNDERSCORE, C_BADWORD);
+		on(START, GT, C_GT);
+		on(START, LT, C_LT);
+		on(START, EQ, C_EQ);
+		on(START, NOT, C_TILDE);
+		on(START, OPERATOR, C_OPERATOR);
+		on(START, BLOCK_COMMENT, C_QUESTION);
+		on(START, LINE_COMMENT, C_BANG);
+		on(START, CHAR_OPEN, C_QUOTE);
+		on(START, STRING, C_DQUOTE);
+		on(START, BAD_CHAR, C_CTRL, C_U_OTHER);
+
+		onAllBut(LINE_COMMENT, LINE_COMMENT, C_EOF, C_NL);
+		on(LINE_COMMENT, START, C_NL);
+		onAllBut(BLOCK_COMMENT, BLOCK_COMMENT, C_EOF, C_QUESTION);
+		on(BLOCK_COMMENT, START, C_QUESTION);
+
+		on(GT, GE, C_EQ);
+		on(LT, LE, C_EQ);
+		on(EQ, EQEQ, C_EQ);
+		on(NOT, NE, C_EQ);
+
+		onAllBut(STRING, STRING, C_EOF, C_NL, C_DQUOTE);
+		on(STRING, STRING_END, C_DQUOTE);
+		on(CHAR_OPEN, CHAR_BODY, C_SPACE, C_LETTER, C_DIGIT, C_DOT, C_UNDERSCORE, C_BADWORD, C_GT, C_LT,
+				C_EQ, C_TILDE, C_OPERATOR, C_QUESTION, C_BANG, C_QUOTE, C_DQUOTE);
+		on(CHAR_BODY, CHAR_END, C_QUOTE);
+
+		on(INT, INT, C_DIGIT, C_U_DIGIT);
+		on(INT, FLOAT, C_DOT);
+		on(INT, INVALID, C_LETTER, C_U_LETTER, C_UNDERSCORE, C_BADWORD);
+		on(DOT, FLOAT, C_DIGIT, C_U_DIGIT);
+		on(DOT, BADNUM, C_DOT);
+		on(DOT, INVALID, C_LETTER, C_U_LETTER, C_UNDERSCORE, C_BADWORD);
+		on(FLOAT, FLOAT, C_DIGIT, C_U_DIGIT);
+		on(FLOAT, BADNUM, C_DOT);
+		on(FLOAT, INVALID, C_LETTER, C_U_LETTER, C_UNDERSCORE, C_BADWORD);
+		on(BADNUM, BADNUM, C_DIGIT, C_U_DIGIT, C_DOT);
+		on(BADNUM, INVALID, C_LETTER, C_U_LETTER, C_UNDERSCORE, C_BADWORD);
+		on(IDENT, IDENT, C_LETTER, C_U_LETTER, C_DIGIT, C_U_DIGIT, C_UNDERSCORE);
+		on(IDENT, INVALID, C_DOT, C_BADWORD);
+		on(INVALID, INVALID, C_LETTER, C_U_LETTER, C_DIGIT, C_U_DIGIT, C_DOT, C_UNDERSCORE, C_BADWORD);
+
+		ACCEPT[START] = TokenType.EOF;
+		ACCEPT[GT] = TokenType.GREATER;
+		ACCEPT[GE] = TokenType.GREATEREQ;
+		ACCEPT[LT] = TokenType.LESS;
+		ACCEPT[LE] = TokenType.LESSEQ;
+		ACCEPT[EQ] = TokenType.EQUAL;
+		ACCEPT[EQEQ] = TokenType.EQUALTO;
+		ACCEPT[NOT] = TokenType.NOT;
+		ACCEPT[NE] = TokenType.NEQUALTO;
+		ACCEPT[STRING_END] = TokenType.CONST_STR;
+		ACCEPT[CHAR_END] = TokenType.CONST_CHAR;
+		ACCEPT[INT] = TokenType.CONST_INT;
+		ACCEPT[FLOAT] = TokenType.CONST_FLOAT;
+
+		for(int ch = 1; ch < 128; ch++) {
+			SPACE_RUN[ch] = TRANSITION[START][CHAR_CLASS[ch]] == START;
+			IDENT_RUN[ch] = TRANSITION[IDENT][CHAR_CLASS[ch]] == IDENT;
+			DIGIT_RUN[ch] = TRANSITION[INT][CHAR_CLASS[ch]] == INT;
+		}
+	}
+
+	private int pos, line, lineStart;
+	private char ch;
+	private SourceReader source;
+	private SymbolTable symbols;
+	private String text;
+	private int limit, nextNul = -1;
+
+	private int tokenStart, tokenLine, tokenColumn, tokenSymbol;
+	private int tokenInt;
+	private float tokenFloat;
+	boolean reportErrors = true;
+	private Diagnostics diagnostics;
+	private boolean flushDiagnostics = true;
+	private int errorState;
+
+	public Lexer(CharSequence sourceCode) {
+
+		this(SourceReader.of(sourceCode));
+	}
+
+
+	public Lexer(Reader reader) {
+
+		this(SourceReader.of(reader));
+	}
+
+
+	public Lexer(SourceReader source) {
+
+		this(source, new SymbolTable());
+	}
+
+
+	public Lexer(SourceReader source, SymbolTable symbols) {
+
+		this(source, symbols, 0, 1);
+	}
+
+
+	Lexer(SourceReader source, SymbolTable symbols, int pos, int line) {
+
+		this.pos = pos;
+		this.line = line;
+		this.source = source;
+		this.symbols = symbols;
+		this.ch = charAt(pos);
+
+		int lineStart = pos;
+		while(lineStart > 0 && charAt(lineStart - 1) != '\n')
+			lineStart--;
+		this.lineStart = lineStart;
+
+		if(source instanceof SourceReader.StringSource && source.contents() instanceof String) {
+			this.text = (String) source.contents();
+			this.limit = ((SourceReader.StringSource) source).limit();
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static class TokenizationError extends CodeXRuntimeException {
+
+		TokenizationError() {
+			super("Tokenization error", true);
+		}
+	}
+
+	private static final TokenizationError TOKENIZATION_ERROR = new TokenizationError();
+
+
+	/**
+	 * Collects errors into diagnostics instead of printing them; the caller
+	 * decides when to flush.
+	 */
+	public void setDiagnostics(Diagnostics diagnostics) {
+
+		this.diagnostics = diagnostics;
+		this.flushDiagnostics = false;
+	}
+
+
+	public Diagnostics getDiagnostics() {
+
+		if(this.diagnostics == null)
+			this.diagnostics = new Diagnostics();
+		return this.diagnostics;
+	}
+
+
+	private TokenizationError error(Diagnostic.Code code, int line, String near, String message) {
+
+		if(this.reportErrors)
+			getDiagnostics().report(code, line, this.tokenColumn, this.pos - this.tokenStart, near, message);
+		this.errorState = START;
+		return TOKENIZATION_ERROR;
+	}
+
+
+	/**
+	 * Called after an error when lexing goes on. A bad character constant
+	 * is skipped up to its closing quote, so the quote is not read as the
+	 * start of another one.
+	 */
+	private void recover() {
+
+		if(this.errorState != CHAR_OPEN && this.errorState != CHAR_BODY)
+			return;
+		while(this.ch != '\'' && this.ch != '\n' && this.ch != '\u0000')
+			getNextChar();
+		if(this.ch == '\'')
+			getNextChar();
+	}
+
+
+	private void flushDiagnostics() {
+
+		if(this.flushDiagnostics && this.diagnostics != null)
+			this.diagnostics.flush(System.err);
+	}
+
+
+	private static void operator(char ch, TokenType type) {
+
+		CHAR_CLASS[ch] = C_OPERATOR;
+		OPERATOR_TYPE[ch] = type;
+	}
+
+
+	private static void on(int state, int next, int... charClasses) {
+
+		for(int charClass : charClasses)
+			TRANSITION[state][charClass] = (byte) next;
+	}
+
+
+	private static void onAllBut(int state, int next, int... excluded) {
+
+		Arrays.fill(TRANSITION[state], (byte) next);
+		for(int charClass : excluded)
+			TRANSITION[state][charClass] = STOP;
+	}
+
+
+	private static int charClass(char ch) {
+
+		if(ch < 128)
+			return CHAR_CLASS[ch];
+		if(Character.isWhitespace(ch))
+			return C_U_SPACE;
+		if(Character.isDigit(ch))
+			return C_U_DIGIT;
+		if(Character.isLetter(ch))
+			return C_U_LETTER;
+		return C_U_OTHER;
+	}
+
+
+	private char charAt(int pos) {
+
+		int next = this.source.read(pos);
+		return next == SourceReader.EOF ? '\u0000' : (char) next;
+	}
+
+
+	private char getNextChar() {
+
+		this.pos++;
+
+		char next = charAt(this.pos);
+		if(next == '\u0000') {
+			this.ch = next;
+			return this.ch;
+		}
+
+		if(this.ch == '\n') {
+			this.line++;
+			this.lineStart = this.pos;
+		}
+
+		this.ch = next;
+		return this.ch;
+	}
+
+
+	/**
+	 * Same as calling getNextChar() while the current character is in run, but
+	 * reads the String directly. Only used when the source is a String.
+	 */
+	private void skipRun(boolean[] run) {
+
+		String text = this.text;
+		int pos = this.pos, line = this.line, lineStart = this.lineStart, limit = this.limit;
+		char ch = this.ch;
+
+		while(ch < 128 && run[ch]) {
+			if(++pos >= limit) {
+				ch = '\u0000';
+				break;
+			}
+			char next = text.charAt(pos);
+			if(next == '\u0000') {
+				ch = next;
+				break;
+			}
+			if(ch == '\n') {
+				line++;
+				lineStart = pos;
+			}
+			ch = next;
+		}
+		this.pos = pos;
+		this.line = line;
+		this.lineStart = lineStart;
+		this.ch = ch;
+	}
+
+
+	private void skipTrivia() {
+
+		skipRun(SPACE_RUN);
+		while(this.ch == '!') {
+			getNextChar();
+			skipLineComment();
+			skipRun(SPACE_RUN);
+		}
+	}
+
+
+	/** Moves to the newline or end of input that closes a ! comment. */
+	private void skipLineComment() {
+
+		if(this.ch == '\n' || this.ch == '\u0000')
+			return;
+
+		if(this.nextNul < this.pos) {
+			int nul = this.text.indexOf('\u0000', this.pos);
+			this.nextNul = nul < 0 ? Integer.MAX_VALUE : nul;
+		}
+
+		int end = this.text.indexOf('\n', this.pos);
+		if(end < 0 || end > this.limit)
+			end = this.limit;
+		end = Math.min(end, this.nextNul);
+
+		this.pos = end;
+		this.ch = end < this.limit ? this.text.charAt(end) : '\u0000';
+	}
+
+
+	private TokenType ident() {
+
+		int length = this.pos - this.tokenStart;
+		TokenType keyword = Keywords.match(this.source, this.tokenStart, length);
+
+		if(keyword != null)
+			return keyword;
+
+		if(length <= 20) {
+			this.tokenSymbol = this.symbols.intern(this.source, this.tokenStart, length);
+			return TokenType.IDENT;
+		}
+
+		else
+			throw error(Diagnostic.Code.INVALID_TOKEN, this.line, this.source.substring(this.tokenStart, this.pos), "Invalid token");
+	}
+
+
+	private TokenType intLit() {
+
+		long value = Literals.parseInt(this.source, this.tokenStart, this.pos);
+		if(value < 0)
+			throw error(Diagnostic.Code.INVALID_NUMBER, this.line, this.source.substring(this.tokenStart, this.pos),
+							"Invalid numerical constant");
+		this.tokenInt = (int) value;
+		return TokenType.CONST_INT;
+	}
+
+
+	private TokenizationError error(int state) {
+
+		TokenizationError error = report(state);
+		this.errorState = state;
+		return error;
+	}
+
+
+	private TokenizationError report(int state) {
+
+		switch(state) {
+			case BLOCK_COMMENT:
+				return error(Diagnostic.Code.UNCLOSED_COMMENT, this.tokenLine, "",
+								"Unexpected end of comment at " + this.tokenLine);
+			case STRING:
+				return error(Diagnostic.Code.UNCLOSED_STRING, this.line,
+								this.source.substring(this.tokenStart + 1, this.pos), "Unclosed string literal");
+			case CHAR_OPEN:
+				return error(Diagnostic.Code.INVALID_CHARACTER, this.line, String.valueOf((char) 0),
+								"Invalid character constant");
+			case CHAR_BODY:
+				return error(Diagnostic.Code.INVALID_CHARACTER, this.line, String.valueOf(charAt(this.pos - 1)),
+								"Invalid character constant");
+			case DOT:
+			case BADNUM:
+				return error(Diagnostic.Code.INVALID_NUMBER, this.line, this.source.substring(this.tokenStart, this.pos),
+								"Invalid numerical constant");
+			default:
+				return error(Diagnostic.Code.INVALID_TOKEN, this.line, this.source.substring(this.tokenStart, this.pos),
+								"Invalid token");
+		}
+	}
+
+
+	private TokenType scan() {
+
+		int state = START, next;
+
+		if(this.text != null)
+			skipTrivia();
+		char first = this.ch;
+
+		this.source.release(this.pos);
+		this.tokenStart = this.pos;
+		this.tokenLine = this.line;
+		this.tokenColumn = this.pos - this.lineStart + 1;
+		this.tokenSymbol = -1;
+
+		if(this.text != null && first < 128) {
+			if(CHAR_CLASS[first] == C_LETTER) {
+				state = IDENT;
+				skipRun(IDENT_RUN);
+			} else if(CHAR_CLASS[first] == C_DIGIT) {
+				state = INT;
+				skipRun(DIGIT_RUN);
+			}
+		}
+
+		while((next = TRANSITION[state][charClass(this.ch)]) != STOP) {
+			if(state == START)
+				first = this.ch;
+			getNextChar();
+
+			if(next == START) {
+				this.source.release(this.pos);
+				this.tokenStart = this.pos;
+				this.tokenLine = this.line;
+				this.tokenColumn = this.pos - this.lineStart + 1;
+			}
+			state = next;
+		}
+
+		switch(state) {
+			case LINE_COMMENT:
+				this.tokenStart = this.pos;
+				this.tokenColumn = this.pos - this.lineStart + 1;
+				return TokenType.EOF;
+			case OPERATOR:
+				return OPERATOR_TYPE[first];
+			case IDENT:
+				return ident();
+			case INT:
+				return intLit();
+			case FLOAT:
+				this.tokenFloat = Literals.parseFloat(this.source, this.tokenStart, this.pos);
+				return TokenType.CONST_FLOAT;
+			default:
+				if(ACCEPT[state] == null)
+					throw error(state);
+				return ACCEPT[state];
+		}
+	}
+
+
+	private String lexeme(TokenType type) {
+
+		String lexeme = Token.lexemeOf(type);
+		if(lexeme != null)
+			return lexeme;
+
+		if(type == TokenType.CONST_STR || type == TokenType.CONST_CHAR)
+			return this.source.substring(this.tokenStart + 1, this.pos - 1);
+		if(type == TokenType.IDENT && !this.symbols.isIgnoreCase())
+			return this.symbols.name(this.tokenSymbol);
+		return this.source.substring(this.tokenStart, this.pos);
+	}
+
+
+	/** Lexes the next token. On an error the diagnostic is printed, unless a collector was set, and lexing stops. */
+	public Token nextToken() {
+
+		try {
+			return token();
+		} catch(TokenizationError te) {
+			flushDiagnostics();
+			throw te;
+		}
+	}
+
+
+	private Token token() {
+
+		TokenType type = scan();
+		String lexeme = lexeme(type);
+		Object value;
+
+		switch(type) {
+			case CONST_INT:		value = this.tokenInt; break;
+			case CONST_FLOAT:	value = this.tokenFloat; break;
+			default:			value = Token.valueOf(type, lexeme); break;
+		}
+		return new Token(type, lexeme, value, this.tokenLine, this.tokenColumn, this.tokenSymbol);
+	}
+
+
+	/**
+	 * Lexes the whole source. An invalid token is reported and skipped, so one
+	 * run reports every lexical error; if there were any, they are printed
+	 * together, unless a collector was set, and lexing fails at the end.
+	 */
+	public List<Token> getToken() {
+
+		List<Token> tokenList = new ArrayList<Token>();
+		Token token = null;
+		boolean failed = false;
+
+		do {
+			try {
+				token = token();
+				tokenList.add(token);
+			} catch(TokenizationError te) {
+				failed = true;
+				recover();
+			}
+		} while(token == null || token.type != TokenType.EOF);
+		return finish(failed, tokenList);
+	}
+
+
+	private <T> T finish(boolean failed, T tokens) {
+
+		if(!failed)
+			return tokens;
+		flushDiagnostics();
+		throw TOKENIZATION_ERROR;
+	}
+
+
+	public SymbolTable getSymbols() {
+
+		return this.symbols;
+	}
+
+
+	public TokenBuffer getTokenBuffer() {
+
+		CharSequence contents = this.source.contents();
+		if(contents == null)
+			throw new IllegalStateException("Token buffers need an in-memory source");
+
+		TokenBuffer tokenBuffer = new TokenBuffer(contents, this.symbols);
+		boolean failed = false;
+
+		while(true) {
+			try {
+				if(scanInto(tokenBuffer) == TokenType.EOF)
+					break;
+			} catch(TokenizationError te) {
+				failed = true;
+				recover();
+			}
+		}
+		return finish(failed, tokenBuffer);
+	}
+
+
+	TokenType scanInto(TokenBuffer tokenBuffer) {
+
+		TokenType type = scan();
+		tokenBuffer.add(type, this.tokenStart, this.pos - this.tokenStart, this.tokenLine, this.tokenColumn, this.tokenSymbol);
+		return type;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+package lexer;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Measures lexer throughput in MB of source per second, into a token list
+ * with getToken() and into a TokenBuffer with getTokenBuffer(). The last
+ * column lexes the same text from a StringBuilder into a TokenBuffer. Only
+ * String sources take the fast loops over blanks, comments and words, so
+ * this is the scalar path they replace.
+ *
+ * <pre>
+ * java lexer.LexerBenchmark [-runs N] [-size MB] [script.txt...]
+ * </pre>
+ *
+ * Without scripts two generated programs of about 20 MB each are lexed,
+ * one dense and one indented with a comment on every third line. Each
+ * column is the best of N runs (20 by default) after N / 2 warm-up runs,
+ * in CPU time of the lexing thread, so that other load on the machine
+ * counts as little as possible.
+ */
+public class LexerBenchmark {
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	private static final String[] DENSE = {
+			"XOUT((a% + b%) * (c% - d%) > (e% / f%) & ~(g% == h%) | k% <= 3);",
+			"x% = ((y + %) * (z - 2.5)) / ((w + 1) * (v - 7));",
+			"INT n% = 42; FP f% = 0.125; STR s% = \"text %\"; CHAR c% = 'q';",
+			"IF (n% >= 10 & flag_%) { count_% = count_% + 1; } ELSE { XOUT(n%); }",
+			"WHILE (i% < 100) { i% = i% + 1; }" };
+
+	private static final String[] INDENTED = {
+			"! explains the following statement in some detail, more words here",
+			"counter_value% = counter_value% + % * (limit_total - %);",
+			"    IF (counter_value% > limit_total) {",
+			"        ! keeps the running total below the limit",
+			"        counter_value% = counter_value% - limit_total;",
+			"    }" };
+
+
+	public static void main(String[] args) throws IOException {
+
+		int runs = 20, size = 20, first = 0;
+		while(first + 1 < args.length && args[first].startsWith("-")) {
+			if(args[first].equals("-runs"))
+				runs = Integer.parseInt(args[first + 1]);
+			else if(args[first].equals("-size"))
+				size = Integer.parseInt(args[first + 1]);
+			first += 2;
+		}
+
+		System.out.printf("%-16s %8s %10s %12s %12s %12s%n", "source", "MB", "tokens", "list", "buffer", "scalar");
+		if(first == args.length) {
+			measure("dense", generate(DENSE, size << 20), runs);
+			measure("indented", generate(INDENTED, size << 20), runs);
+		}
+		for(int i = first; i < args.length; i++)
+			measure(Paths.get(args[i]).getFileName().toString(),
+					new String(Files.readAllBytes(Paths.get(args[i])), StandardCharsets.UTF_8), runs);
+	}
+
+
+	private static void measure(String name, String source, int runs) {
+
+		double megabytes = source.length() / (double) (1 << 20);
+		int tokens = new Lexer(source).getTokenBuffer().size();
+		long list = best(source, runs, false), buffer = best(source, runs, true);
+		long scalar = best(new StringBuilder(source), runs, true);
+		System.out.printf("%-16s %8.1f %10d %7.1f MB/s %7.1f MB/s %7.1f MB/s%n", name, megabytes, tokens,
+				megabytes / (list / 1e9), megabytes / (buffer / 1e9), megabytes / (scalar / 1e9));
+	}
+
+
+	private static long best(CharSequence source, int runs, boolean buffer) {
+
+		long best = Long.MAX_VALUE;
+		for(int run = -runs / 2; run < runs; run++) {
+			long start = THREADS.getCurrentThreadCpuTime();
+			if(buffer)
+				new Lexer(source).getTokenBuffer();
+			else
+				new Lexer(source).getToken();
+			long time = THREADS.getCurrentThreadCpuTime() - start;
+			if(run >= 0)
+				best = Math.min(best, time);
+		}
+		return best;
+	}
+
+
+	/** Lines from the templates in turn, each % replaced by the line number, until the text has length characters. */
+	static String generate(String[] templates, int length) {
+
+		StringBuilder source = new StringBuilder(length + 256);
+		for(int line = 0; source.length() < length; line++)
+			source.append(templates[line % templates.length].replace("%", Integer.toString(line))).append('\n');
+		return source.toString();
+	}
+}
\ No newline at end of file
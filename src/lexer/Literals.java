@@ -0,0 +1,59 @@
+package lexer;
+
+/**
+ * Decodes numeric literals straight from the source span the lexer accepted,
+ * so no intermediate String is built for the common cases.
+ */
+final class Literals {
+
+	private static final float[] POWERS_OF_TEN = {
+		1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+	};
+	private static final long MAX_EXACT_FLOAT = 1L << 24;
+
+	private Literals() {}
+
+
+	/** Returns the value of a digit run, or -1 if it does not fit in an int. */
+	static long parseInt(SourceReader source, int start, int end) {
+
+		long value = 0;
+		for(int pos = start; pos < end; pos++) {
+			value = value * 10 + Character.digit((char) source.read(pos), 10);
+			if(value > Integer.MAX_VALUE)
+				return -1;
+		}
+		return value;
+	}
+
+
+	static float parseFloat(SourceReader source, int start, int end) {
+
+		long mantissa = 0;
+		int scale = 0;
+		boolean fraction = false;
+
+		for(int pos = start; pos < end; pos++) {
+			char ch = (char) source.read(pos);
+			if(ch == '.') {
+				fraction = true;
+				continue;
+			}
+			if(mantissa >= MAX_EXACT_FLOAT * 10)
+				return Float.parseFloat(source.substring(start, end));
+			mantissa = mantissa * 10 + Character.digit(ch, 10);
+			if(fraction)
+				scale++;
+		}
+
+		while(scale > 0 && mantissa % 10 == 0) {
+			mantissa /= 10;
+			scale--;
+		}
+
+		//Both operands are exact floats here, so one division rounds correctly.
+		if(mantissa <= MAX_EXACT_FLOAT && scale < POWERS_OF_TEN.length)
+			return mantissa / POWERS_OF_TEN[scale];
+		return Float.parseFloat(source.substring(start, end));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,223 @@
+package lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import parser.CodeXRuntimeException;
+
+/**
+ * Lexes a large in-memory source on a ForkJoinPool. The source is cut at line
+ * starts that are not inside a ? block comment, which is the only construct
+ * that spans lines, and the chunk token buffers are stitched back in order.
+ * Whenever a chunk hits a lexical error the whole source is lexed again
+ * sequentially so the reported error is exactly the sequential one.
+ */
+public class ParallelLexer {
+
+	private static final int MIN_CHUNK = 1 << 16;
+	private static final int CODE = 0, COMMENT = 1, INVALID = 2;
+
+	private final ForkJoinPool pool;
+	private final int minChunk;
+
+	public ParallelLexer() {
+
+		this(ForkJoinPool.commonPool(), MIN_CHUNK);
+	}
+
+
+	public ParallelLexer(ForkJoinPool pool) {
+
+		this(pool, MIN_CHUNK);
+	}
+
+
+	public ParallelLexer(ForkJoinPool pool, int minChunk) {
+
+		this.pool = pool;
+		this.minChunk = Math.max(1, minChunk);
+	}
+
+
+	public TokenBuffer getTokenBuffer(CharSequence input) {
+
+		return getTokenBuffer(input, new SymbolTable());
+	}
+
+
+	public TokenBuffer getTokenBuffer(CharSequence input, SymbolTable symbols) {
+
+		int[] bounds = split(input);
+		int chunks = bounds.length - 1;
+		if(chunks < 2)
+			return sequential(input, symbols);
+
+		int[][] modes = invokeAll(chunks, i -> scanModes(input, bounds[i], bounds[i + 1]), int[][]::new);
+		if(modes == null)
+			return sequential(input, symbols);
+
+		List<Integer> starts = new ArrayList<>();
+		List<Integer> lines = new ArrayList<>();
+		int mode = CODE, line = 1;
+
+		for(int i = 0; i < chunks; i++) {
+			if(mode == CODE) {
+				starts.add(bounds[i]);
+				lines.add(line);
+			}
+			mode = modes[i][mode];
+			line += modes[i][2];
+			if(mode == INVALID)
+				return sequential(input, symbols);
+		}
+		starts.add(input.length());
+
+		TokenBuffer[] pieces = invokeAll(starts.size() - 1, i -> {
+			Lexer lexer = new Lexer(new SourceReader.StringSource(input, starts.get(i + 1)),
+										new SymbolTable(symbols.isIgnoreCase()), starts.get(i), lines.get(i));
+			lexer.reportErrors = false;
+			return lexer.getTokenBuffer();
+		}, TokenBuffer[]::new);
+		if(pieces == null)
+			return sequential(input, symbols);
+
+		return stitch(input, pieces, symbols);
+	}
+
+
+	private int[] split(CharSequence input) {
+
+		int length = input.length();
+		int chunks = Math.min(this.pool.getParallelism() * 4, length / this.minChunk);
+		int[] bounds = new int[Math.max(chunks, 1) + 1];
+		int count = 1;
+
+		for(int i = 1; i < chunks; i++) {
+			int pos = (int) ((long) length * i / chunks);
+			pos = Math.max(pos, bounds[count - 1]);
+			while(pos < length && input.charAt(pos) != '\n')
+				pos++;
+			if(pos + 1 < length && pos + 1 > bounds[count - 1])
+				bounds[count++] = pos + 1;
+		}
+		bounds[count++] = length;
+		return Arrays.copyOf(bounds, count);
+	}
+
+
+	/** Returns the mode at the chunk end for each start mode, plus its newline count. */
+	private static int[] scanModes(CharSequence input, int start, int end) {
+
+		int newlines = 0;
+		for(int pos = start; pos < end; pos++) {
+			if(input.charAt(pos) == '\n')
+				newlines++;
+		}
+		return new int[] { endMode(input, start, end, CODE), endMode(input, start, end, COMMENT), newlines };
+	}
+
+
+	private static int endMode(CharSequence input, int start, int end, int mode) {
+
+		int pos = start;
+
+		while(pos < end) {
+			char ch = input.charAt(pos++);
+
+			if(mode == COMMENT) {
+				if(ch == '?')
+					mode = CODE;
+				continue;
+			}
+
+			switch(ch) {
+				case '\u0000':
+					return INVALID;
+				case '?':
+					mode = COMMENT;
+					break;
+				case '!':
+					while(pos < end && input.charAt(pos) != '\n')
+						pos++;
+					break;
+				case '"':
+					while(pos < end && input.charAt(pos) != '"') {
+						if(input.charAt(pos) == '\n')
+							return INVALID;
+						pos++;
+					}
+					if(pos++ >= end)
+						return INVALID;
+					break;
+				case '\'':
+					if(pos + 1 >= end || input.charAt(pos + 1) != '\'')
+						return INVALID;
+					pos += 2;
+					break;
+				default:
+					break;
+			}
+		}
+		return mode;
+	}
+
+
+	private TokenBuffer stitch(CharSequence input, TokenBuffer[] pieces, SymbolTable symbols) {
+
+		TokenBuffer tokenBuffer = new TokenBuffer(input, symbols);
+
+		for(int i = 0; i < pieces.length; i++) {
+			TokenBuffer piece = pieces[i];
+			SymbolTable local = piece.getSymbols();
+			int[] symbolMap = new int[local.size()];
+			for(int id = 0; id < symbolMap.length; id++)
+				symbolMap[id] = symbols.intern(local.name(id));
+
+			boolean last = i == pieces.length - 1;
+			tokenBuffer.append(piece, last ? piece.size() : piece.size() - 1, symbolMap);
+		}
+		return tokenBuffer;
+	}
+
+
+	private static TokenBuffer sequential(CharSequence input, SymbolTable symbols) {
+
+		return new Lexer(SourceReader.of(input), symbols).getTokenBuffer();
+	}
+
+
+	private interface Chunk<T> {
+		T lex(int index) throws Exception;
+	}
+
+
+	private <T> T[] invokeAll(int count, Chunk<T> chunk, IntFunction<T[]> array) {
+
+		List<Callable<T>> tasks = new ArrayList<>();
+		for(int i = 0; i < count; i++) {
+			int index = i;
+			tasks.add(() -> chunk.lex(index));
+		}
+
+		T[] results = array.apply(count);
+		List<Future<T>> futures = this.pool.invokeAll(tasks);
+		try {
+			for(int i = 0; i < count; i++)
+				results[i] = futures.get(i).get();
+		} catch(ExecutionException ee) {
+			if(ee.getCause() instanceof CodeXRuntimeException)
+				return null;
+			throw new IllegalStateException(ee.getCause());
+		} catch(InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(ie);
+		}
+		return results;
+	}
+}
\ No newline at end of file
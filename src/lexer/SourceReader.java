@@ -0,0 +1,202 @@
+package lexer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Sequential character source for the lexer. Positions are absolute offsets
+ * into the source; once a position is released the reader may drop every
+ * character before it, so stream and mapped sources only keep a small window.
+ */
+public abstract class SourceReader {
+
+	public static final int EOF = -1;
+	private static final int WINDOW_SIZE = 8192;
+
+
+	public static SourceReader of(CharSequence input) {
+
+		return new StringSource(input);
+	}
+
+
+	public static SourceReader of(Reader reader) {
+
+		return new ReaderSource(reader);
+	}
+
+
+	public static SourceReader map(Path path, Charset charset) throws IOException {
+
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new ByteSource(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), charset);
+		}
+	}
+
+
+	public abstract int read(int pos);
+
+
+	public abstract String substring(int start, int end);
+
+
+	public void release(int pos) {}
+
+
+	public CharSequence contents() {
+
+		return null;
+	}
+
+
+	public static class StringSource extends SourceReader {
+
+		private final CharSequence input;
+		private final int limit;
+
+		public StringSource(CharSequence input) {
+			this(input, input.length());
+		}
+
+		public StringSource(CharSequence input, int limit) {
+			this.input = input;
+			this.limit = limit;
+		}
+
+		int limit() {
+
+			return limit;
+		}
+
+		@Override
+		public int read(int pos) {
+
+			if(pos >= limit)
+				return EOF;
+			return input.charAt(pos);
+		}
+
+		@Override
+		public String substring(int start, int end) {
+
+			return input.subSequence(start, end).toString();
+		}
+
+		@Override
+		public CharSequence contents() {
+
+			return input;
+		}
+	}
+
+
+	public static abstract class WindowSource extends SourceReader {
+
+		private char[] window = new char[WINDOW_SIZE];
+		private int offset, count, keep;
+		private boolean atEnd;
+
+		protected abstract int fill(char[] buffer, int off, int len);
+
+		@Override
+		public int read(int pos) {
+
+			while(pos - offset >= count) {
+				if(atEnd || !refill())
+					return EOF;
+			}
+			return window[pos - offset];
+		}
+
+		@Override
+		public String substring(int start, int end) {
+
+			return new String(window, start - offset, end - start);
+		}
+
+		@Override
+		public void release(int pos) {
+
+			if(pos > keep)
+				keep = pos;
+		}
+
+		private boolean refill() {
+
+			int discard = Math.min(keep - offset, count);
+			if(discard > 0) {
+				System.arraycopy(window, discard, window, 0, count - discard);
+				offset += discard;
+				count -= discard;
+			}
+			if(count == window.length)
+				window = Arrays.copyOf(window, window.length * 2);
+
+			int read = fill(window, count, window.length - count);
+			if(read < 0) {
+				atEnd = true;
+				return false;
+			}
+			count += read;
+			return true;
+		}
+	}
+
+
+	public static class ReaderSource extends WindowSource {
+
+		private final Reader reader;
+
+		public ReaderSource(Reader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		protected int fill(char[] buffer, int off, int len) {
+
+			try {
+				return reader.read(buffer, off, len);
+			} catch(IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}
+		}
+	}
+
+
+	public static class ByteSource extends WindowSource {
+
+		private final ByteBuffer bytes;
+		private final CharsetDecoder decoder;
+		private boolean decoded, flushed;
+
+		public ByteSource(ByteBuffer bytes, Charset charset) {
+			this.bytes = bytes;
+			this.decoder = charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		}
+
+		@Override
+		protected int fill(char[] buffer, int off, int len) {
+
+			CharBuffer out = CharBuffer.wrap(buffer, off, len);
+			if(!decoded)
+				decoded = decoder.decode(bytes, out, true).isUnderflow();
+			if(decoded && !flushed)
+				flushed = decoder.flush(out).isUnderflow();
+
+			int read = out.position() - off;
+			return read == 0 && flushed ? -1 : read;
+		}
+	}
+}
\ No newline at end of file
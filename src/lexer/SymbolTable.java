@@ -0,0 +1,145 @@
+package lexer;
+
+import java.util.Arrays;
+
+/**
+ * Interns identifier names and hands out a dense id per unique name, so later
+ * stages can index arrays by identifier instead of hashing strings. Whether
+ * names differing only in case are the same symbol is a table policy.
+ */
+public class SymbolTable {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final boolean ignoreCase;
+	private String[] names = new String[INITIAL_CAPACITY];
+	private int[] hashes = new int[INITIAL_CAPACITY];
+	private int[] slots = new int[INITIAL_CAPACITY * 2];
+	private int size;
+
+	public SymbolTable() {
+
+		this(false);
+	}
+
+
+	public SymbolTable(boolean ignoreCase) {
+
+		this.ignoreCase = ignoreCase;
+	}
+
+
+	public boolean isIgnoreCase() {
+
+		return this.ignoreCase;
+	}
+
+
+	public int size() {
+
+		return this.size;
+	}
+
+
+	public String name(int id) {
+
+		return this.names[id];
+	}
+
+
+	public int intern(CharSequence name) {
+
+		return intern(SourceReader.of(name), 0, name.length());
+	}
+
+
+	public int lookup(CharSequence name) {
+
+		SourceReader source = SourceReader.of(name);
+		int hash = hash(source, 0, name.length());
+		int slot = find(source, 0, name.length(), hash);
+		return this.slots[slot] - 1;
+	}
+
+
+	public int intern(SourceReader source, int start, int length) {
+
+		int hash = hash(source, start, length);
+		int slot = find(source, start, length, hash);
+		if(this.slots[slot] != 0)
+			return this.slots[slot] - 1;
+
+		if(this.size == this.names.length) {
+			this.names = Arrays.copyOf(this.names, this.size * 2);
+			this.hashes = Arrays.copyOf(this.hashes, this.size * 2);
+		}
+		int id = this.size++;
+		this.names[id] = source.substring(start, start + length);
+		this.hashes[id] = hash;
+		this.slots[slot] = id + 1;
+
+		if(this.size * 2 > this.slots.length)
+			rehash();
+		return id;
+	}
+
+
+	private int find(SourceReader source, int start, int length, int hash) {
+
+		int mask = this.slots.length - 1;
+		int slot = hash & mask;
+
+		while(this.slots[slot] != 0) {
+			int id = this.slots[slot] - 1;
+			if(this.hashes[id] == hash && matches(this.names[id], source, start, length))
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+
+	private void rehash() {
+
+		this.slots = new int[this.slots.length * 2];
+		int mask = this.slots.length - 1;
+
+		for(int id = 0; id < this.size; id++) {
+			int slot = this.hashes[id] & mask;
+			while(this.slots[slot] != 0)
+				slot = (slot + 1) & mask;
+			this.slots[slot] = id + 1;
+		}
+	}
+
+
+	private int hash(SourceReader source, int start, int length) {
+
+		int hash = 0;
+		for(int i = 0; i < length; i++)
+			hash = 31 * hash + fold((char) source.read(start + i));
+		return hash ^ (hash >>> 16);
+	}
+
+
+	private boolean matches(String name, SourceReader source, int start, int length) {
+
+		if(name.length() != length)
+			return false;
+		for(int i = 0; i < length; i++) {
+			if(fold(name.charAt(i)) != fold((char) source.read(start + i)))
+				return false;
+		}
+		return true;
+	}
+
+
+	private char fold(char ch) {
+
+		if(!this.ignoreCase)
+			return ch;
+		if(ch < 128)
+			return ch >= 'A' && ch <= 'Z' ? (char) (ch + 32) : ch;
+		return Character.toLowerCase(Character.toUpperCase(ch));
+	}
+}
\ No newline at end of file
@@ -1,16 +1,88 @@
-package lexer;
-
-public class Token {
-	
-	public TokenType type;
-	public String lexeme;
-	public Object value;
-	public int line;
-	
-	Token(TokenType type, String lexeme, Object value, int line) {
-		this.type = type;
-		this.lexeme = lexeme;
-		this.value = value;
-		this.line = line;
-	}
+package lexer;
+
+public class Token {
+	
+	public TokenType type;
+	public String lexeme;
+	public Object value;
+	public int line;
+	public int column;
+	public int symbol;
+	
+	Token(TokenType type, String lexeme, Object value, int line) {
+		this(type, lexeme, value, line, 0, -1);
+	}
+	
+	Token(TokenType type, String lexeme, Object value, int line, int column, int symbol) {
+		this.type = type;
+		this.lexeme = lexeme;
+		this.value = value;
+		this.line = line;
+		this.column = column;
+		this.symbol = symbol;
+	}
+	
+	
+	/**
+	 * Makes a token outside the lexer, e.g. when a program is rebuilt from a
+	 * cache. A null lexeme is replaced by the usual spelling of the type.
+	 */
+	public static Token of(TokenType type, String lexeme, int line, int column, int symbol) {
+		
+		if(lexeme == null)
+			lexeme = lexemeOf(type);
+		return new Token(type, lexeme, valueOf(type, lexeme), line, column, symbol);
+	}
+	
+	
+	static String lexemeOf(TokenType type) {
+		
+		switch(type) {
+			case PLUS:		return "+";
+			case MINUS:		return "-";
+			case DIV:		return "/";
+			case MULTI:		return "*";
+			case MOD:		return "%";
+			case EXP:		return "^";
+			case EQUAL:		return "=";
+			case GREATER:	return ">";
+			case GREATEREQ:	return ">=";
+			case LESS:		return "<";
+			case LESSEQ:	return "<=";
+			case EQUALTO:	return "==";
+			case NEQUALTO:	return "~=";
+			case AND:		return "&";
+			case OR:		return "|";
+			case NOT:		return "~";
+			case LPAREN:	return "(";
+			case RPAREN:	return ")";
+			case LBRACE:	return "{";
+			case RBRACE:	return "}";
+			case SEMI:		return ";";
+			case COMMA:		return ",";
+			case CONST_FLOAT:
+			case CONST_INT:
+			case CONST_BOOL:
+			case CONST_STR:
+			case CONST_CHAR:
+			case IDENT:
+				return null;
+			default:
+				return type.name();
+		}
+	}
+	
+	
+	static Object valueOf(TokenType type, String lexeme) {
+		
+		switch(type) {
+			case CONST_BOOL: return Boolean.parseBoolean(lexeme);
+			case CONST_CHAR: return lexeme.charAt(0);
+			case CONST_STR:
+			case IDENT:
+				return lexeme;
+			default:
+				return null;
+		}
+	}
 }
\ No newline at end of file
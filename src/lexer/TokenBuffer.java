@@ -0,0 +1,244 @@
+package lexer;
+
+import java.util.Arrays;
+
+/**
+ * Packed token storage: one int per token for each of type, start, length,
+ * line, column and symbol id, all pointing into the source text. Lexemes and literal values are only
+ * decoded when asked for.
+ */
+public class TokenBuffer {
+
+	private static final TokenType[] TYPES = TokenType.values();
+	private static final int INITIAL_CAPACITY = 256;
+
+	private final CharSequence source;
+	private final SymbolTable symbols;
+	private int[] type, start, length, line, column, symbol;
+	private int size;
+
+	public TokenBuffer(CharSequence source, SymbolTable symbols) {
+
+		this.source = source;
+		this.symbols = symbols;
+		this.type = new int[INITIAL_CAPACITY];
+		this.start = new int[INITIAL_CAPACITY];
+		this.length = new int[INITIAL_CAPACITY];
+		this.line = new int[INITIAL_CAPACITY];
+		this.column = new int[INITIAL_CAPACITY];
+		this.symbol = new int[INITIAL_CAPACITY];
+	}
+
+
+	public void add(TokenType type, int start, int length, int line, int column, int symbol) {
+
+		ensureCapacity(this.size + 1);
+		this.type[this.size] = type.ordinal();
+		this.start[this.size] = start;
+		this.length[this.size] = length;
+		this.line[this.size] = line;
+		this.column[this.size] = column;
+		this.symbol[this.size] = symbol;
+		this.size++;
+	}
+
+
+	private void ensureCapacity(int required) {
+
+		if(required <= this.type.length)
+			return;
+
+		int capacity = this.type.length;
+		while(capacity < required)
+			capacity *= 2;
+		this.type = Arrays.copyOf(this.type, capacity);
+		this.start = Arrays.copyOf(this.start, capacity);
+		this.length = Arrays.copyOf(this.length, capacity);
+		this.line = Arrays.copyOf(this.line, capacity);
+		this.column = Arrays.copyOf(this.column, capacity);
+		this.symbol = Arrays.copyOf(this.symbol, capacity);
+	}
+
+
+	void append(TokenBuffer tokens, int count, int[] symbolMap) {
+
+		ensureCapacity(this.size + count);
+		System.arraycopy(tokens.type, 0, this.type, this.size, count);
+		System.arraycopy(tokens.start, 0, this.start, this.size, count);
+		System.arraycopy(tokens.length, 0, this.length, this.size, count);
+		System.arraycopy(tokens.line, 0, this.line, this.size, count);
+		System.arraycopy(tokens.column, 0, this.column, this.size, count);
+		for(int i = 0; i < count; i++) {
+			int symbol = tokens.symbol[i];
+			this.symbol[this.size + i] = symbol < 0 ? symbol : symbolMap[symbol];
+		}
+		this.size += count;
+	}
+
+
+	/** The same tokens with their identifiers interned in symbols, so that buffers lexed apart can share one table. */
+	public TokenBuffer withSymbols(SymbolTable symbols) {
+
+		int[] symbolMap = new int[this.symbols.size()];
+		for(int id = 0; id < symbolMap.length; id++)
+			symbolMap[id] = symbols.intern(this.symbols.name(id));
+
+		TokenBuffer tokens = new TokenBuffer(this.source, symbols);
+		tokens.append(this, this.size, symbolMap);
+		return tokens;
+	}
+
+
+	void truncate(int size) {
+
+		this.size = Math.min(this.size, size);
+	}
+
+
+	/**
+	 * Replaces tokens [from, to) and moves the ones after them by delta
+	 * characters and lineDelta lines. Only the tokens left on the line where
+	 * the edit ended change column; the source must already hold the new text.
+	 */
+	void splice(int from, int to, TokenBuffer replacement, int delta, int lineDelta) {
+
+		int count = replacement.size;
+		int tail = this.size - to;
+		int moved = from + count;
+
+		ensureCapacity(moved + tail);
+		for(int[] field : new int[][] { this.type, this.start, this.length, this.line, this.column, this.symbol })
+			System.arraycopy(field, to, field, moved, tail);
+
+		System.arraycopy(replacement.type, 0, this.type, from, count);
+		System.arraycopy(replacement.start, 0, this.start, from, count);
+		System.arraycopy(replacement.length, 0, this.length, from, count);
+		System.arraycopy(replacement.line, 0, this.line, from, count);
+		System.arraycopy(replacement.column, 0, this.column, from, count);
+		System.arraycopy(replacement.symbol, 0, this.symbol, from, count);
+
+		for(int i = moved; i < moved + tail; i++) {
+			this.start[i] += delta;
+			this.line[i] += lineDelta;
+		}
+		this.size = moved + tail;
+
+		if(tail > 0) {
+			int line = this.line[moved];
+			int columnDelta = columnAt(this.start[moved]) - this.column[moved];
+			for(int i = moved; i < this.size && this.line[i] == line; i++)
+				this.column[i] += columnDelta;
+		}
+	}
+
+
+	/** 1-based column of a source offset, found by looking back for the line break. */
+	private int columnAt(int offset) {
+
+		int column = 1;
+		while(offset - column >= 0 && this.source.charAt(offset - column) != '\n')
+			column++;
+		return column;
+	}
+
+
+	public CharSequence getSource() {
+
+		return this.source;
+	}
+
+
+	public SymbolTable getSymbols() {
+
+		return this.symbols;
+	}
+
+
+	public int size() {
+
+		return this.size;
+	}
+
+
+	public TokenType type(int index) {
+
+		return TYPES[this.type[index]];
+	}
+
+
+	public int start(int index) {
+
+		return this.start[index];
+	}
+
+
+	public int length(int index) {
+
+		return this.length[index];
+	}
+
+
+	public int end(int index) {
+
+		return this.start[index] + this.length[index];
+	}
+
+
+	public int line(int index) {
+
+		return this.line[index];
+	}
+
+
+	public int column(int index) {
+
+		return this.column[index];
+	}
+
+
+	public int symbol(int index) {
+
+		return this.symbol[index];
+	}
+
+
+	public String lexeme(int index) {
+
+		TokenType type = type(index);
+		String lexeme = Token.lexemeOf(type);
+		if(lexeme != null)
+			return lexeme;
+
+		int start = this.start[index];
+		int end = start + this.length[index];
+		if(type == TokenType.CONST_STR || type == TokenType.CONST_CHAR)
+			return this.source.subSequence(start + 1, end - 1).toString();
+		if(type == TokenType.IDENT && !this.symbols.isIgnoreCase())
+			return this.symbols.name(this.symbol[index]);
+		return this.source.subSequence(start, end).toString();
+	}
+
+
+	/**
+	 * Decodes a literal from the source as it is now. An IncrementalLexer
+	 * grows the source after the buffer is made, so a reader fixed to the
+	 * length at construction would cut off tokens past it.
+	 */
+	public Object value(int index) {
+
+		switch(type(index)) {
+			case CONST_INT:
+				return (int) Literals.parseInt(SourceReader.of(this.source), this.start[index], end(index));
+			case CONST_FLOAT:
+				return Literals.parseFloat(SourceReader.of(this.source), this.start[index], end(index));
+			default:
+				return Token.valueOf(type(index), lexeme(index));
+		}
+	}
+
+
+	public Token token(int index) {
+
+		return new Token(type(index), lexeme(index), value(index), this.line[index], this.column[index], this.symbol[index]);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package lexer;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Pull-based view of the token sequence. Tokens are lexed on demand and only
+ * a fixed number of lookahead tokens is buffered, so the parser can run in
+ * step with the lexer instead of waiting for a complete token list.
+ */
+public class TokenStream implements Iterator<Token> {
+
+	private static final int DEFAULT_LOOKAHEAD = 2;
+
+	private final Lexer lexer;
+	private final Iterator<Token> tokens;
+	private TokenBuffer tokenBuffer;
+	private int index;
+	private final Token[] lookahead;
+	private int head, count;
+	private Token eof;
+	private boolean done;
+
+	public TokenStream(Lexer lexer) {
+
+		this(lexer, null, DEFAULT_LOOKAHEAD);
+	}
+
+
+	public TokenStream(Lexer lexer, int lookahead) {
+
+		this(lexer, null, lookahead);
+	}
+
+
+	public TokenStream(List<Token> tokenList) {
+
+		this(null, tokenList.iterator(), DEFAULT_LOOKAHEAD);
+	}
+
+
+	public TokenStream(TokenBuffer tokenBuffer) {
+
+		this(null, null, DEFAULT_LOOKAHEAD);
+		this.tokenBuffer = tokenBuffer;
+	}
+
+
+	private TokenStream(Lexer lexer, Iterator<Token> tokens, int lookahead) {
+
+		if(lookahead < 1)
+			throw new IllegalArgumentException("Lookahead must be at least 1");
+		this.lexer = lexer;
+		this.tokens = tokens;
+		this.lookahead = new Token[lookahead];
+	}
+
+
+	private Token pull() {
+
+		if(this.eof != null)
+			return this.eof;
+
+		Token token;
+		if(this.lexer != null)
+			token = this.lexer.nextToken();
+		else if(this.tokenBuffer != null)
+			token = this.tokenBuffer.token(this.index++);
+		else if(this.tokens.hasNext())
+			token = this.tokens.next();
+		else
+			token = new Token(TokenType.EOF, "EOF", null, 0);
+
+		if(token.type == TokenType.EOF)
+			this.eof = token;
+		return token;
+	}
+
+
+	public Token peek() {
+
+		return peek(0);
+	}
+
+
+	public Token peek(int distance) {
+
+		if(distance < 0 || distance >= this.lookahead.length)
+			throw new IndexOutOfBoundsException("Lookahead " + distance + " exceeds " + this.lookahead.length);
+
+		while(this.count <= distance) {
+			this.lookahead[(this.head + this.count) % this.lookahead.length] = pull();
+			this.count++;
+		}
+		return this.lookahead[(this.head + distance) % this.lookahead.length];
+	}
+
+
+	@Override
+	public boolean hasNext() {
+
+		return !this.done;
+	}
+
+
+	@Override
+	public Token next() {
+
+		if(this.done)
+			throw new NoSuchElementException();
+
+		Token token = peek();
+		this.done = token.type == TokenType.EOF;
+		this.lookahead[this.head] = null;
+		this.head = (this.head + 1) % this.lookahead.length;
+		this.count--;
+		return token;
+	}
+}
\ No newline at end of file
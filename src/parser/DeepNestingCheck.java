@@ -0,0 +1,139 @@
+package parser;
+
+import java.util.List;
+
+import ast.FlatAst;
+import ast.Statement;
+import lexer.Lexer;
+import lexer.TokenStream;
+
+/**
+ * Parses programs nested far deeper than any call stack allows and checks
+ * that the trees come out as deep as the nesting.
+ *
+ * <pre>
+ * java -Xss256k parser.DeepNestingCheck [-depth N]
+ * </pre>
+ *
+ * Every case nests N levels (100000 by default): parentheses, ~ runs,
+ * assignment chains and ~(a &amp; ...) for expressions, blocks, IF,
+ * IF/ELSE and WHILE for statements. A case passes if it parses without
+ * errors and the flattened tree has a path of at least N nodes from the
+ * root. A small -Xss shows that the depth does not depend on the stack.
+ * Exits with status 1 if a case fails.
+ */
+public class DeepNestingCheck {
+
+	private static final String[] CASES = { "parentheses", "not", "assignment", "mixed", "block", "if", "if-else", "while" };
+
+
+	public static void main(String[] args) {
+
+		int depth = 100000;
+		if(args.length >= 2 && args[0].equals("-depth"))
+			depth = Integer.parseInt(args[1]);
+
+		boolean failed = false;
+		for(String name : CASES) {
+			String source = source(name, depth);
+			long start = System.nanoTime();
+			String result;
+			try {
+				result = check(source, depth);
+			} catch(StackOverflowError e) {
+				result = "stack overflow";
+			}
+			System.out.printf("%-12s %-40s %8.1f ms%n", name, result, (System.nanoTime() - start) / 1e6);
+			failed |= !result.startsWith("ok");
+		}
+		if(failed)
+			System.exit(1);
+	}
+
+
+	private static String check(String source, int depth) {
+
+		Diagnostics diagnostics = new Diagnostics();
+		Lexer lexer = new Lexer(source);
+		lexer.setDiagnostics(diagnostics);
+		Parser parser = new Parser(new TokenStream(lexer.getTokenBuffer()));
+		parser.setDiagnostics(diagnostics);
+		List<Statement> program;
+		try {
+			program = parser.parseStatementList();
+		} catch(CodeXRuntimeException e) {
+			program = null;
+		}
+		if(program == null || diagnostics.hasErrors())
+			return diagnostics.getDiagnostics().isEmpty() ? "parse failed"
+					: diagnostics.getDiagnostics().get(0).toString();
+
+		int height = height(FlatAst.of(program));
+		return (height >= depth ? "ok, " : "too shallow, ") + height + " levels";
+	}
+
+
+	/** The number of nodes on the longest path from the root; children come after their parent, so one pass finds it. */
+	private static int height(FlatAst tree) {
+
+		int[] level = new int[tree.size()];
+		int height = 0;
+		for(int node = 0; node < tree.size(); node++) {
+			level[node]++;
+			height = Math.max(height, level[node]);
+			for(int i = 0; i < tree.childCount(node); i++) {
+				int child = tree.child(node, i);
+				if(child != FlatAst.NONE)
+					level[child] = level[node];
+			}
+		}
+		return height;
+	}
+
+
+	private static String source(String name, int depth) {
+
+		StringBuilder source = new StringBuilder("INT x; BOOL a; BOOL b;\n");
+		switch(name) {
+			case "parentheses":
+				source.append("x = ");
+				repeat(source, "(", depth).append('1');
+				repeat(source, " + 1)", depth).append(';');
+				break;
+			case "not":
+				source.append("a = ");
+				repeat(source, "~", depth).append("a;");
+				break;
+			case "assignment":
+				repeat(source, "x = ", depth).append("1;");
+				break;
+			case "mixed":
+				source.append("a = ");
+				repeat(source, "~(a & ", depth).append('b');
+				repeat(source, ")", depth).append(';');
+				break;
+			case "block":
+				repeat(source, "{", depth).append("x;");
+				repeat(source, "}", depth);
+				break;
+			case "if":
+				repeat(source, "IF (a) ", depth).append("x;");
+				break;
+			case "if-else":
+				repeat(source, "IF (a) x; ELSE ", depth).append("x;");
+				break;
+			default:
+				repeat(source, "WHILE (a) ", depth).append("x;");
+				break;
+		}
+		return source.append('\n').toString();
+	}
+
+
+	private static StringBuilder repeat(StringBuilder source, String text, int times) {
+
+		for(int i = 0; i < times; i++)
+			source.append(text);
+		return source;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+package parser;
+
+/**
+ * One error found in the source: where it is, what kind it is and the text
+ * shown to the user. Columns are 1-based; 0 means the column is unknown.
+ */
+public class Diagnostic {
+
+	public enum Code {
+		INVALID_TOKEN,
+		INVALID_NUMBER,
+		INVALID_CHARACTER,
+		UNCLOSED_STRING,
+		UNCLOSED_COMMENT,
+		EXPECTED_TOKEN,
+		UNEXPECTED_TOKEN,
+		UNREADABLE_FILE,
+		TYPE_MISMATCH,
+		UNDECLARED_VARIABLE,
+		REDECLARED_VARIABLE,
+		INVALID_TARGET,
+	}
+
+	public final Code code;
+	public final int line, column, length;
+	public final String near;
+	public final String message;
+
+	public Diagnostic(Code code, int line, int column, int length, String near, String message) {
+		this.code = code;
+		this.line = line;
+		this.column = column;
+		this.length = length;
+		this.near = near;
+		this.message = message;
+	}
+
+
+	/** Same layout as the messages CodeXRuntimeException used to print, plus the column. */
+	@Override
+	public String toString() {
+
+		StringBuilder text = new StringBuilder();
+		appendTo(text);
+		return text.toString();
+	}
+
+
+	void appendTo(StringBuilder text) {
+
+		text.append("[line ").append(this.line);
+		if(this.column > 0)
+			text.append(':').append(this.column);
+		text.append("] Error");
+		if(this.near == null)
+			text.append(" at end");
+		else if(!this.near.isEmpty())
+			text.append(" at '").append(this.near).append('\'');
+		text.append(": ").append(this.message);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package parser;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the errors of a lexer and parser run. Reporting only records a
+ * Diagnostic; nothing is printed until {@link #flush(PrintStream)}, which
+ * writes every diagnostic reported since the last flush in one call.
+ */
+public class Diagnostics {
+
+	private final List<Diagnostic> diagnostics = new ArrayList<>();
+	private int flushed;
+
+	public void report(Diagnostic.Code code, int line, int column, int length, String near, String message) {
+
+		this.diagnostics.add(new Diagnostic(code, line, column, length, near, message));
+	}
+
+
+	public List<Diagnostic> getDiagnostics() {
+
+		return Collections.unmodifiableList(this.diagnostics);
+	}
+
+
+	public int size() {
+
+		return this.diagnostics.size();
+	}
+
+
+	public boolean hasErrors() {
+
+		return !this.diagnostics.isEmpty();
+	}
+
+
+	public void clear() {
+
+		this.diagnostics.clear();
+		this.flushed = 0;
+	}
+
+
+	/** Prints the diagnostics not printed yet, one per line. */
+	public void flush(PrintStream out) {
+
+		int size = this.diagnostics.size();
+		if(this.flushed == size)
+			return;
+
+		StringBuilder text = new StringBuilder(64 * (size - this.flushed));
+		for(int i = this.flushed; i < size; i++) {
+			this.diagnostics.get(i).appendTo(text);
+			text.append(System.lineSeparator());
+		}
+		out.print(text);
+		out.flush();
+		this.flushed = size;
+	}
+}
\ No newline at end of file
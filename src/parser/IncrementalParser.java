@@ -0,0 +1,467 @@
+package parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.Statement;
+import ast.Statement.IfStatement;
+import ast.Statement.StatementList;
+import ast.Statement.WhileStatement;
+import lexer.Token;
+import lexer.TokenBuffer;
+import lexer.TokenStream;
+
+/**
+ * Keeps a statement tree in step with an incrementally lexed token buffer.
+ * Every statement remembers the token range it was parsed from. After an
+ * edit, only the innermost block around the damaged tokens is parsed again,
+ * starting at the first statement that reaches the damage, and parsing stops
+ * as soon as it ends where an old statement after the damage ended. The
+ * statements before and after are kept as they are; only the blocks and
+ * compound statements on the path to the damage are rebuilt around them.
+ * <p>
+ * Kept statements also keep their Token objects, and an edit moves the
+ * lines and columns of those tokens in place. A list returned by an earlier
+ * edit() shares them, so its positions follow the latest edit; a caller that
+ * needs an old tree's positions must copy it before editing again.
+ * <p>
+ * Top-level ranges are kept in two int arrays. Ranges of nested statements
+ * are relative to the start of their top-level statement, so an edit only
+ * moves the ranges inside the top-level statement it hits.
+ */
+public class IncrementalParser {
+
+	private TokenBuffer tokenBuffer;
+	private Token[] tokens = new Token[0];
+	private int count;
+	private List<Statement> statements;
+	private int[] starts, ends;
+	private final Map<Statement, int[]> spans = new IdentityHashMap<>();
+	private int reparsed;
+
+	public IncrementalParser(TokenBuffer tokenBuffer) {
+
+		edit(tokenBuffer, 0, 0, tokenBuffer.size());
+	}
+
+
+	/** Result of parsing a run of statements again. */
+	private static class Reparse {
+
+		int first, resume;
+		final List<Statement> statements = new ArrayList<>();
+		final Map<Statement, int[]> spans = new IdentityHashMap<>();
+	}
+
+
+	/**
+	 * Brings the tree up to date after the tokens [damageStart, damageOldEnd)
+	 * were replaced by [damageStart, damageNewEnd), as reported by
+	 * {@link lexer.IncrementalLexer}. A different buffer is parsed from
+	 * scratch. Parse errors propagate, and the next edit parses everything.
+	 * Token positions in earlier results are updated along with the new one.
+	 */
+	public List<Statement> edit(TokenBuffer tokenBuffer, int damageStart, int damageOldEnd, int damageNewEnd) {
+
+		boolean full = tokenBuffer != this.tokenBuffer || this.statements == null;
+		this.tokenBuffer = tokenBuffer;
+
+		if(full) {
+			this.tokens = new Token[tokenBuffer.size()];
+			this.count = 0;
+			damageStart = 0;
+			damageOldEnd = 0;
+			damageNewEnd = tokenBuffer.size();
+		}
+		updateTokens(damageStart, damageOldEnd, damageNewEnd);
+
+		this.reparsed = 0;
+		if(!full && damageStart == damageOldEnd && damageOldEnd == damageNewEnd)
+			return this.statements;
+
+		List<Statement> previous = this.statements;
+		this.statements = null;
+
+		if(full) {
+			this.spans.clear();
+			this.starts = new int[0];
+			this.ends = new int[0];
+			previous = new ArrayList<>();
+		}
+		else {
+			List<Statement> statements = reparseBlock(previous, damageStart, damageOldEnd, damageNewEnd);
+			if(statements != null) {
+				this.statements = statements;
+				return statements;
+			}
+		}
+		this.statements = reparseTopLevel(previous, damageStart, damageOldEnd, damageNewEnd);
+		return this.statements;
+	}
+
+
+	/**
+	 * Replaces the damaged Token objects and moves the ones after them: all
+	 * by the edit's line delta, and those left on the line where the edit
+	 * ended to their new columns, as the buffer did.
+	 */
+	private void updateTokens(int damageStart, int damageOldEnd, int damageNewEnd) {
+
+		TokenBuffer buffer = this.tokenBuffer;
+		int newCount = this.count - damageOldEnd + damageNewEnd;
+		int lineDelta = damageOldEnd < this.count
+				? buffer.line(damageNewEnd) - this.tokens[damageOldEnd].line : 0;
+
+		Token[] tokens = this.tokens;
+		if(newCount > tokens.length)
+			tokens = Arrays.copyOf(tokens, Math.max(newCount, tokens.length * 3 / 2));
+		System.arraycopy(this.tokens, damageOldEnd, tokens, damageNewEnd, this.count - damageOldEnd);
+		if(newCount < this.count)
+			Arrays.fill(tokens, newCount, this.count, null);
+
+		for(int i = damageStart; i < damageNewEnd; i++)
+			tokens[i] = buffer.token(i);
+		if(lineDelta != 0) {
+			for(int i = damageNewEnd; i < newCount; i++)
+				tokens[i].line += lineDelta;
+		}
+		if(damageNewEnd < newCount) {
+			int line = buffer.line(damageNewEnd);
+			for(int i = damageNewEnd; i < newCount && buffer.line(i) == line; i++)
+				tokens[i].column = buffer.column(i);
+		}
+		this.tokens = tokens;
+		this.count = newCount;
+	}
+
+
+	/**
+	 * Parses the top-level statements again from the first one that reaches
+	 * the damage, up to the end of the input or the first old statement
+	 * boundary after the damage.
+	 */
+	private List<Statement> reparseTopLevel(List<Statement> statements, int damageStart, int damageOldEnd, int damageNewEnd) {
+
+		int delta = damageNewEnd - damageOldEnd;
+		Reparse reparse = reparse(statements, this.ends, 0, -1, damageStart, damageOldEnd, delta);
+		int first = reparse.first, resume = reparse.resume;
+
+		for(int i = first; i < resume; i++)
+			forget(statements.get(i), false);
+
+		int size = first + reparse.statements.size() + statements.size() - resume;
+		int[] starts = Arrays.copyOf(this.starts, size);
+		int[] ends = Arrays.copyOf(this.ends, size);
+		List<Statement> result = new ArrayList<>(size);
+		result.addAll(statements.subList(0, first));
+
+		int index = first;
+		for(Statement statement : reparse.statements) {
+			int[] span = reparse.spans.remove(statement);
+			starts[index] = span[0];
+			ends[index++] = span[1];
+			adopt(statement, span[0], reparse.spans);
+			result.add(statement);
+		}
+		for(int i = resume; i < statements.size(); i++, index++) {
+			starts[index] = this.starts[i] + delta;
+			ends[index] = this.ends[i] + delta;
+			result.add(statements.get(i));
+		}
+		this.starts = starts;
+		this.ends = ends;
+		this.reparsed = reparse.statements.size();
+		return result;
+	}
+
+
+	/**
+	 * Reparses the innermost block whose braces enclose the damage. Returns
+	 * null when there is none, or when the edit moved the block's closing
+	 * brace, so that the enclosing top-level statements must be parsed again.
+	 */
+	private List<Statement> reparseBlock(List<Statement> statements, int damageStart, int damageOldEnd, int damageNewEnd) {
+
+		int top = firstEndingAtOrAfter(this.ends, statements.size(), damageOldEnd);
+		if(top == statements.size() || this.starts[top] > damageStart)
+			return null;
+
+		int base = this.starts[top];
+		int from = damageStart - base, to = damageOldEnd - base;
+		int delta = damageNewEnd - damageOldEnd;
+
+		List<Statement> path = new ArrayList<>();
+		List<int[]> pathSpans = new ArrayList<>();
+		int[] slots = new int[16];
+		path.add(statements.get(top));
+		pathSpans.add(new int[] {0, this.ends[top] - base});
+		int block = -1;
+
+		while(true) {
+			Statement statement = path.get(path.size() - 1);
+			int[] span = pathSpans.get(pathSpans.size() - 1);
+			if(statement instanceof StatementList && span[0] < from && to < span[1])
+				block = path.size() - 1;
+
+			List<Statement> children = children(statement);
+			int slot = children == null ? -1 : enclosing(children, from, to);
+			if(slot < 0)
+				break;
+			if(path.size() == slots.length)
+				slots = Arrays.copyOf(slots, slots.length * 2);
+			slots[path.size()] = slot;
+			path.add(children.get(slot));
+			pathSpans.add(this.spans.get(children.get(slot)));
+		}
+		if(block < 0)
+			return null;
+
+		StatementList list = (StatementList)path.get(block);
+		int[] span = pathSpans.get(block);
+		List<Statement> elements = list.getList();
+		int[] elementEnds = new int[elements.size()];
+		for(int i = 0; i < elementEnds.length; i++)
+			elementEnds[i] = base + this.spans.get(elements.get(i))[1];
+
+		Reparse reparse = reparse(elements, elementEnds, base + span[0] + 1, base + span[1] - 1,
+				damageStart, damageOldEnd, delta);
+		if(reparse == null)
+			return null;
+
+		for(int i = reparse.first; i < reparse.resume; i++)
+			forget(elements.get(i), true);
+		shiftNested(path.get(0), to, delta);
+		for(Map.Entry<Statement, int[]> entry : reparse.spans.entrySet()) {
+			entry.getValue()[0] -= base;
+			entry.getValue()[1] -= base;
+			this.spans.put(entry.getKey(), entry.getValue());
+		}
+
+		StatementList rebuilt = new StatementList();
+		rebuilt.stmtList = new ArrayList<>(elements.size() - reparse.resume + reparse.first + reparse.statements.size());
+		rebuilt.stmtList.addAll(elements.subList(0, reparse.first));
+		rebuilt.stmtList.addAll(reparse.statements);
+		rebuilt.stmtList.addAll(elements.subList(reparse.resume, elements.size()));
+		if(block > 0)
+			this.spans.put(rebuilt, this.spans.remove(list));
+
+		Statement replacement = rebuilt;
+		for(int i = block; i > 0; i--)
+			replacement = replaceChild(path.get(i - 1), slots[i], replacement);
+
+		this.ends[top] += delta;
+		for(int i = top + 1; i < statements.size(); i++) {
+			this.starts[i] += delta;
+			this.ends[i] += delta;
+		}
+		List<Statement> result = new ArrayList<>(statements);
+		result.set(top, replacement);
+		this.reparsed = reparse.statements.size();
+		return result;
+	}
+
+
+	/**
+	 * Parses the statements of one list again from the first one that reaches
+	 * the damage, given their end positions before the edit. {@code close} is
+	 * the position of the list's closing brace before the edit, or -1 for the
+	 * top level. A block whose closing brace moved returns null.
+	 */
+	private Reparse reparse(List<Statement> elements, int[] elementEnds, int open, int close,
+			int damageStart, int damageOldEnd, int delta) {
+
+		Reparse reparse = new Reparse();
+		int size = elements.size();
+		int first = firstEndingAtOrAfter(elementEnds, size, damageStart);
+		int position = first > 0 ? elementEnds[first - 1] : open;
+
+		TokenStream stream = new TokenStream(Arrays.asList(this.tokens).subList(position, this.count));
+		Parser parser = new Parser(stream, position, position > 0 ? this.tokens[position - 1] : null);
+		parser.spans = reparse.spans;
+		int resume = size;
+
+		while(true) {
+			Statement statement;
+			if(close < 0)
+				statement = parser.parseNextStatement();
+			else
+				statement = parser.isAtBlockEnd() ? null : parser.parseStatement();
+			if(statement == null)
+				break;
+			reparse.statements.add(statement);
+
+			int end = parser.position() - delta;
+			if(end >= damageOldEnd) {
+				int last = firstEndingAtOrAfter(elementEnds, size, end);
+				if(last < size && elementEnds[last] == end) {
+					resume = last + 1;
+					break;
+				}
+			}
+		}
+		if(close >= 0 && resume == size && parser.position() != close + delta)
+			return null;
+
+		reparse.first = first;
+		reparse.resume = resume;
+		return reparse;
+	}
+
+
+	/** Index of the first range ending at or after position. */
+	private static int firstEndingAtOrAfter(int[] ends, int size, int position) {
+
+		int low = 0, high = size - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			if(ends[mid] < position)
+				low = mid + 1;
+			else
+				high = mid - 1;
+		}
+		return low;
+	}
+
+
+	/** Index of the nested sibling whose range covers [from, to), or -1. */
+	private int enclosing(List<Statement> siblings, int from, int to) {
+
+		int low = 0, high = siblings.size() - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			if(this.spans.get(siblings.get(mid))[1] < to)
+				low = mid + 1;
+			else
+				high = mid - 1;
+		}
+		if(low == siblings.size())
+			return -1;
+		int[] span = this.spans.get(siblings.get(low));
+		return span[0] <= from && to <= span[1] ? low : -1;
+	}
+
+
+	/** Nested statements in source order, or null for a simple statement. */
+	private static List<Statement> children(Statement statement) {
+
+		if(statement instanceof StatementList)
+			return ((StatementList)statement).getList();
+		if(statement instanceof WhileStatement)
+			return Arrays.asList(((WhileStatement)statement).todoStatement);
+		if(statement instanceof IfStatement) {
+			IfStatement ifStatement = (IfStatement)statement;
+			if(ifStatement.elseStatement == null)
+				return Arrays.asList(ifStatement.thenStatement);
+			return Arrays.asList(ifStatement.thenStatement, ifStatement.elseStatement);
+		}
+		return null;
+	}
+
+
+	/**
+	 * Copies parent with the child at slot, as numbered by {@link #children},
+	 * swapped for replacement. The copy takes over the parent's range.
+	 */
+	private Statement replaceChild(Statement parent, int slot, Statement replacement) {
+
+		Statement copy;
+		if(parent instanceof StatementList) {
+			StatementList list = new StatementList();
+			list.stmtList = new ArrayList<>(((StatementList)parent).getList());
+			list.stmtList.set(slot, replacement);
+			copy = list;
+		}
+		else if(parent instanceof WhileStatement)
+			copy = new WhileStatement(((WhileStatement)parent).condition, replacement);
+		else {
+			IfStatement ifStatement = (IfStatement)parent;
+			copy = slot == 0
+					? new IfStatement(ifStatement.condition, replacement, ifStatement.elseStatement)
+					: new IfStatement(ifStatement.condition, ifStatement.thenStatement, replacement);
+		}
+		int[] span = this.spans.remove(parent);
+		if(span != null)
+			this.spans.put(copy, span);
+		return copy;
+	}
+
+
+	/** Moves the nested ranges of a new top-level statement at start from parsed into the relative map. */
+	private void adopt(Statement statement, int start, Map<Statement, int[]> parsed) {
+
+		Deque<Statement> work = new ArrayDeque<>();
+		pushChildren(work, statement);
+		while(!work.isEmpty()) {
+			Statement next = work.pop();
+			int[] span = parsed.remove(next);
+			span[0] -= start;
+			span[1] -= start;
+			this.spans.put(next, span);
+			pushChildren(work, next);
+		}
+	}
+
+
+	/** Drops the ranges nested in a replaced statement, and its own unless it is top-level. */
+	private void forget(Statement statement, boolean nested) {
+
+		Deque<Statement> work = new ArrayDeque<>();
+		if(nested)
+			work.push(statement);
+		else
+			pushChildren(work, statement);
+		while(!work.isEmpty()) {
+			Statement next = work.pop();
+			this.spans.remove(next);
+			pushChildren(work, next);
+		}
+	}
+
+
+	/** Moves the nested ranges of a top-level statement that lie after the damage, and the ends of those around it. */
+	private void shiftNested(Statement top, int to, int delta) {
+
+		if(delta == 0)
+			return;
+		Deque<Statement> work = new ArrayDeque<>();
+		pushChildren(work, top);
+		while(!work.isEmpty()) {
+			Statement next = work.pop();
+			int[] span = this.spans.get(next);
+			if(span == null || span[1] < to)
+				continue;
+			if(span[0] >= to)
+				span[0] += delta;
+			span[1] += delta;
+			pushChildren(work, next);
+		}
+	}
+
+
+	private static void pushChildren(Deque<Statement> work, Statement statement) {
+
+		List<Statement> children = children(statement);
+		if(children != null) {
+			for(Statement child : children)
+				work.push(child);
+		}
+	}
+
+
+	public List<Statement> getStatements() {
+
+		return this.statements;
+	}
+
+
+	/** Number of statements parsed by the last edit, at the level where parsing restarted. */
+	public int getReparsedCount() {
+
+		return this.reparsed;
+	}
+}
\ No newline at end of file
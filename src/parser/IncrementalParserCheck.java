@@ -0,0 +1,107 @@
+package parser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import ast.AstWriter;
+import ast.Statement;
+import lexer.IncrementalLexer;
+import lexer.TokenBuffer;
+import lexer.TokenStream;
+
+/**
+ * Checks the IncrementalParser against a full parse after every edit.
+ *
+ * <pre>
+ * java parser.IncrementalParserCheck [-edits N] [-seed S] [script.txt]
+ * </pre>
+ *
+ * Makes N random small edits (2000 by default) to a program, each
+ * followed by its undo, and after each edit and each undo compares the
+ * tree the IncrementalParser keeps with a full parse of the same tokens.
+ * The trees are compared in the binary AST format, which holds every
+ * operator's and identifier's line and column as well as the shape, and a
+ * source that does not parse must fail in both. Without a script a
+ * built-in program is used. Exits with status 1 on the first mismatch.
+ */
+public class IncrementalParserCheck {
+
+	private static final String PROGRAM = "INT x = 1; INT y = 2;\nFP f = 0.5; BOOL done = false;\n"
+			+ "WHILE (x < 100 & ~done) {\n\tx = x + y * 3; IF (x > 50) { done = true; } ELSE { y = y + 1; }\n"
+			+ "\tIF (x == 7) XOUT(x); ELSE { f = f * 2.0; XOUT(f); }\n}\n"
+			+ "{ INT z = x + y; XOUT(z); } XOUT(y);\n";
+
+	private static final String[] FRAGMENTS = { "", " ", "  ", "\n", "x", "yy", "1", "100", "+ 1", "* y", ";", "{", "}",
+			"(", ")", "XOUT(x);", "INT q = 3;", "IF (done) ", " ELSE ", "\n\t", "~" };
+
+
+	public static void main(String[] args) throws IOException {
+
+		int edits = 2000;
+		long seed = 1;
+		String text = PROGRAM;
+		for(int i = 0; i < args.length; i++) {
+			if(args[i].equals("-edits"))
+				edits = Integer.parseInt(args[++i]);
+			else if(args[i].equals("-seed"))
+				seed = Long.parseLong(args[++i]);
+			else
+				text = new String(Files.readAllBytes(Paths.get(args[i])), StandardCharsets.UTF_8);
+		}
+
+		// Many edits leave the program broken for a moment; those errors are expected.
+		PrintStream err = System.err;
+		System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+		try {
+			IncrementalLexer lexer = new IncrementalLexer(text);
+			StringBuilder document = new StringBuilder(text);
+			IncrementalParser parser = new IncrementalParser(lexer.getTokenBuffer());
+			Random random = new Random(seed);
+			for(int k = 0; k < edits; k++) {
+				int offset = random.nextInt(document.length() + 1);
+				int removed = Math.min(random.nextInt(6), document.length() - offset);
+				String inserted = FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+				String old = document.substring(offset, offset + removed);
+				if(!check(lexer, parser, document, offset, removed, inserted)
+						|| !check(lexer, parser, document, offset, inserted.length(), old)) {
+					err.println("Mismatch after edit " + k + ": offset " + offset + ", removed '" + old + "', inserted '"
+							+ inserted + "'");
+					System.exit(1);
+				}
+			}
+		} finally {
+			System.setErr(err);
+		}
+		System.out.println(edits + " edits and their undos match a full parse");
+	}
+
+
+	private static boolean check(IncrementalLexer lexer, IncrementalParser parser, StringBuilder document, int offset,
+			int removed, String inserted) {
+
+		document.replace(offset, offset + removed, inserted);
+		TokenBuffer tokens = lexer.edit(offset, removed, inserted);
+		if(tokens == null)
+			return true;
+
+		byte[] incremental = null, full = null;
+		try {
+			incremental = AstWriter.toBytes(parser.edit(tokens, lexer.getDamageStart(), lexer.getDamageOldEnd(),
+					lexer.getDamageNewEnd()));
+		} catch(CodeXRuntimeException e) {
+		}
+		try {
+			List<Statement> program = new Parser(new TokenStream(tokens)).parseStatementList();
+			full = AstWriter.toBytes(program);
+		} catch(CodeXRuntimeException e) {
+		}
+		return Arrays.equals(incremental, full);
+	}
+}
\ No newline at end of file
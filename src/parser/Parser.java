@@ -1,425 +1,699 @@
-package parser;
-
-import java.util.ArrayList;
-import java.util.List;
-
-import lexer.Token;
-import lexer.TokenType;
-import ast.Statement;
-import ast.Statement.Declaration;
-import ast.Statement.DeclarationList;
-import ast.Statement.StatementList;
-import ast.Expression;
-import ast.DataType;
-
-public class Parser {
-	
-	private final List<Token> tokenList;
-	private int current = 0;
-
-	public Parser(List<Token> tokenList) {
-		
-	    this.tokenList = tokenList;
-	}
-	
-	
-	@SuppressWarnings("serial")
-	private static class ParseError extends CodeXRuntimeException {}
-	
-	
-	private ParseError error(Token token, String message) {
-		CodeXRuntimeException.error(previousToken(), message);
-		return new ParseError();
-	}
-	
-	
-	private Token getNextToken() {
-		
-		if(!isAtLastToken())
-			current++;
-		return previousToken();
-	}
-	
-	
-	private Token currentToken() {
-		
-		return tokenList.get(current);
-	}
-	
-	
-	private Token previousToken() {
-		
-		return tokenList.get(current - 1);
-	}
-	
-	
-	private Token consume(TokenType type, String message) {
-		
-		if(isAcceptableToken(type))
-			return getNextToken();
-		throw error(currentToken(), message);
-	}
-	
-	
-	private boolean isAtLastToken() {
-		
-		return currentToken().type == TokenType.EOF;
-	}
-	
-	
-	private boolean hasMatchingToken(TokenType... type) {
-		
-		for(TokenType tokType : type) {
-			if(isAcceptableToken(tokType)) {
-				getNextToken();
-				return true;
-			}
-		}
-		return false;
-	}
-	
-	
-	private boolean isAcceptableToken(TokenType type) {
-		
-		if(isAtLastToken())
-			return false;
-		return currentToken().type == type;
-	}
-	
-	/*
-	public void parseProgram() {
-		try {
-			parseStatementList(); 	
-		} catch (ParseError e) {
-			moveToNextStmt();
-		}
-	}*/
-	
-	
-	public List<Statement> parseStatementList() {
-		
-		List<Statement> statementList = new ArrayList<>();
-		
-		//StatementList stmtList = new StatementList();
-		while(!isAtLastToken()) {
-			if(!isStatement())
-				moveToNextStmt();
-			else
-				statementList.add(parseStatement());
-		}
-		return statementList;
-	}
-	
-	
-	public Statement parseStatement() {
-		
-		if(hasMatchingToken(TokenType.INT, TokenType.FP, TokenType.CHAR, TokenType.BOOL, TokenType.STR)) 
-			return parseDeclarationList();
-			
-		if(hasMatchingToken(TokenType.IF)) 
-			return parseIfStatement();
-	
-		if(hasMatchingToken(TokenType.WHILE)) 
-			return parseWhileStatement();
-			
-		if(hasMatchingToken(TokenType.XOUT)) 
-			return parsePrintStatement();
-			
-		if(hasMatchingToken(TokenType.XIN)) 
-			return parseInputStatement();
-			
-		if(hasMatchingToken(TokenType.LBRACE)) 
-			return parseBlockStatement();
-			
-		else
-			return parseExpressionStmt();
-	}
-	
-	
-	private Statement parseDeclarationList() {
-		
-		Statement.DeclarationList decList = new DeclarationList();
-		Declaration declaration = parseDeclaration();
-		decList.addElement(declaration);
-		
-		while(hasMatchingToken(TokenType.COMMA)) {
-			Declaration newDeclaration = new Declaration(declaration.getType(), parseInitializer());
-			decList.addElement(newDeclaration);
-		}
-		consume(TokenType.SEMI, "Expected ';'");
-		return decList;
-	}
-	
-	
-	private Declaration parseDeclaration() {
-		
-		return new Statement.Declaration(parseDataType(), parseInitializer());
-	}
-	
-	
-	private DataType parseDataType() {
-		
-		switch(previousToken().type) {
-			case INT: return new DataType.IntDataType();
-			case FP:  return new DataType.FloatDataType();
-			case BOOL:return new DataType.BooleanDataType();
-			case CHAR:return new DataType.CharDataType();
-			case STR: return new DataType.StringDataType();
-			default:
-				return null;
-		}
-	}
-	
-	
-	private Expression parseInitializer() {
-		
-		return parseExpression();
-	}
-	
-	
-	private Statement parseExpressionStmt() {
-		
-		Expression expression = parseExpression();
-		consume(TokenType.SEMI, "Expected ';'");
-		return new Statement.ExpressionStmt(expression);
-	}
-	
-	
-	private Statement parseIfStatement() {
-		
-		consume(TokenType.LPAREN, "Expected '(' after 'IF'");
-		Expression condition = parseExpression();
-		consume(TokenType.RPAREN, "Expected ')' after IF statement");
-		
-		Statement thenStatement = parseStatement();
-		Statement elseStatement = null;
-		
-		if(hasMatchingToken(TokenType.ELSE))
-			elseStatement = parseStatement();
-		
-		return new Statement.IfStatement(condition, thenStatement, elseStatement);
-	}
-	
-	
-	private Statement parseWhileStatement() {
-		
-		consume(TokenType.LPAREN, "Expected '(' after 'WHILE'");
-		Expression condition = parseExpression();
-		consume(TokenType.RPAREN, "Expected ')' after WHILE statement");
-		
-		Statement todoStatement = parseStatement();
-		
-		return new Statement.WhileStatement(condition, todoStatement);
-	}
-	
-	
-	private Statement parsePrintStatement() {
-
-		consume(TokenType.LPAREN, "Expected '(' after 'XOUT'");
-		Expression expression = parseExpression();
-		consume(TokenType.RPAREN, "Expected ')' after XOUT statement");
-		
-		consume(TokenType.SEMI, "Expected ';'");
-		return new Statement.PrintStatement(expression);
-	}
-	
-	
-	private Statement parseInputStatement() {
-		
-		consume(TokenType.LPAREN, "Expected '(' after 'XIN'");
-		Expression expression = parsePrimary();
-		consume(TokenType.RPAREN, "Expected ')' after XIN statement");
-		
-		consume(TokenType.SEMI, "Expected ';'");
-		return new Statement.InputStatement(expression);
-	}
-	
-	
-	private StatementList parseBlockStatement() {
-		
-		StatementList stmtList = new StatementList();
-		
-		while(!isAcceptableToken(TokenType.RBRACE) && !isAtLastToken())
-			stmtList.addElement(parseStatement());
-		
-		consume(TokenType.RBRACE, "Expected '}' after statement block");
-		return stmtList;
-	}
-	
-	
-	public Expression parseExpression() {
-
-		return parseAssignment();
-	}
-	
-	
-	private Expression parseAssignment() {
-		
-		Expression expression = parseLogOr();
-		
-		if(hasMatchingToken(TokenType.EQUAL)) {
-			Token operand = previousToken();
-			Expression rhs = parseExpression();
-			new Expression.Assignment(expression, operand, rhs);
-		}
-		return expression;
-	}
-	
-
-	private Expression parseLogOr() {
-		
-		Expression expression = parseLogAnd();
-		
-		if(hasMatchingToken(TokenType.OR)) {
-			Token operand = previousToken();
-			Expression rhs = parseLogAnd();
-			return new Expression.LogOr(expression, operand, rhs);
-		}
-		return expression;
-	}
-	
-	
-	private Expression parseLogAnd() {
-		
-		Expression expression = parseEquality();
-		
-		if(hasMatchingToken(TokenType.AND)) {
-			Token operand = previousToken();
-			Expression rhs = parseEquality();
-			return new Expression.LogOr(expression, operand, rhs);
-		}
-		return expression;
-	}
-	
-	
-	private Expression parseEquality() {
-		
-		Expression expression = parseRelational();
-		
-		if(hasMatchingToken(TokenType.EQUALTO, TokenType.NEQUALTO)) {
-			Token operand = previousToken();
-			Expression rhs = parseRelational();
-			return new Expression.LogOr(expression, operand, rhs);
-		}
-		return expression;
-	}
-	
-	
-	private Expression parseRelational() {
-		
-		Expression expression = parseAdditive();
-		
-		while(hasMatchingToken(TokenType.GREATER, TokenType.GREATEREQ, TokenType.LESS, TokenType.LESSEQ)) {
-			Token operand = previousToken();
-			Expression rhs = parseAdditive();
-			return new Expression.Relational(expression, operand, rhs);
-		}
-		return expression;
-	}
-	
-	
-	private Expression parseAdditive() {
-		
-		Expression expression = parseMultiplicative();
-		
-		while(hasMatchingToken(TokenType.PLUS, TokenType.MINUS)) {
-			Token operand = previousToken();
-			Expression rhs = parseMultiplicative();
-			return new Expression.Additive(expression, operand, rhs);
-		}
-		return expression;
-	}
-	
-	
-	private Expression parseMultiplicative() {
-		
-		Expression expression = parseUnary();
-		
-		while(hasMatchingToken(TokenType.MULTI, TokenType.DIV)) {
-			Token operand = previousToken();
-			Expression rhs = parseUnary();
-			return new Expression.Multiplicative(expression, operand, rhs);
-		}
-		return expression;
-	}
-	
-	
-	private Expression parseUnary() {
-		
-		if(hasMatchingToken(TokenType.NOT)) {
-			Token operand = previousToken();
-			Expression rhs = parseUnary();
-			return new Expression.Unary(operand, rhs);
-		}
-		return parsePrimary();
-	}
-	
-	
-	private Expression parsePrimary() {
-		
-		if(hasMatchingToken(TokenType.CONST_INT, TokenType.CONST_FLOAT, TokenType.CONST_CHAR,
-							TokenType.CONST_BOOL, TokenType.CONST_STR)) {
-			return new Expression.Constant(previousToken().value);
-		}
-		
-		if(hasMatchingToken(TokenType.IDENT)) {
-			return new Expression.Identifier(previousToken());
-		}
-			
-		
-		if(hasMatchingToken(TokenType.LPAREN)) {
-			Expression expression = parseExpression();
-			consume(TokenType.RPAREN, "Expect ')' after expression");
-			return new Expression.Grouped(expression);
-		}
-		
-		throw error(currentToken(), "Unexpected token " + currentToken().value);
-	}
-	
-	private boolean isStatement() {
-		switch(currentToken().type){
-			case IDENT:
-			case SEMI :
-			case IF :
-			case WHILE :
-			case XOUT:
-			case XIN:
-			case LPAREN:
-			case LBRACE:
-			case INT:
-			case FP:
-			case CHAR:
-			case BOOL:
-			case STR:
-				return true;
-			default:
-				return false;
-		}
-	}
-	
-	
-	private void moveToNextStmt() {
-		
-		getNextToken();
-
-		while(!isAtLastToken()) {
-			if(previousToken().type == TokenType.SEMI) return;
-
-			switch(currentToken().type) {
-				case IF:
-				case WHILE:
-				case XOUT:
-				case XIN:
-				case INT:
-				case FP:
-				case CHAR:
-				case BOOL:
-				case STR:
-					return;
-				default:
-					break;
-			}
-			getNextToken();
-		}  	
-	}
+package parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import lexer.Token;
+import lexer.TokenStream;
+import lexer.TokenType;
+import ast.Statement;
+import ast.Statement.Declaration;
+import ast.Statement.DeclarationList;
+import ast.Statement.StatementList;
+import ast.Expression;
+import ast.DataType;
+
+public class Parser {
+	
+	//Binary operator precedence, lowest first; 0 for every other token
+	private static final int ASSIGNMENT = 1, LOG_OR = 2, LOG_AND = 3,
+			EQUALITY = 4, RELATIONAL = 5, ADDITIVE = 6, MULTIPLICATIVE = 7;
+	private static final int[] PRECEDENCE = new int[TokenType.values().length];
+	private static final int MAX_DEPTH = 256;
+	
+	static {
+		PRECEDENCE[TokenType.EQUAL.ordinal()] = ASSIGNMENT;
+		PRECEDENCE[TokenType.OR.ordinal()] = LOG_OR;
+		PRECEDENCE[TokenType.AND.ordinal()] = LOG_AND;
+		PRECEDENCE[TokenType.EQUALTO.ordinal()] = EQUALITY;
+		PRECEDENCE[TokenType.NEQUALTO.ordinal()] = EQUALITY;
+		PRECEDENCE[TokenType.GREATER.ordinal()] = RELATIONAL;
+		PRECEDENCE[TokenType.GREATEREQ.ordinal()] = RELATIONAL;
+		PRECEDENCE[TokenType.LESS.ordinal()] = RELATIONAL;
+		PRECEDENCE[TokenType.LESSEQ.ordinal()] = RELATIONAL;
+		PRECEDENCE[TokenType.PLUS.ordinal()] = ADDITIVE;
+		PRECEDENCE[TokenType.MINUS.ordinal()] = ADDITIVE;
+		PRECEDENCE[TokenType.MULTI.ordinal()] = MULTIPLICATIVE;
+		PRECEDENCE[TokenType.DIV.ordinal()] = MULTIPLICATIVE;
+		PRECEDENCE[TokenType.MOD.ordinal()] = MULTIPLICATIVE;
+	}
+	
+	private final TokenStream tokenStream;
+	private Token current, previous;
+	private Expression[] operands = new Expression[16];
+	private Token[] operators = new Token[16];
+	private int operandCount, operatorCount, depth;
+	private final Deque<Frame> frames = new ArrayDeque<>();
+	private int position;
+	private Diagnostics diagnostics;
+	private boolean flushDiagnostics = true;
+	/** Token span [start, end) of every parsed statement; only kept when set by {@link IncrementalParser}. */
+	Map<Statement, int[]> spans;
+
+	public Parser(List<Token> tokenList) {
+		
+	    this(new TokenStream(tokenList));
+	}
+	
+	
+	public Parser(TokenStream tokenStream) {
+		
+		this.tokenStream = tokenStream;
+		this.current = tokenStream.next();
+	}
+	
+	
+	/** Resumes parsing mid-program: the stream's first token sits at {@code position}, after {@code previous}. */
+	Parser(TokenStream tokenStream, int position, Token previous) {
+		
+		this(tokenStream);
+		this.position = position;
+		this.previous = previous;
+	}
+	
+	
+	/** A compound statement whose body is still being parsed. */
+	private static class Frame {
+		
+		TokenType kind;
+		int start;
+		Expression condition;
+		Statement thenStatement;
+		StatementList block;
+		
+		Frame(TokenType kind, int start, Expression condition) {
+			this.kind = kind;
+			this.start = start;
+			this.condition = condition;
+			if(kind == TokenType.LBRACE)
+				this.block = new StatementList();
+		}
+	}
+	
+	
+	@SuppressWarnings("serial")
+	private static class ParseError extends CodeXRuntimeException {
+		
+		ParseError() {
+			super("Parse error", true);
+		}
+	}
+	
+	private static final ParseError PARSE_ERROR = new ParseError();
+	
+	
+	/**
+	 * Collects errors into diagnostics instead of printing them; the caller
+	 * decides when to flush.
+	 */
+	public void setDiagnostics(Diagnostics diagnostics) {
+		
+		this.diagnostics = diagnostics;
+		this.flushDiagnostics = false;
+	}
+	
+	
+	public Diagnostics getDiagnostics() {
+		
+		if(diagnostics == null)
+			diagnostics = new Diagnostics();
+		return diagnostics;
+	}
+	
+	
+	/** Reports at the token before the offending one, where a missing token belongs. */
+	private ParseError error(Token token, String message) {
+		
+		Token at = previousToken() != null ? previousToken() : token;
+		return error(Diagnostic.Code.EXPECTED_TOKEN, at, message);
+	}
+	
+	
+	private ParseError error(Diagnostic.Code code, Token token, String message) {
+		
+		boolean end = token.type == TokenType.EOF;
+		getDiagnostics().report(code, token.line, token.column, end ? 0 : token.lexeme.length(),
+				end ? null : token.lexeme, message);
+		return PARSE_ERROR;
+	}
+	
+	
+	private void flushDiagnostics() {
+		
+		if(flushDiagnostics && diagnostics != null)
+			diagnostics.flush(System.err);
+	}
+	
+	
+	private Token getNextToken() {
+		
+		if(!isAtLastToken()) {
+			previous = current;
+			current = tokenStream.next();
+			position++;
+		}
+		return previousToken();
+	}
+	
+	
+	private Token currentToken() {
+		
+		return current;
+	}
+	
+	
+	private Token previousToken() {
+		
+		return previous;
+	}
+	
+	
+	private Token consume(TokenType type, String message) {
+		
+		if(isAcceptableToken(type))
+			return getNextToken();
+		throw error(currentToken(), message);
+	}
+	
+	
+	private boolean isAtLastToken() {
+		
+		return currentToken().type == TokenType.EOF;
+	}
+	
+	
+	/** Index of the current token in the token sequence. */
+	int position() {
+		
+		return position;
+	}
+	
+	
+	/** True where a statement list stops: at '}' or at the end of input. */
+	boolean isAtBlockEnd() {
+		
+		return isAcceptableToken(TokenType.RBRACE) || isAtLastToken();
+	}
+	
+	
+	private boolean hasMatchingToken(TokenType type) {
+		
+		if(isAcceptableToken(type)) {
+			getNextToken();
+			return true;
+		}
+		return false;
+	}
+	
+	
+	private boolean isAcceptableToken(TokenType type) {
+		
+		if(isAtLastToken())
+			return false;
+		return currentToken().type == type;
+	}
+	
+	/*
+	public void parseProgram() {
+		try {
+			parseStatementList(); 	
+		} catch (ParseError e) {
+			moveToNextStmt();
+		}
+	}*/
+	
+	
+	/**
+	 * Parses the whole program. After a syntax error the parser skips to the
+	 * next statement and carries on, so one run reports every error; if there
+	 * were any, they are printed together, unless a collector was set, and
+	 * parsing fails at the end.
+	 */
+	public List<Statement> parseStatementList() {
+		
+		List<Statement> statementList = new ArrayList<>();
+		boolean failed = false;
+		
+		//StatementList stmtList = new StatementList();
+		while(true) {
+			try {
+				Statement statement = nextStatement();
+				if(statement == null)
+					break;
+				statementList.add(statement);
+			} catch(ParseError pe) {
+				failed = true;
+				moveToNextStmt();
+			}
+		}
+		if(failed) {
+			flushDiagnostics();
+			throw PARSE_ERROR;
+		}
+		return statementList;
+	}
+	
+	
+	public Statement parseNextStatement() {
+		
+		try {
+			return nextStatement();
+		} catch(ParseError pe) {
+			flushDiagnostics();
+			throw pe;
+		}
+	}
+	
+	
+	private Statement nextStatement() {
+		
+		while(!isAtLastToken()) {
+			if(!isStatement())
+				moveToNextStmt();
+			else
+				return statement();
+		}
+		return null;
+	}
+	
+	
+	/**
+	 * Parses one statement without recursing into nested statements: IF, WHILE
+	 * and block bodies are tracked on an explicit frame stack, so nesting depth
+	 * is bounded by the heap instead of the thread stack.
+	 */
+	public Statement parseStatement() {
+		
+		try {
+			return statement();
+		} catch(ParseError pe) {
+			flushDiagnostics();
+			throw pe;
+		}
+	}
+	
+	
+	private Statement statement() {
+		
+		Deque<Frame> frames = this.frames;
+		frames.clear();
+		this.depth = 0;
+		this.operandCount = 0;
+		this.operatorCount = 0;
+		
+		while(true) {
+			Statement statement = parseStatementHead(frames);
+			
+			while(statement != null) {
+				if(frames.isEmpty())
+					return statement;
+				statement = completeFrame(frames, statement);
+			}
+		}
+	}
+	
+	
+	/** Parses a simple statement, or opens a frame and returns null. */
+	private Statement parseStatementHead(Deque<Frame> frames) {
+		
+		int start = this.position;
+		
+		switch(currentToken().type) {
+			case INT:
+			case FP:
+			case CHAR:
+			case BOOL:
+			case STR:
+				getNextToken();
+				return span(parseDeclarationList(), start);
+			case IF:
+				getNextToken();
+				frames.push(new Frame(TokenType.IF, start, parseCondition("IF")));
+				return null;
+			case WHILE:
+				getNextToken();
+				frames.push(new Frame(TokenType.WHILE, start, parseCondition("WHILE")));
+				return null;
+			case XOUT:
+				getNextToken();
+				return span(parsePrintStatement(), start);
+			case XIN:
+				getNextToken();
+				return span(parseInputStatement(), start);
+			case LBRACE:
+				getNextToken();
+				frames.push(new Frame(TokenType.LBRACE, start, null));
+				return closeBlock(frames);
+			default:
+				return span(parseExpressionStmt(), start);
+		}
+	}
+	
+	
+	private Statement span(Statement statement, int start) {
+		
+		if(spans != null)
+			spans.put(statement, new int[] {start, this.position});
+		return statement;
+	}
+	
+	
+	/** Hands a finished statement to the innermost frame; returns the frame's statement once it is complete. */
+	private Statement completeFrame(Deque<Frame> frames, Statement statement) {
+		
+		Frame frame = frames.peek();
+		
+		switch(frame.kind) {
+			case IF:
+				if(hasMatchingToken(TokenType.ELSE)) {
+					frame.kind = TokenType.ELSE;
+					frame.thenStatement = statement;
+					return null;
+				}
+				frames.pop();
+				return span(new Statement.IfStatement(frame.condition, statement, null), frame.start);
+			case ELSE:
+				frames.pop();
+				return span(new Statement.IfStatement(frame.condition, frame.thenStatement, statement), frame.start);
+			case WHILE:
+				frames.pop();
+				return span(new Statement.WhileStatement(frame.condition, statement), frame.start);
+			default:
+				frame.block.addElement(statement);
+				return closeBlock(frames);
+		}
+	}
+	
+	
+	private Statement closeBlock(Deque<Frame> frames) {
+		
+		if(!isAcceptableToken(TokenType.RBRACE) && !isAtLastToken())
+			return null;
+		
+		consume(TokenType.RBRACE, "Expected '}' after statement block");
+		Frame frame = frames.pop();
+		return span(frame.block, frame.start);
+	}
+	
+	
+	private Expression parseCondition(String keyword) {
+		
+		consume(TokenType.LPAREN, "Expected '(' after '" + keyword + "'");
+		Expression condition = parseExpression();
+		consume(TokenType.RPAREN, "Expected ')' after " + keyword + " statement");
+		return condition;
+	}
+	
+	
+	private Statement parseDeclarationList() {
+		
+		Statement.DeclarationList decList = new DeclarationList();
+		Declaration declaration = parseDeclaration();
+		decList.addElement(declaration);
+		
+		while(hasMatchingToken(TokenType.COMMA)) {
+			Declaration newDeclaration = new Declaration(declaration.getType(), parseInitializer());
+			decList.addElement(newDeclaration);
+		}
+		consume(TokenType.SEMI, "Expected ';'");
+		return decList;
+	}
+	
+	
+	private Declaration parseDeclaration() {
+		
+		return new Statement.Declaration(parseDataType(), parseInitializer());
+	}
+	
+	
+	private DataType parseDataType() {
+		
+		switch(previousToken().type) {
+			case INT: return new DataType.IntDataType();
+			case FP:  return new DataType.FloatDataType();
+			case BOOL:return new DataType.BooleanDataType();
+			case CHAR:return new DataType.CharDataType();
+			case STR: return new DataType.StringDataType();
+			default:
+				return null;
+		}
+	}
+	
+	
+	private Expression parseInitializer() {
+		
+		return parseExpression();
+	}
+	
+	
+	private Statement parseExpressionStmt() {
+		
+		Expression expression = parseExpression();
+		consume(TokenType.SEMI, "Expected ';'");
+		return new Statement.ExpressionStmt(expression);
+	}
+	
+	
+	private Statement parsePrintStatement() {
+
+		consume(TokenType.LPAREN, "Expected '(' after 'XOUT'");
+		Expression expression = parseExpression();
+		consume(TokenType.RPAREN, "Expected ')' after XOUT statement");
+		
+		consume(TokenType.SEMI, "Expected ';'");
+		return new Statement.PrintStatement(expression);
+	}
+	
+	
+	private Statement parseInputStatement() {
+		
+		consume(TokenType.LPAREN, "Expected '(' after 'XIN'");
+		Expression expression = parsePrimary();
+		consume(TokenType.RPAREN, "Expected ')' after XIN statement");
+		
+		consume(TokenType.SEMI, "Expected ';'");
+		return new Statement.InputStatement(expression);
+	}
+	
+	
+	public Expression parseExpression() {
+
+		return parseExpression(ASSIGNMENT);
+	}
+	
+	
+	private Expression parseExpression(int minPrecedence) {
+		
+		if(this.depth >= MAX_DEPTH)
+			return parseNestedExpression(minPrecedence);
+		
+		this.depth++;
+		Expression expression = parseUnary();
+		int precedence;
+		
+		while((precedence = PRECEDENCE[currentToken().type.ordinal()]) >= minPrecedence) {
+			Token operator = getNextToken();
+			Expression rhs = parseExpression(precedence == ASSIGNMENT ? ASSIGNMENT : precedence + 1);
+			expression = binary(precedence, expression, operator, rhs);
+		}
+		this.depth--;
+		return expression;
+	}
+	
+	
+	/**
+	 * Same grammar as parseExpression(int), on explicit operand and operator
+	 * stacks. Used once the recursion gets deep, so deeply nested expressions
+	 * only cost heap. NOT and '(' are stacked as prefixes, and a NOT is applied
+	 * as soon as its operand is complete.
+	 */
+	private Expression parseNestedExpression(int minPrecedence) {
+		
+		int base = this.operatorCount, open = 0;
+		
+		while(true) {
+			TokenType type;
+			while((type = currentToken().type) == TokenType.NOT || type == TokenType.LPAREN) {
+				if(type == TokenType.LPAREN)
+					open++;
+				pushOperator(getNextToken());
+			}
+			push(parseAtom());
+			applyUnary(base);
+			
+			while(open > 0 && currentToken().type == TokenType.RPAREN) {
+				getNextToken();
+				reduce(base, 0);
+				this.operatorCount--;
+				push(new Expression.Grouped(pop()));
+				open--;
+				applyUnary(base);
+			}
+			
+			int precedence = PRECEDENCE[currentToken().type.ordinal()];
+			if(precedence == 0 || (open == 0 && precedence < minPrecedence))
+				break;
+			reduce(base, precedence == ASSIGNMENT ? precedence + 1 : precedence);
+			pushOperator(getNextToken());
+		}
+		
+		if(open > 0)
+			consume(TokenType.RPAREN, "Expect ')' after expression");
+		reduce(base, 0);
+		return pop();
+	}
+	
+	
+	/** Applies stacked binary operators down to the innermost '(' while their precedence is at least minPrecedence. */
+	private void reduce(int base, int minPrecedence) {
+		
+		while(this.operatorCount > base) {
+			Token operator = this.operators[this.operatorCount - 1];
+			int precedence = PRECEDENCE[operator.type.ordinal()];
+			if(precedence == 0 || precedence < minPrecedence)
+				return;
+			
+			this.operatorCount--;
+			Expression rhs = pop();
+			push(binary(precedence, pop(), operator, rhs));
+		}
+	}
+	
+	
+	private void applyUnary(int base) {
+		
+		while(this.operatorCount > base && this.operators[this.operatorCount - 1].type == TokenType.NOT)
+			push(new Expression.Unary(this.operators[--this.operatorCount], pop()));
+	}
+	
+	
+	private void pushOperator(Token operator) {
+		
+		if(this.operatorCount == this.operators.length)
+			this.operators = Arrays.copyOf(this.operators, this.operatorCount * 2);
+		this.operators[this.operatorCount++] = operator;
+	}
+	
+	
+	private void push(Expression expression) {
+		
+		if(this.operandCount == this.operands.length)
+			this.operands = Arrays.copyOf(this.operands, this.operandCount * 2);
+		this.operands[this.operandCount++] = expression;
+	}
+	
+	
+	private Expression pop() {
+		
+		Expression expression = this.operands[--this.operandCount];
+		this.operands[this.operandCount] = null;
+		return expression;
+	}
+	
+	
+	private Expression binary(int precedence, Expression lhs, Token operator, Expression rhs) {
+		
+		switch(precedence) {
+			case ASSIGNMENT:	return new Expression.Assignment(lhs, operator, rhs);
+			case LOG_OR:		return new Expression.LogOr(lhs, operator, rhs);
+			case LOG_AND:		return new Expression.LogAnd(lhs, operator, rhs);
+			case EQUALITY:		return new Expression.Equality(lhs, operator, rhs);
+			case RELATIONAL:	return new Expression.Relational(lhs, operator, rhs);
+			case ADDITIVE:		return new Expression.Additive(lhs, operator, rhs);
+			default:			return new Expression.Multiplicative(lhs, operator, rhs);
+		}
+	}
+	
+	
+	private Expression parseUnary() {
+		
+		int base = this.operatorCount;
+		while(hasMatchingToken(TokenType.NOT))
+			pushOperator(previousToken());
+		
+		Expression expression = parsePrimary();
+		while(this.operatorCount > base)
+			expression = new Expression.Unary(this.operators[--this.operatorCount], expression);
+		return expression;
+	}
+	
+	
+	private Expression parsePrimary() {
+		
+		if(hasMatchingToken(TokenType.LPAREN)) {
+			Expression expression = parseExpression();
+			consume(TokenType.RPAREN, "Expect ')' after expression");
+			return new Expression.Grouped(expression);
+		}
+		return parseAtom();
+	}
+	
+	
+	private Expression parseAtom() {
+		
+		switch(currentToken().type) {
+			case CONST_INT:
+			case CONST_FLOAT:
+			case CONST_CHAR:
+			case CONST_BOOL:
+			case CONST_STR:
+				return new Expression.Constant(getNextToken().value);
+			case IDENT:
+				return new Expression.Identifier(getNextToken());
+			default:
+				throw error(Diagnostic.Code.UNEXPECTED_TOKEN, currentToken(), "Unexpected token");
+		}
+	}
+	
+	
+	private boolean isStatement() {
+		switch(currentToken().type){
+			case IDENT:
+			case SEMI :
+			case IF :
+			case WHILE :
+			case XOUT:
+			case XIN:
+			case LPAREN:
+			case LBRACE:
+			case INT:
+			case FP:
+			case CHAR:
+			case BOOL:
+			case STR:
+				return true;
+			default:
+				return false;
+		}
+	}
+	
+	
+	private void moveToNextStmt() {
+		
+		getNextToken();
+
+		while(!isAtLastToken()) {
+			if(previousToken().type == TokenType.SEMI) return;
+
+			switch(currentToken().type) {
+				case IF:
+				case WHILE:
+				case XOUT:
+				case XIN:
+				case INT:
+				case FP:
+				case CHAR:
+				case BOOL:
+				case STR:
+					return;
+				default:
+					break;
+			}
+			getNextToken();
+		}  	
+	}
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package parser;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import lexer.Lexer;
+import lexer.Token;
+import lexer.TokenBuffer;
+import lexer.TokenStream;
+
+/**
+ * Measures parser throughput in million tokens per second, on tokens that
+ * were lexed beforehand so the lexer is not timed.
+ *
+ * <pre>
+ * java parser.ParserBenchmark [-runs N] [-statements N] [script.txt...]
+ * </pre>
+ *
+ * Without scripts a generated program of 200000 expression-heavy
+ * statements is parsed. It is parsed once from a token list and once from
+ * a TokenBuffer, and each column is the best of N runs (20 by default)
+ * after N / 2 warm-up runs, in CPU time of the parsing thread.
+ */
+public class ParserBenchmark {
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	private static final String[] STATEMENTS = {
+			"XOUT((a# + b#) * (c# - d#) > (e# / f#) & ~(g# == h#) | k# <= 3);",
+			"x# = ((y + #) * (z - 2.5)) / ((w + 1) * (v - 7));",
+			"r# = s# = t# + u# * v# - w# % 7;",
+			"IF (n# >= 10 & ~done | n# == 0) { total = total + n# * 2; } ELSE { XOUT(n#); }",
+			"WHILE (i# < 100 & ~(i# == 50)) { i# = i# + 1; }" };
+
+
+	public static void main(String[] args) throws IOException {
+
+		int runs = 20, statements = 200000, first = 0;
+		while(first + 1 < args.length && args[first].startsWith("-")) {
+			if(args[first].equals("-runs"))
+				runs = Integer.parseInt(args[first + 1]);
+			else if(args[first].equals("-statements"))
+				statements = Integer.parseInt(args[first + 1]);
+			first += 2;
+		}
+
+		System.out.printf("%-16s %12s %10s %16s %16s%n", "source", "statements", "tokens", "token list", "token buffer");
+		if(first == args.length)
+			measure("generated", generate(statements), runs);
+		for(int i = first; i < args.length; i++)
+			measure(Paths.get(args[i]).getFileName().toString(),
+					new String(Files.readAllBytes(Paths.get(args[i])), StandardCharsets.UTF_8), runs);
+	}
+
+
+	private static void measure(String name, String source, int runs) {
+
+		List<Token> tokenList = new Lexer(source).getToken();
+		TokenBuffer tokenBuffer = new Lexer(source).getTokenBuffer();
+		int statements = new Parser(tokenList).parseStatementList().size();
+
+		long list = Long.MAX_VALUE, buffer = Long.MAX_VALUE;
+		for(int run = -runs / 2; run < runs; run++) {
+			long start = THREADS.getCurrentThreadCpuTime();
+			new Parser(tokenList).parseStatementList();
+			long middle = THREADS.getCurrentThreadCpuTime();
+			new Parser(new TokenStream(tokenBuffer)).parseStatementList();
+			long end = THREADS.getCurrentThreadCpuTime();
+			if(run >= 0) {
+				list = Math.min(list, middle - start);
+				buffer = Math.min(buffer, end - middle);
+			}
+		}
+		System.out.printf("%-16s %12d %10d %9.1f M tok/s %9.1f M tok/s%n", name, statements, tokenList.size(),
+				tokenList.size() / (list / 1e3), tokenList.size() / (buffer / 1e3));
+	}
+
+
+	/** The templates in turn, each # replaced by the statement's number. */
+	private static String generate(int statements) {
+
+		StringBuilder source = new StringBuilder();
+		for(int i = 0; i < statements; i++)
+			source.append(STATEMENTS[i % STATEMENTS.length].replace("#", Integer.toString(i))).append('\n');
+		return source.toString();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+package parser;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ast.Statement;
+import lexer.SymbolTable;
+import lexer.TokenBuffer;
+
+/**
+ * The result of compiling a directory of scripts: one Unit per file, in
+ * path order. The program of the project is the top-level statements of all
+ * files, one file after the other. Identifier symbol ids come from one
+ * SymbolTable for the whole project, filled file by file in path order, so
+ * a name has the same id in every file.
+ */
+public class Project {
+
+	public static class Unit {
+
+		public final Path path;
+		public final Diagnostics diagnostics;
+		TokenBuffer tokens;
+		List<Statement> program;
+
+		Unit(Path path) {
+			this.path = path;
+			this.diagnostics = new Diagnostics();
+		}
+
+		/** The parsed file, or null if it had errors. */
+		public List<Statement> getProgram() {
+			return program;
+		}
+
+		public boolean hasErrors() {
+			return diagnostics.hasErrors();
+		}
+	}
+
+	private final Path root;
+	private final List<Unit> units;
+	private final SymbolTable symbols;
+
+	Project(Path root, List<Unit> units, SymbolTable symbols) {
+		this.root = root;
+		this.units = Collections.unmodifiableList(units);
+		this.symbols = symbols;
+	}
+
+
+	public Path getRoot() {
+
+		return root;
+	}
+
+
+	public List<Unit> getUnits() {
+
+		return units;
+	}
+
+
+	/** The table the symbol ids of every unit refer to. */
+	public SymbolTable getSymbols() {
+
+		return symbols;
+	}
+
+
+	public boolean hasErrors() {
+
+		for(Unit unit : units)
+			if(unit.hasErrors())
+				return true;
+		return false;
+	}
+
+
+	/** The statements of every file that parsed, in path order. */
+	public List<Statement> getProgram() {
+
+		int size = 0;
+		for(Unit unit : units)
+			if(unit.program != null)
+				size += unit.program.size();
+
+		List<Statement> program = new ArrayList<>(size);
+		for(Unit unit : units)
+			if(unit.program != null)
+				program.addAll(unit.program);
+		return program;
+	}
+
+
+	/** Every diagnostic of the project, each line prefixed with its file. */
+	public String report() {
+
+		StringBuilder text = new StringBuilder();
+		for(Unit unit : units) {
+			for(Diagnostic diagnostic : unit.diagnostics.getDiagnostics()) {
+				text.append(root.relativize(unit.path)).append(": ");
+				diagnostic.appendTo(text);
+				text.append(System.lineSeparator());
+			}
+		}
+		return text.toString();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,150 @@
+package parser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import lexer.Lexer;
+import lexer.SymbolTable;
+import lexer.TokenStream;
+
+/**
+ * Lexes and parses every script under a directory on a ForkJoinPool. The
+ * file list is split in halves down to single files, so idle workers steal
+ * whatever is left when files differ in size. Each file gets its own
+ * Diagnostics, and an error in one file does not stop the others.
+ *
+ * Files are lexed in one pass and parsed in a second. In between, each
+ * file's identifiers are moved into the project's SymbolTable, in path
+ * order, so the ids do not depend on which file a worker finished first.
+ */
+public class ProjectCompiler {
+
+	/** The extension the editor saves scripts with. */
+	public static final String EXTENSION = ".txt";
+
+	private final ForkJoinPool pool;
+	private final String extension;
+
+	public ProjectCompiler() {
+
+		this(ForkJoinPool.commonPool(), EXTENSION);
+	}
+
+
+	public ProjectCompiler(ForkJoinPool pool) {
+
+		this(pool, EXTENSION);
+	}
+
+
+	public ProjectCompiler(ForkJoinPool pool, String extension) {
+
+		this.pool = pool;
+		this.extension = extension;
+	}
+
+
+	public Project compile(Path directory) throws IOException {
+
+		List<Path> paths;
+		try(Stream<Path> files = Files.walk(directory)) {
+			paths = files.filter(path -> path.toString().endsWith(this.extension) && Files.isRegularFile(path))
+						.sorted()
+						.collect(Collectors.toList());
+		}
+		return compile(directory, paths);
+	}
+
+
+	/** Compiles the given files; the project keeps them in this order. */
+	public Project compile(Path root, List<Path> paths) {
+
+		List<Project.Unit> units = new ArrayList<>(paths.size());
+		for(Path path : paths)
+			units.add(new Project.Unit(path));
+
+		SymbolTable symbols = new SymbolTable();
+		if(!units.isEmpty()) {
+			this.pool.invoke(new Compile(units, 0, units.size(), false));
+			for(Project.Unit unit : units)
+				if(unit.tokens != null)
+					unit.tokens = unit.tokens.withSymbols(symbols);
+			this.pool.invoke(new Compile(units, 0, units.size(), true));
+		}
+		return new Project(root, units, symbols);
+	}
+
+
+	private static void lex(Project.Unit unit) {
+
+		String source;
+		try {
+			source = new String(Files.readAllBytes(unit.path), StandardCharsets.UTF_8);
+		} catch(IOException e) {
+			unit.diagnostics.report(Diagnostic.Code.UNREADABLE_FILE, 0, 0, 0, "", String.valueOf(e.getMessage()));
+			return;
+		}
+
+		try {
+			Lexer lexer = new Lexer(source);
+			lexer.setDiagnostics(unit.diagnostics);
+			unit.tokens = lexer.getTokenBuffer();
+		} catch(CodeXRuntimeException e) {
+			unit.tokens = null;
+		}
+	}
+
+
+	private static void parse(Project.Unit unit) {
+
+		if(unit.tokens == null)
+			return;
+		try {
+			Parser parser = new Parser(new TokenStream(unit.tokens));
+			parser.setDiagnostics(unit.diagnostics);
+			unit.program = parser.parseStatementList();
+		} catch(CodeXRuntimeException e) {
+			unit.program = null;
+		}
+		unit.tokens = null;
+	}
+
+
+	@SuppressWarnings("serial")
+	private static class Compile extends RecursiveAction {
+
+		private final List<Project.Unit> units;
+		private final int from, to;
+		private final boolean parse;
+
+		Compile(List<Project.Unit> units, int from, int to, boolean parse) {
+			this.units = units;
+			this.from = from;
+			this.to = to;
+			this.parse = parse;
+		}
+
+		@Override
+		protected void compute() {
+
+			if(this.to - this.from == 1) {
+				if(this.parse)
+					parse(this.units.get(this.from));
+				else
+					lex(this.units.get(this.from));
+				return;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			invokeAll(new Compile(this.units, this.from, middle, this.parse),
+					new Compile(this.units, middle, this.to, this.parse));
+		}
+	}
+}
\ No newline at end of file
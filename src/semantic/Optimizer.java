@@ -0,0 +1,482 @@
+package semantic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ast.DataType;
+import ast.Expression;
+import ast.Expression.Additive;
+import ast.Expression.Assignment;
+import ast.Expression.Constant;
+import ast.Expression.Equality;
+import ast.Expression.Grouped;
+import ast.Expression.Identifier;
+import ast.Expression.LogAnd;
+import ast.Expression.LogOr;
+import ast.Expression.Multiplicative;
+import ast.Expression.Relational;
+import ast.Expression.Unary;
+import ast.Statement;
+import ast.Statement.BlockStatement;
+import ast.Statement.Declaration;
+import ast.Statement.DeclarationList;
+import ast.Statement.ExpressionStmt;
+import ast.Statement.IfStatement;
+import ast.Statement.InputStatement;
+import ast.Statement.PrintStatement;
+import ast.Statement.StatementList;
+import ast.Statement.WhileStatement;
+import lexer.TokenType;
+
+/**
+ * Simplifies a type-checked program before it runs.
+ *
+ * <ul>
+ * <li>operators whose operands are constants become one constant of the
+ * type the checker gave them, except an INT / or % by zero, which is left
+ * to fail when it runs</li>
+ * <li>&amp; and | with a constant left operand are cut short</li>
+ * <li>parentheses are dropped, the tree already has their grouping</li>
+ * <li>IF with a constant condition is replaced by the branch it takes,
+ * WHILE (false) and statements that are only a constant are removed</li>
+ * </ul>
+ *
+ * Each visit returns the node that takes the visited one's place; a
+ * statement visit returns null if the statement goes away. A branch that
+ * is kept keeps its own scope, so the resolver and the checker see the same
+ * blocks as before.
+ *
+ * The program given is left as it is. A node that changes is copied, along
+ * with the nodes above it, and everything else is shared with the original.
+ * The IncrementalParser and the program cache keep their trees across runs,
+ * and a later edit or run must still find them as parsed.
+ */
+public class Optimizer implements Expression.Visitor<Expression>, Statement.Visitor<Statement> {
+
+	private final NodeCounter counter = new NodeCounter();
+	private int eliminated;
+
+
+	/** Returns the optimized program; {@link #getEliminated()} tells how many nodes it lost. */
+	public List<Statement> optimize(List<Statement> program) {
+
+		this.eliminated = 0;
+		return new ArrayList<>(optimizeAll(program));
+	}
+
+
+	public int getEliminated() {
+
+		return this.eliminated;
+	}
+
+
+	private Expression optimize(Expression expression) {
+
+		return expression.accept(this);
+	}
+
+
+	private Statement optimize(Statement statement) {
+
+		return statement.accept(this);
+	}
+
+
+	/** The statements in their optimized form without the removed ones, or the list itself if none changed. */
+	private List<Statement> optimizeAll(List<Statement> statements) {
+
+		List<Statement> optimized = new ArrayList<>(statements.size());
+		boolean changed = false;
+		for(Statement statement : statements) {
+			Statement result = optimize(statement);
+			changed |= result != statement;
+			if(result != null)
+				optimized.add(result);
+		}
+		return changed ? optimized : statements;
+	}
+
+
+	/** An IF or WHILE body always needs a statement, so a removed one becomes an empty block. */
+	private Statement optimizeBody(Statement body) {
+
+		Statement optimized = optimize(body);
+		if(optimized != null)
+			return optimized;
+		this.eliminated--;
+		return new StatementList();
+	}
+
+
+	/** A branch put in place of its IF, wrapped in a block if it is not one, so it keeps its own scope. */
+	private Statement branch(Statement body) {
+
+		if(body instanceof StatementList)
+			return body;
+		this.eliminated--;
+		StatementList block = new StatementList();
+		block.addElement(body);
+		return block;
+	}
+
+
+	private Statement remove(Statement statement) {
+
+		this.eliminated += statement.accept(this.counter);
+		return null;
+	}
+
+
+	/** The constant that replaces expression, with its type; the operands go with it. */
+	private Expression fold(Expression expression, Object value, int operands) {
+
+		this.eliminated += operands;
+		return typed(new Constant(value), expression);
+	}
+
+
+	/** A copy made in place of original, with the type the checker gave original. */
+	private static <E extends Expression> E typed(E copy, Expression original) {
+
+		copy.type = original.type;
+		return copy;
+	}
+
+
+	private static boolean isConstant(Expression expression) {
+
+		return expression instanceof Constant && expression.type != null;
+	}
+
+
+	private static Object value(Expression expression) {
+
+		return ((Constant) expression).value;
+	}
+
+
+	@Override
+	public Expression visitConstant(Constant expression) {
+
+		return expression;
+	}
+
+
+	@Override
+	public Expression visitIdentifier(Identifier expression) {
+
+		return expression;
+	}
+
+
+	@Override
+	public Expression visitGrouped(Grouped expression) {
+
+		this.eliminated++;
+		return optimize(expression.expression);
+	}
+
+
+	@Override
+	public Expression visitUnary(Unary expression) {
+
+		Expression rhs = optimize(expression.rhs);
+		if(expression.type == DataType.BOOL && isConstant(rhs))
+			return fold(expression, !(boolean) value(rhs), 1);
+		return rhs == expression.rhs ? expression : typed(new Unary(expression.operator, rhs), expression);
+	}
+
+
+	@Override
+	public Expression visitMultiplicative(Multiplicative expression) {
+
+		Expression lhs = optimize(expression.lhs), rhs = optimize(expression.rhs);
+		Expression same = lhs == expression.lhs && rhs == expression.rhs ? expression
+				: typed(new Multiplicative(lhs, expression.operator, rhs), expression);
+		if(!isConstant(lhs) || !isConstant(rhs))
+			return same;
+
+		Object left = value(lhs), right = value(rhs);
+		if(expression.type == DataType.INT) {
+			if((int) right == 0)
+				return same;
+			switch(expression.operator.type) {
+				case MULTI:	return fold(expression, (int) left * (int) right, 2);
+				case DIV:	return fold(expression, (int) left / (int) right, 2);
+				default:	return fold(expression, (int) left % (int) right, 2);
+			}
+		}
+		if(expression.type == DataType.FP) {
+			switch(expression.operator.type) {
+				case MULTI:	return fold(expression, (float) left * (float) right, 2);
+				case DIV:	return fold(expression, (float) left / (float) right, 2);
+				default:	return fold(expression, (float) left % (float) right, 2);
+			}
+		}
+		return same;
+	}
+
+
+	@Override
+	public Expression visitAdditive(Additive expression) {
+
+		Expression lhs = optimize(expression.lhs), rhs = optimize(expression.rhs);
+		if(!isConstant(lhs) || !isConstant(rhs) || expression.type != DataType.INT && expression.type != DataType.FP)
+			return lhs == expression.lhs && rhs == expression.rhs ? expression
+					: typed(new Additive(lhs, expression.operator, rhs), expression);
+
+		Object left = value(lhs), right = value(rhs);
+		boolean plus = expression.operator.type == TokenType.PLUS;
+		if(expression.type == DataType.INT)
+			return fold(expression, plus ? (int) left + (int) right : (int) left - (int) right, 2);
+		return fold(expression, plus ? (float) left + (float) right : (float) left - (float) right, 2);
+	}
+
+
+	@Override
+	public Expression visitRelational(Relational expression) {
+
+		Expression lhs = optimize(expression.lhs), rhs = optimize(expression.rhs);
+		if(expression.type == null || !isConstant(lhs) || !isConstant(rhs))
+			return lhs == expression.lhs && rhs == expression.rhs ? expression
+					: typed(new Relational(lhs, expression.operator, rhs), expression);
+
+		Object left = value(lhs), right = value(rhs);
+		if(lhs.type == DataType.INT) {
+			switch(expression.operator.type) {
+				case GREATER:	return fold(expression, (int) left > (int) right, 2);
+				case GREATEREQ:	return fold(expression, (int) left >= (int) right, 2);
+				case LESS:		return fold(expression, (int) left < (int) right, 2);
+				default:		return fold(expression, (int) left <= (int) right, 2);
+			}
+		}
+		switch(expression.operator.type) {
+			case GREATER:	return fold(expression, (float) left > (float) right, 2);
+			case GREATEREQ:	return fold(expression, (float) left >= (float) right, 2);
+			case LESS:		return fold(expression, (float) left < (float) right, 2);
+			default:		return fold(expression, (float) left <= (float) right, 2);
+		}
+	}
+
+
+	/** Compares with equals, as the interpreter does, so FP NaN and -0.0 fold the same way they run. */
+	@Override
+	public Expression visitEquality(Equality expression) {
+
+		Expression lhs = optimize(expression.lhs), rhs = optimize(expression.rhs);
+		if(expression.type == null || !isConstant(lhs) || !isConstant(rhs))
+			return lhs == expression.lhs && rhs == expression.rhs ? expression
+					: typed(new Equality(lhs, expression.operator, rhs), expression);
+
+		boolean equal = value(lhs).equals(value(rhs));
+		return fold(expression, expression.operator.type == TokenType.EQUALTO ? equal : !equal, 2);
+	}
+
+
+	/** false &amp; x is false without looking at x; true &amp; x is x. */
+	@Override
+	public Expression visitLogAnd(LogAnd expression) {
+
+		Expression lhs = optimize(expression.lhs), rhs = optimize(expression.rhs);
+		if(expression.type == null || !isConstant(lhs))
+			return lhs == expression.lhs && rhs == expression.rhs ? expression
+					: typed(new LogAnd(lhs, expression.operator, rhs), expression);
+
+		if(!(boolean) value(lhs)) {
+			this.eliminated += rhs.accept(this.counter);
+			return fold(expression, false, 1);
+		}
+		this.eliminated += 2;
+		return rhs;
+	}
+
+
+	/** true | x is true without looking at x; false | x is x. */
+	@Override
+	public Expression visitLogOr(LogOr expression) {
+
+		Expression lhs = optimize(expression.lhs), rhs = optimize(expression.rhs);
+		if(expression.type == null || !isConstant(lhs))
+			return lhs == expression.lhs && rhs == expression.rhs ? expression
+					: typed(new LogOr(lhs, expression.operator, rhs), expression);
+
+		if((boolean) value(lhs)) {
+			this.eliminated += rhs.accept(this.counter);
+			return fold(expression, true, 1);
+		}
+		this.eliminated += 2;
+		return rhs;
+	}
+
+
+	@Override
+	public Expression visitAssignment(Assignment expression) {
+
+		Expression rhs = optimize(expression.rhs);
+		return rhs == expression.rhs ? expression : typed(new Assignment(expression.lhs, expression.operator, rhs), expression);
+	}
+
+
+	@Override
+	public Statement visitDeclaration(Declaration statement) {
+
+		if(!(statement.initialization instanceof Assignment))
+			return statement;
+		Expression initialization = optimize(statement.initialization);
+		return initialization == statement.initialization ? statement : new Declaration(statement.type, initialization);
+	}
+
+
+	@Override
+	public Statement visitDeclarationList(DeclarationList statement) {
+
+		DeclarationList optimized = new DeclarationList();
+		boolean changed = false;
+		for(Declaration declaration : statement.getList()) {
+			Declaration result = (Declaration) optimize(declaration);
+			changed |= result != declaration;
+			optimized.addElement(result);
+		}
+		return changed ? optimized : statement;
+	}
+
+
+	@Override
+	public Statement visitPrintStmt(PrintStatement statement) {
+
+		Expression expression = optimize(statement.expression);
+		return expression == statement.expression ? statement : new PrintStatement(expression);
+	}
+
+
+	@Override
+	public Statement visitInputStmt(InputStatement statement) {
+
+		return statement;
+	}
+
+
+	@Override
+	public Statement visitIfStmt(IfStatement statement) {
+
+		Expression condition = optimize(statement.condition);
+		if(!isConstant(condition) || condition.type != DataType.BOOL) {
+			Statement then = optimizeBody(statement.thenStatement);
+			Statement otherwise = statement.elseStatement == null ? null : optimize(statement.elseStatement);
+			if(condition == statement.condition && then == statement.thenStatement && otherwise == statement.elseStatement)
+				return statement;
+			return new IfStatement(condition, then, otherwise);
+		}
+
+		Statement taken, skipped;
+		if((boolean) value(condition)) {
+			taken = statement.thenStatement;
+			skipped = statement.elseStatement;
+		} else {
+			taken = statement.elseStatement;
+			skipped = statement.thenStatement;
+		}
+		this.eliminated += 2;
+		if(skipped != null)
+			this.eliminated += skipped.accept(this.counter);
+		if(taken == null)
+			return null;
+
+		taken = optimize(taken);
+		return taken == null ? null : branch(taken);
+	}
+
+
+	@Override
+	public Statement visitWhileStmt(WhileStatement statement) {
+
+		Expression condition = optimize(statement.condition);
+		if(isConstant(condition) && condition.type == DataType.BOOL && !(boolean) value(condition))
+			return remove(statement);
+		Statement body = optimizeBody(statement.todoStatement);
+		if(condition == statement.condition && body == statement.todoStatement)
+			return statement;
+		return new WhileStatement(condition, body);
+	}
+
+
+	/** A statement that is only a constant does nothing. */
+	@Override
+	public Statement visitExpressionStmt(ExpressionStmt statement) {
+
+		Expression expression = optimize(statement.expression);
+		if(expression instanceof Constant)
+			return remove(statement);
+		return expression == statement.expression ? statement : new ExpressionStmt(expression);
+	}
+
+
+	@Override
+	public Statement visitBlockStmt(BlockStatement statement) {
+
+		Statement list = optimize(statement.statementList);
+		return list == statement.statementList ? statement : new BlockStatement((StatementList) list);
+	}
+
+
+	@Override
+	public Statement visitStatementList(StatementList statement) {
+
+		List<Statement> list = optimizeAll(statement.getList());
+		if(list == statement.getList())
+			return statement;
+		StatementList optimized = new StatementList();
+		optimized.getList().addAll(list);
+		return optimized;
+	}
+
+
+	/** Counts the nodes of a subtree that is dropped whole. */
+	private static class NodeCounter implements Expression.Visitor<Integer>, Statement.Visitor<Integer> {
+
+		private int binary(Expression lhs, Expression rhs) {
+
+			return 1 + lhs.accept(this) + rhs.accept(this);
+		}
+
+		private int all(List<? extends Statement> statements) {
+
+			int count = 1;
+			for(Statement statement : statements)
+				count += statement.accept(this);
+			return count;
+		}
+
+		public Integer visitConstant(Constant expression)				{ return 1; }
+		public Integer visitIdentifier(Identifier expression)			{ return 1; }
+		public Integer visitGrouped(Grouped expression)					{ return 1 + expression.expression.accept(this); }
+		public Integer visitUnary(Unary expression)						{ return 1 + expression.rhs.accept(this); }
+		public Integer visitMultiplicative(Multiplicative expression)	{ return binary(expression.lhs, expression.rhs); }
+		public Integer visitAdditive(Additive expression)				{ return binary(expression.lhs, expression.rhs); }
+		public Integer visitRelational(Relational expression)			{ return binary(expression.lhs, expression.rhs); }
+		public Integer visitEquality(Equality expression)				{ return binary(expression.lhs, expression.rhs); }
+		public Integer visitLogAnd(LogAnd expression)					{ return binary(expression.lhs, expression.rhs); }
+		public Integer visitLogOr(LogOr expression)						{ return binary(expression.lhs, expression.rhs); }
+		public Integer visitAssignment(Assignment expression)			{ return binary(expression.lhs, expression.rhs); }
+
+		public Integer visitDeclaration(Declaration statement)			{ return 1 + statement.initialization.accept(this); }
+		public Integer visitDeclarationList(DeclarationList statement)	{ return all(statement.getList()); }
+		public Integer visitPrintStmt(PrintStatement statement)			{ return 1 + statement.expression.accept(this); }
+		public Integer visitInputStmt(InputStatement statement)			{ return 1 + statement.expression.accept(this); }
+		public Integer visitExpressionStmt(ExpressionStmt statement)	{ return 1 + statement.expression.accept(this); }
+		public Integer visitBlockStmt(BlockStatement statement)			{ return 1 + statement.statementList.accept(this); }
+		public Integer visitStatementList(StatementList statement)		{ return all(statement.getList()); }
+
+		public Integer visitIfStmt(IfStatement statement) {
+
+			int count = 1 + statement.condition.accept(this) + statement.thenStatement.accept(this);
+			return statement.elseStatement == null ? count : count + statement.elseStatement.accept(this);
+		}
+
+		public Integer visitWhileStmt(WhileStatement statement) {
+
+			return 1 + statement.condition.accept(this) + statement.todoStatement.accept(this);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,316 @@
+package semantic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.DataType;
+import ast.Expression;
+import ast.Expression.Additive;
+import ast.Expression.Assignment;
+import ast.Expression.Constant;
+import ast.Expression.Equality;
+import ast.Expression.Grouped;
+import ast.Expression.Identifier;
+import ast.Expression.LogAnd;
+import ast.Expression.LogOr;
+import ast.Expression.Multiplicative;
+import ast.Expression.Relational;
+import ast.Expression.Unary;
+import ast.Statement;
+import ast.Statement.BlockStatement;
+import ast.Statement.Declaration;
+import ast.Statement.DeclarationList;
+import ast.Statement.ExpressionStmt;
+import ast.Statement.IfStatement;
+import ast.Statement.InputStatement;
+import ast.Statement.PrintStatement;
+import ast.Statement.StatementList;
+import ast.Statement.WhileStatement;
+
+/**
+ * Gives every variable of a type-checked program a slot in one frame, and
+ * copies the block depth and slot of its declaration onto each use.
+ *
+ * Slots are counted separately for the three arrays of a frame: INT, BOOL
+ * and CHAR variables go in the int array, FP ones in the float array and
+ * STR ones in the object array. When a block ends its slots are handed out
+ * again, so blocks side by side share them and the frame is only as large
+ * as the deepest nesting needs. CodeX has no functions, so the whole
+ * program runs in this one frame.
+ */
+public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Void> {
+
+	public static final int INTS = 0, FLOATS = 1, OBJECTS = 2;
+
+	private final List<Map<String, Identifier>> scopes = new ArrayList<>();
+	private final int[] next = new int[3];
+	private final int[] sizes = new int[3];
+
+
+	/** The frame array a variable of this type is kept in. */
+	public static int storage(DataType type) {
+
+		if(type == DataType.FP)
+			return FLOATS;
+		if(type == DataType.STR)
+			return OBJECTS;
+		return INTS;
+	}
+
+
+	public void resolve(List<Statement> program) {
+
+		this.scopes.clear();
+		for(int i = 0; i < 3; i++)
+			this.next[i] = this.sizes[i] = 0;
+
+		this.scopes.add(new HashMap<>());
+		for(Statement statement : program)
+			statement.accept(this);
+		this.scopes.clear();
+	}
+
+
+	/** How many slots of INTS, FLOATS or OBJECTS the frame needs. */
+	public int getFrameSize(int storage) {
+
+		return this.sizes[storage];
+	}
+
+
+	private void resolve(Statement statement) {
+
+		statement.accept(this);
+	}
+
+
+	private void resolve(Expression expression) {
+
+		expression.accept(this);
+	}
+
+
+	/** An IF or WHILE body gets a scope of its own, like the type checker gives it. */
+	private void resolveBody(Statement body) {
+
+		int[] free = beginScope();
+		resolve(body);
+		endScope(free);
+	}
+
+
+	/** Opens a scope and returns the first free slots, to hand back to endScope. */
+	private int[] beginScope() {
+
+		this.scopes.add(new HashMap<>());
+		return this.next.clone();
+	}
+
+
+	private void endScope(int[] free) {
+
+		this.scopes.remove(this.scopes.size() - 1);
+		System.arraycopy(free, 0, this.next, 0, free.length);
+	}
+
+
+	private void declare(Identifier name) {
+
+		int storage = storage(name.type);
+		name.depth = this.scopes.size() - 1;
+		name.slot = this.next[storage]++;
+		if(this.next[storage] > this.sizes[storage])
+			this.sizes[storage] = this.next[storage];
+		this.scopes.get(name.depth).put(name.token.lexeme, name);
+	}
+
+
+	@Override
+	public Void visitConstant(Constant expression) {
+
+		return null;
+	}
+
+
+	@Override
+	public Void visitIdentifier(Identifier expression) {
+
+		for(int i = this.scopes.size() - 1; i >= 0; i--) {
+			Identifier declaration = this.scopes.get(i).get(expression.token.lexeme);
+			if(declaration != null) {
+				expression.depth = declaration.depth;
+				expression.slot = declaration.slot;
+				return null;
+			}
+		}
+		return null;
+	}
+
+
+	@Override
+	public Void visitGrouped(Grouped expression) {
+
+		resolve(expression.expression);
+		return null;
+	}
+
+
+	@Override
+	public Void visitUnary(Unary expression) {
+
+		resolve(expression.rhs);
+		return null;
+	}
+
+
+	@Override
+	public Void visitMultiplicative(Multiplicative expression) {
+
+		resolve(expression.lhs);
+		resolve(expression.rhs);
+		return null;
+	}
+
+
+	@Override
+	public Void visitAdditive(Additive expression) {
+
+		resolve(expression.lhs);
+		resolve(expression.rhs);
+		return null;
+	}
+
+
+	@Override
+	public Void visitRelational(Relational expression) {
+
+		resolve(expression.lhs);
+		resolve(expression.rhs);
+		return null;
+	}
+
+
+	@Override
+	public Void visitEquality(Equality expression) {
+
+		resolve(expression.lhs);
+		resolve(expression.rhs);
+		return null;
+	}
+
+
+	@Override
+	public Void visitLogAnd(LogAnd expression) {
+
+		resolve(expression.lhs);
+		resolve(expression.rhs);
+		return null;
+	}
+
+
+	@Override
+	public Void visitLogOr(LogOr expression) {
+
+		resolve(expression.lhs);
+		resolve(expression.rhs);
+		return null;
+	}
+
+
+	@Override
+	public Void visitAssignment(Assignment expression) {
+
+		resolve(expression.rhs);
+		resolve(expression.lhs);
+		return null;
+	}
+
+
+	/** The value is resolved first, so it sees an outer variable of the same name. */
+	@Override
+	public Void visitDeclaration(Declaration statement) {
+
+		if(statement.initialization instanceof Assignment) {
+			Assignment assignment = (Assignment) statement.initialization;
+			resolve(assignment.rhs);
+			declare((Identifier) assignment.lhs);
+		} else {
+			declare((Identifier) statement.initialization);
+		}
+		return null;
+	}
+
+
+	@Override
+	public Void visitDeclarationList(DeclarationList statement) {
+
+		for(Declaration declaration : statement.getList())
+			resolve(declaration);
+		return null;
+	}
+
+
+	@Override
+	public Void visitPrintStmt(PrintStatement statement) {
+
+		resolve(statement.expression);
+		return null;
+	}
+
+
+	@Override
+	public Void visitInputStmt(InputStatement statement) {
+
+		resolve(statement.expression);
+		return null;
+	}
+
+
+	@Override
+	public Void visitIfStmt(IfStatement statement) {
+
+		resolve(statement.condition);
+		resolveBody(statement.thenStatement);
+		if(statement.elseStatement != null)
+			resolveBody(statement.elseStatement);
+		return null;
+	}
+
+
+	@Override
+	public Void visitWhileStmt(WhileStatement statement) {
+
+		resolve(statement.condition);
+		resolveBody(statement.todoStatement);
+		return null;
+	}
+
+
+	@Override
+	public Void visitExpressionStmt(ExpressionStmt statement) {
+
+		resolve(statement.expression);
+		return null;
+	}
+
+
+	@Override
+	public Void visitBlockStmt(BlockStatement statement) {
+
+		resolve(statement.statementList);
+		return null;
+	}
+
+
+	@Override
+	public Void visitStatementList(StatementList statement) {
+
+		int[] free = beginScope();
+		for(Statement element : statement.getList())
+			resolve(element);
+		endScope(free);
+		return null;
+	}
+}
\ No newline at end of file
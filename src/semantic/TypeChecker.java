@@ -0,0 +1,489 @@
+package semantic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.DataType;
+import ast.Expression;
+import ast.Expression.Additive;
+import ast.Expression.Assignment;
+import ast.Expression.Constant;
+import ast.Expression.Equality;
+import ast.Expression.Grouped;
+import ast.Expression.Identifier;
+import ast.Expression.LogAnd;
+import ast.Expression.LogOr;
+import ast.Expression.Multiplicative;
+import ast.Expression.Relational;
+import ast.Expression.Unary;
+import ast.Statement;
+import ast.Statement.BlockStatement;
+import ast.Statement.Declaration;
+import ast.Statement.DeclarationList;
+import ast.Statement.ExpressionStmt;
+import ast.Statement.IfStatement;
+import ast.Statement.InputStatement;
+import ast.Statement.PrintStatement;
+import ast.Statement.StatementList;
+import ast.Statement.WhileStatement;
+import lexer.Token;
+import parser.CodeXRuntimeException;
+import parser.Diagnostic;
+import parser.Diagnostics;
+
+/**
+ * Gives every expression its static type before the program runs, so the
+ * interpreter can pick the int, float or boolean operation without looking
+ * at the values.
+ *
+ * <ul>
+ * <li>+ - * / % and the relational operators take two INTs or two FPs</li>
+ * <li>== and ~= take two operands of the same type</li>
+ * <li>~, &amp;, | and the conditions of IF and WHILE take BOOLs</li>
+ * <li>a variable is declared once per block and only assigned its own type</li>
+ * </ul>
+ *
+ * All errors of a program are reported, then checking fails. Expressions
+ * whose type could not be found keep a null type, which silences the errors
+ * that would follow from it.
+ */
+public class TypeChecker implements Expression.Visitor<DataType>, Statement.Visitor<Void>, DataType.Visitor<DataType> {
+
+	@SuppressWarnings("serial")
+	private static class TypeError extends CodeXRuntimeException {
+
+		TypeError() {
+			super("Type error", true);
+		}
+	}
+
+	private static final TypeError TYPE_ERROR = new TypeError();
+
+	private final List<Map<String, DataType>> scopes = new ArrayList<>();
+	private Diagnostics diagnostics;
+	private boolean flushDiagnostics = true;
+
+
+	/** Collects errors here instead of printing them. */
+	public void setDiagnostics(Diagnostics diagnostics) {
+
+		this.diagnostics = diagnostics;
+		this.flushDiagnostics = false;
+	}
+
+
+	public Diagnostics getDiagnostics() {
+
+		if(this.diagnostics == null)
+			this.diagnostics = new Diagnostics();
+		return this.diagnostics;
+	}
+
+
+	public void check(List<Statement> program) {
+
+		int errors = getDiagnostics().size();
+		this.scopes.clear();
+		beginScope();
+		for(Statement statement : program)
+			check(statement);
+		endScope();
+
+		if(this.diagnostics.size() > errors) {
+			if(this.flushDiagnostics)
+				this.diagnostics.flush(System.err);
+			throw TYPE_ERROR;
+		}
+	}
+
+
+	private void check(Statement statement) {
+
+		statement.accept(this);
+	}
+
+
+	private DataType check(Expression expression) {
+
+		DataType type = expression.accept(this);
+		expression.type = type;
+		return type;
+	}
+
+
+	/** A body that is not a block still gets a scope of its own. */
+	private void checkBody(Statement body) {
+
+		beginScope();
+		check(body);
+		endScope();
+	}
+
+
+	private void checkCondition(Expression condition, String keyword) {
+
+		DataType type = check(condition);
+		if(type != null && type != DataType.BOOL)
+			error(Diagnostic.Code.TYPE_MISMATCH, firstToken(condition), "Condition of " + keyword + " must be BOOL, not " + type);
+	}
+
+
+	private void beginScope() {
+
+		this.scopes.add(new HashMap<>());
+	}
+
+
+	private void endScope() {
+
+		this.scopes.remove(this.scopes.size() - 1);
+	}
+
+
+	private DataType lookup(String name) {
+
+		for(int i = this.scopes.size() - 1; i >= 0; i--) {
+			DataType type = this.scopes.get(i).get(name);
+			if(type != null)
+				return type;
+		}
+		return null;
+	}
+
+
+	private void error(Diagnostic.Code code, Token token, String message) {
+
+		if(token == null)
+			getDiagnostics().report(code, 0, 0, 0, "", message);
+		else
+			getDiagnostics().report(code, token.line, token.column, token.lexeme.length(), token.lexeme, message);
+	}
+
+
+	/** The leftmost token of an expression, to point errors at; null for a plain constant. */
+	private static Token firstToken(Expression expression) {
+
+		while(true) {
+			if(expression instanceof Identifier)
+				return ((Identifier) expression).token;
+			if(expression instanceof Grouped)
+				expression = ((Grouped) expression).expression;
+			else if(expression instanceof Unary)
+				return ((Unary) expression).operator;
+			else if(expression instanceof Multiplicative)
+				expression = ((Multiplicative) expression).lhs;
+			else if(expression instanceof Additive)
+				expression = ((Additive) expression).lhs;
+			else if(expression instanceof Relational)
+				expression = ((Relational) expression).lhs;
+			else if(expression instanceof Equality)
+				expression = ((Equality) expression).lhs;
+			else if(expression instanceof LogAnd)
+				expression = ((LogAnd) expression).lhs;
+			else if(expression instanceof LogOr)
+				expression = ((LogOr) expression).lhs;
+			else if(expression instanceof Assignment)
+				expression = ((Assignment) expression).lhs;
+			else
+				return null;
+		}
+	}
+
+
+	private DataType numeric(Expression lhs, Token operator, Expression rhs, boolean comparison) {
+
+		DataType left = check(lhs);
+		DataType right = check(rhs);
+		if(left == null || right == null)
+			return null;
+		if(left != right || (left != DataType.INT && left != DataType.FP)) {
+			error(Diagnostic.Code.TYPE_MISMATCH, operator,
+					"Operands of '" + operator.lexeme + "' must be two INTs or two FPs, not " + left + " and " + right);
+			return null;
+		}
+		return comparison ? DataType.BOOL : left;
+	}
+
+
+	private DataType logical(Expression lhs, Token operator, Expression rhs) {
+
+		DataType left = check(lhs);
+		DataType right = check(rhs);
+		if(left == null || right == null)
+			return null;
+		if(left != DataType.BOOL || right != DataType.BOOL) {
+			error(Diagnostic.Code.TYPE_MISMATCH, operator,
+					"Operands of '" + operator.lexeme + "' must be BOOLs, not " + left + " and " + right);
+			return null;
+		}
+		return DataType.BOOL;
+	}
+
+
+	@Override
+	public DataType visitConstant(Constant expression) {
+
+		Object value = expression.value;
+		if(value instanceof Integer)
+			return DataType.INT;
+		if(value instanceof Float)
+			return DataType.FP;
+		if(value instanceof Boolean)
+			return DataType.BOOL;
+		if(value instanceof Character)
+			return DataType.CHAR;
+		if(value instanceof String)
+			return DataType.STR;
+		return null;
+	}
+
+
+	@Override
+	public DataType visitIdentifier(Identifier expression) {
+
+		DataType type = lookup(expression.token.lexeme);
+		if(type == null)
+			error(Diagnostic.Code.UNDECLARED_VARIABLE, expression.token, "Undeclared variable");
+		return type;
+	}
+
+
+	@Override
+	public DataType visitGrouped(Grouped expression) {
+
+		return check(expression.expression);
+	}
+
+
+	@Override
+	public DataType visitUnary(Unary expression) {
+
+		DataType type = check(expression.rhs);
+		if(type != null && type != DataType.BOOL) {
+			error(Diagnostic.Code.TYPE_MISMATCH, expression.operator, "Operand of '~' must be BOOL, not " + type);
+			return null;
+		}
+		return type;
+	}
+
+
+	@Override
+	public DataType visitMultiplicative(Multiplicative expression) {
+
+		return numeric(expression.lhs, expression.operator, expression.rhs, false);
+	}
+
+
+	@Override
+	public DataType visitAdditive(Additive expression) {
+
+		return numeric(expression.lhs, expression.operator, expression.rhs, false);
+	}
+
+
+	@Override
+	public DataType visitRelational(Relational expression) {
+
+		return numeric(expression.lhs, expression.operator, expression.rhs, true);
+	}
+
+
+	@Override
+	public DataType visitEquality(Equality expression) {
+
+		DataType left = check(expression.lhs);
+		DataType right = check(expression.rhs);
+		if(left == null || right == null)
+			return null;
+		if(left != right) {
+			error(Diagnostic.Code.TYPE_MISMATCH, expression.operator,
+					"Cannot compare " + left + " with " + right);
+			return null;
+		}
+		return DataType.BOOL;
+	}
+
+
+	@Override
+	public DataType visitLogAnd(LogAnd expression) {
+
+		return logical(expression.lhs, expression.operator, expression.rhs);
+	}
+
+
+	@Override
+	public DataType visitLogOr(LogOr expression) {
+
+		return logical(expression.lhs, expression.operator, expression.rhs);
+	}
+
+
+	@Override
+	public DataType visitAssignment(Assignment expression) {
+
+		DataType value = check(expression.rhs);
+		if(!(expression.lhs instanceof Identifier)) {
+			check(expression.lhs);
+			error(Diagnostic.Code.INVALID_TARGET, expression.operator, "Can only assign to a variable");
+			return null;
+		}
+
+		DataType target = check(expression.lhs);
+		if(target == null || value == null)
+			return null;
+		if(target != value) {
+			error(Diagnostic.Code.TYPE_MISMATCH, expression.operator, "Cannot assign " + value + " to " + target);
+			return null;
+		}
+		return target;
+	}
+
+
+	/**
+	 * The initializer is a variable name, optionally assigned. The value is
+	 * checked before the name is declared, so it cannot refer to itself.
+	 */
+	@Override
+	public Void visitDeclaration(Declaration statement) {
+
+		DataType type = statement.type == null ? null : statement.type.accept(this);
+		Expression initialization = statement.initialization;
+		Identifier name = null;
+
+		if(initialization instanceof Identifier) {
+			name = (Identifier) initialization;
+		} else if(initialization instanceof Assignment && ((Assignment) initialization).lhs instanceof Identifier) {
+			Assignment assignment = (Assignment) initialization;
+			name = (Identifier) assignment.lhs;
+			DataType value = check(assignment.rhs);
+			if(value != null && value != type)
+				error(Diagnostic.Code.TYPE_MISMATCH, assignment.operator, "Cannot assign " + value + " to " + type);
+			assignment.type = type;
+		} else {
+			check(initialization);
+			error(Diagnostic.Code.INVALID_TARGET, firstToken(initialization), "Expected a variable name");
+			return null;
+		}
+
+		Map<String, DataType> scope = this.scopes.get(this.scopes.size() - 1);
+		if(scope.containsKey(name.token.lexeme))
+			error(Diagnostic.Code.REDECLARED_VARIABLE, name.token, "Variable already declared in this block");
+		scope.put(name.token.lexeme, type);
+		name.type = type;
+		return null;
+	}
+
+
+	@Override
+	public Void visitDeclarationList(DeclarationList statement) {
+
+		for(Declaration declaration : statement.getList())
+			check(declaration);
+		return null;
+	}
+
+
+	@Override
+	public Void visitPrintStmt(PrintStatement statement) {
+
+		check(statement.expression);
+		return null;
+	}
+
+
+	@Override
+	public Void visitInputStmt(InputStatement statement) {
+
+		if(statement.expression instanceof Identifier)
+			check(statement.expression);
+		else
+			error(Diagnostic.Code.INVALID_TARGET, firstToken(statement.expression), "XIN needs a variable");
+		return null;
+	}
+
+
+	@Override
+	public Void visitIfStmt(IfStatement statement) {
+
+		checkCondition(statement.condition, "IF");
+		checkBody(statement.thenStatement);
+		if(statement.elseStatement != null)
+			checkBody(statement.elseStatement);
+		return null;
+	}
+
+
+	@Override
+	public Void visitWhileStmt(WhileStatement statement) {
+
+		checkCondition(statement.condition, "WHILE");
+		checkBody(statement.todoStatement);
+		return null;
+	}
+
+
+	@Override
+	public Void visitExpressionStmt(ExpressionStmt statement) {
+
+		check(statement.expression);
+		return null;
+	}
+
+
+	@Override
+	public Void visitBlockStmt(BlockStatement statement) {
+
+		check(statement.statementList);
+		return null;
+	}
+
+
+	/** A braced block, which the parser gives as a bare StatementList. */
+	@Override
+	public Void visitStatementList(StatementList statement) {
+
+		beginScope();
+		for(Statement element : statement.getList())
+			check(element);
+		endScope();
+		return null;
+	}
+
+
+	/** Maps the parser's data type objects to the shared instances. */
+	@Override
+	public DataType visitIntDataType(DataType.IntDataType dataType) {
+
+		return DataType.INT;
+	}
+
+
+	@Override
+	public DataType visitFloatDataType(DataType.FloatDataType dataType) {
+
+		return DataType.FP;
+	}
+
+
+	@Override
+	public DataType visitBooleanDataType(DataType.BooleanDataType dataType) {
+
+		return DataType.BOOL;
+	}
+
+
+	@Override
+	public DataType visitCharDataType(DataType.CharDataType dataType) {
+
+		return DataType.CHAR;
+	}
+
+
+	@Override
+	public DataType visitStringDataType(DataType.StringDataType dataType) {
+
+		return DataType.STR;
+	}
+}
\ No newline at end of file
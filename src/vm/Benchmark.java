@@ -0,0 +1,97 @@
+package vm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import ast.Statement;
+import interpreter.Interpreter;
+import jit.JitEngine;
+import lexer.Lexer;
+import lexer.TokenStream;
+import parser.Parser;
+
+/**
+ * Times the tree-walking interpreter, without and with hot loops compiled,
+ * against the stack VM, the register VM and the JIT on CodeX scripts.
+ *
+ * <pre>
+ * java vm.Benchmark [-runs N] script.txt...
+ * </pre>
+ *
+ * Every script is parsed once, and the tree is run N times (10 by default)
+ * by each engine with its output thrown away; the passes before running
+ * leave the parsed tree as it is. The best time of each engine is printed,
+ * so the JVM's own warm-up does not count against any engine, and for the two
+ * VMs also the instructions executed and the time per instruction.
+ */
+public class Benchmark {
+
+	private static final int INTERPRETER = 0, TIERED = 1, STACK = 2, REGISTER = 3, JIT = 4;
+
+	private static long dispatches;
+
+
+	public static void main(String[] args) throws IOException {
+
+		int runs = 10, first = 0;
+		if(args.length >= 2 && args[0].equals("-runs")) {
+			runs = Integer.parseInt(args[1]);
+			first = 2;
+		}
+
+		System.out.printf("%-16s %12s %12s %12s %12s %12s %14s %9s %14s %9s%n", "script", "interpreter", "tiered",
+				"stack vm", "register vm", "jit", "stack ops", "ns/op", "register ops", "ns/op");
+		for(int i = first; i < args.length; i++) {
+			String source = new String(Files.readAllBytes(Paths.get(args[i])), StandardCharsets.UTF_8);
+			List<Statement> program = new Parser(new TokenStream(new Lexer(source).getTokenBuffer())).parseStatementList();
+			long walker = best(program, runs, INTERPRETER);
+			long tiered = best(program, runs, TIERED);
+			long stack = best(program, runs, STACK);
+			long stackOps = dispatches;
+			long register = best(program, runs, REGISTER);
+			long registerOps = dispatches;
+			long jit = best(program, runs, JIT);
+			System.out.printf("%-16s %9.2f ms %9.2f ms %9.2f ms %9.2f ms %9.2f ms %14d %9.2f %14d %9.2f%n",
+					Paths.get(args[i]).getFileName(), walker / 1e6, tiered / 1e6, stack / 1e6, register / 1e6, jit / 1e6,
+					stackOps, (double) stack / stackOps, registerOps, (double) register / registerOps);
+		}
+	}
+
+
+	private static long best(List<Statement> program, int runs, int engine) {
+
+		PrintStream out = System.out;
+		long best = Long.MAX_VALUE;
+		try {
+			System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+			for(int run = 0; run < runs; run++) {
+				long start = System.nanoTime();
+				if(engine == STACK) {
+					VirtualMachine vm = new VirtualMachine();
+					vm.interpret(program);
+					dispatches = vm.getDispatches();
+				} else if(engine == REGISTER) {
+					RegisterMachine vm = new RegisterMachine();
+					vm.interpret(program);
+					dispatches = vm.getDispatches();
+				} else if(engine == JIT) {
+					new JitEngine().interpret(program);
+				} else {
+					Interpreter interpreter = new Interpreter();
+					if(engine == INTERPRETER)
+						interpreter.setTierThreshold(0);
+					interpreter.interpret(program);
+				}
+				best = Math.min(best, System.nanoTime() - start);
+			}
+		} finally {
+			System.setOut(out);
+		}
+		return best;
+	}
+}
\ No newline at end of file
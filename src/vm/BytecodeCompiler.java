@@ -0,0 +1,422 @@
+package vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.DataType;
+import ast.Expression;
+import ast.Expression.Additive;
+import ast.Expression.Assignment;
+import ast.Expression.Constant;
+import ast.Expression.Equality;
+import ast.Expression.Grouped;
+import ast.Expression.Identifier;
+import ast.Expression.LogAnd;
+import ast.Expression.LogOr;
+import ast.Expression.Multiplicative;
+import ast.Expression.Relational;
+import ast.Expression.Unary;
+import ast.Statement;
+import ast.Statement.BlockStatement;
+import ast.Statement.Declaration;
+import ast.Statement.DeclarationList;
+import ast.Statement.ExpressionStmt;
+import ast.Statement.IfStatement;
+import ast.Statement.InputStatement;
+import ast.Statement.PrintStatement;
+import ast.Statement.StatementList;
+import ast.Statement.WhileStatement;
+import lexer.TokenType;
+import semantic.Resolver;
+
+import static vm.Opcode.*;
+
+/**
+ * Compiles a checked and resolved program to stack VM code. Variables are
+ * loaded and stored by the slots the resolver gave them, so the VM runs on
+ * the same kind of frame as the interpreter.
+ *
+ * WHILE is compiled with its condition after the body, so each iteration
+ * takes one conditional jump back instead of a jump out and a jump back.
+ */
+public class BytecodeCompiler implements Expression.Visitor<Void>, Statement.Visitor<Void> {
+
+	/** The types PRINT and INPUT name by index. */
+	public static final DataType[] TYPES = { DataType.INT, DataType.FP, DataType.BOOL, DataType.CHAR, DataType.STR };
+
+	private int[] code = new int[256];
+	private int count;
+	private final List<Object> constants = new ArrayList<>();
+	private final Map<Object, Integer> constantIndexes = new HashMap<>();
+	private int depth, maxStack;
+
+
+	public Chunk compile(List<Statement> program) {
+
+		this.count = this.depth = this.maxStack = 0;
+		this.constants.clear();
+		this.constantIndexes.clear();
+
+		for(Statement statement : program)
+			compile(statement);
+		emit(HALT);
+		return new Chunk(Arrays.copyOf(this.code, this.count), this.constants.toArray(), this.maxStack);
+	}
+
+
+	private void compile(Statement statement) {
+
+		statement.accept(this);
+	}
+
+
+	private void compile(Expression expression) {
+
+		expression.accept(this);
+	}
+
+
+	private void emit(int op) {
+
+		if(this.count == this.code.length)
+			this.code = Arrays.copyOf(this.code, this.count * 2);
+		this.code[this.count++] = op;
+		this.depth += EFFECT[op];
+		if(this.depth > this.maxStack)
+			this.maxStack = this.depth;
+	}
+
+
+	private void emit(int op, int operand) {
+
+		emit(op);
+		operand(operand);
+	}
+
+
+	private void operand(int operand) {
+
+		if(this.count == this.code.length)
+			this.code = Arrays.copyOf(this.code, this.count * 2);
+		this.code[this.count++] = operand;
+	}
+
+
+	/** Emits a jump whose target is not known yet, and returns where to patch it. */
+	private int emitJump(int op) {
+
+		emit(op, -1);
+		return this.count - 1;
+	}
+
+
+	private void patch(int at) {
+
+		this.code[at] = this.count;
+	}
+
+
+	private int constant(Object value) {
+
+		Integer index = this.constantIndexes.get(value);
+		if(index == null) {
+			index = this.constants.size();
+			this.constants.add(value);
+			this.constantIndexes.put(value, index);
+		}
+		return index;
+	}
+
+
+	private static int typeIndex(DataType type) {
+
+		for(int i = 0; i < TYPES.length; i++)
+			if(TYPES[i] == type)
+				return i;
+		throw new IllegalArgumentException("Program is not type checked");
+	}
+
+
+	private void load(Identifier name) {
+
+		switch(Resolver.storage(name.type)) {
+			case Resolver.INTS:		emit(ILOAD, name.slot); break;
+			case Resolver.FLOATS:	emit(FLOAD, name.slot); break;
+			default:				emit(ALOAD, name.slot); break;
+		}
+	}
+
+
+	private void store(Identifier name) {
+
+		switch(Resolver.storage(name.type)) {
+			case Resolver.INTS:		emit(ISTORE, name.slot); break;
+			case Resolver.FLOATS:	emit(FSTORE, name.slot); break;
+			default:				emit(ASTORE, name.slot); break;
+		}
+	}
+
+
+	/** Both operands, then the int or the FP variant of the operation, by the operands' type. */
+	private void binary(Expression lhs, Expression rhs, int intOp, int floatOp) {
+
+		compile(lhs);
+		compile(rhs);
+		emit(lhs.type == DataType.FP ? floatOp : intOp);
+	}
+
+
+	@Override
+	public Void visitConstant(Constant expression) {
+
+		Object value = expression.value;
+		if(value instanceof Integer)
+			emit(ICONST, (Integer) value);
+		else if(value instanceof Float)
+			emit(FCONST, Float.floatToRawIntBits((Float) value));
+		else if(value instanceof Boolean)
+			emit(ICONST, (Boolean) value ? 1 : 0);
+		else if(value instanceof Character)
+			emit(ICONST, (Character) value);
+		else if(value instanceof String)
+			emit(ACONST, constant(value));
+		else
+			throw new IllegalArgumentException("Cannot compile constant " + value);
+		return null;
+	}
+
+
+	@Override
+	public Void visitIdentifier(Identifier expression) {
+
+		load(expression);
+		return null;
+	}
+
+
+	@Override
+	public Void visitGrouped(Grouped expression) {
+
+		compile(expression.expression);
+		return null;
+	}
+
+
+	@Override
+	public Void visitUnary(Unary expression) {
+
+		compile(expression.rhs);
+		emit(NOT);
+		return null;
+	}
+
+
+	@Override
+	public Void visitMultiplicative(Multiplicative expression) {
+
+		switch(expression.operator.type) {
+			case MULTI:	binary(expression.lhs, expression.rhs, IMUL, FMUL); break;
+			case DIV:	binary(expression.lhs, expression.rhs, IDIV, FDIV); break;
+			default:	binary(expression.lhs, expression.rhs, IREM, FREM); break;
+		}
+		return null;
+	}
+
+
+	@Override
+	public Void visitAdditive(Additive expression) {
+
+		if(expression.operator.type == TokenType.PLUS)
+			binary(expression.lhs, expression.rhs, IADD, FADD);
+		else
+			binary(expression.lhs, expression.rhs, ISUB, FSUB);
+		return null;
+	}
+
+
+	@Override
+	public Void visitRelational(Relational expression) {
+
+		switch(expression.operator.type) {
+			case GREATER:	binary(expression.lhs, expression.rhs, IGT, FGT); break;
+			case GREATEREQ:	binary(expression.lhs, expression.rhs, IGE, FGE); break;
+			case LESS:		binary(expression.lhs, expression.rhs, ILT, FLT); break;
+			default:		binary(expression.lhs, expression.rhs, ILE, FLE); break;
+		}
+		return null;
+	}
+
+
+	@Override
+	public Void visitEquality(Equality expression) {
+
+		boolean equal = expression.operator.type == TokenType.EQUALTO;
+		compile(expression.lhs);
+		compile(expression.rhs);
+		if(expression.lhs.type == DataType.FP)
+			emit(equal ? FEQ : FNE);
+		else if(expression.lhs.type == DataType.STR)
+			emit(equal ? AEQ : ANE);
+		else
+			emit(equal ? IEQ : INE);
+		return null;
+	}
+
+
+	/** Leaves the left operand as the result if it decides the outcome, without evaluating the right. */
+	private void shortCircuit(Expression lhs, Expression rhs, int decidingJump) {
+
+		compile(lhs);
+		emit(DUP);
+		int end = emitJump(decidingJump);
+		emit(POP);
+		compile(rhs);
+		patch(end);
+	}
+
+
+	@Override
+	public Void visitLogAnd(LogAnd expression) {
+
+		shortCircuit(expression.lhs, expression.rhs, JUMP_FALSE);
+		return null;
+	}
+
+
+	@Override
+	public Void visitLogOr(LogOr expression) {
+
+		shortCircuit(expression.lhs, expression.rhs, JUMP_TRUE);
+		return null;
+	}
+
+
+	/** An assignment's value is its result, so it stays on the stack. */
+	@Override
+	public Void visitAssignment(Assignment expression) {
+
+		compile(expression.rhs);
+		emit(DUP);
+		store((Identifier) expression.lhs);
+		return null;
+	}
+
+
+	/** A declaration without a value resets its slot, which an earlier block may have used. */
+	@Override
+	public Void visitDeclaration(Declaration statement) {
+
+		Identifier name;
+		if(statement.initialization instanceof Assignment) {
+			Assignment assignment = (Assignment) statement.initialization;
+			name = (Identifier) assignment.lhs;
+			compile(assignment.rhs);
+		} else {
+			name = (Identifier) statement.initialization;
+			if(name.type == DataType.FP)
+				emit(FCONST, Float.floatToRawIntBits(0.0f));
+			else if(name.type == DataType.STR)
+				emit(ACONST, constant(""));
+			else
+				emit(ICONST, 0);
+		}
+		store(name);
+		return null;
+	}
+
+
+	@Override
+	public Void visitDeclarationList(DeclarationList statement) {
+
+		for(Declaration declaration : statement.getList())
+			compile(declaration);
+		return null;
+	}
+
+
+	@Override
+	public Void visitPrintStmt(PrintStatement statement) {
+
+		compile(statement.expression);
+		emit(PRINT, typeIndex(statement.expression.type));
+		return null;
+	}
+
+
+	@Override
+	public Void visitInputStmt(InputStatement statement) {
+
+		Identifier name = (Identifier) statement.expression;
+		emit(INPUT, typeIndex(name.type));
+		operand(name.slot);
+		operand(name.token.line);
+		return null;
+	}
+
+
+	@Override
+	public Void visitIfStmt(IfStatement statement) {
+
+		compile(statement.condition);
+		int otherwise = emitJump(JUMP_FALSE);
+		compile(statement.thenStatement);
+		if(statement.elseStatement == null) {
+			patch(otherwise);
+			return null;
+		}
+		int end = emitJump(JUMP);
+		patch(otherwise);
+		compile(statement.elseStatement);
+		patch(end);
+		return null;
+	}
+
+
+	@Override
+	public Void visitWhileStmt(WhileStatement statement) {
+
+		int check = emitJump(JUMP);
+		int body = this.count;
+		compile(statement.todoStatement);
+		patch(check);
+		compile(statement.condition);
+		emit(JUMP_TRUE, body);
+		return null;
+	}
+
+
+	/** An assignment on its own stores its value without keeping a copy. */
+	@Override
+	public Void visitExpressionStmt(ExpressionStmt statement) {
+
+		if(statement.expression instanceof Assignment) {
+			Assignment assignment = (Assignment) statement.expression;
+			compile(assignment.rhs);
+			store((Identifier) assignment.lhs);
+		} else {
+			compile(statement.expression);
+			emit(POP);
+		}
+		return null;
+	}
+
+
+	@Override
+	public Void visitBlockStmt(BlockStatement statement) {
+
+		compile(statement.statementList);
+		return null;
+	}
+
+
+	@Override
+	public Void visitStatementList(StatementList statement) {
+
+		for(Statement element : statement.getList())
+			compile(element);
+		return null;
+	}
+}
\ No newline at end of file
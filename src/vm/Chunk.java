@@ -0,0 +1,35 @@
+package vm;
+
+/** A compiled program: its code, the strings it uses and the stack it needs. */
+public class Chunk {
+
+	public final int[] code;
+	public final Object[] constants;
+	public final int maxStack;
+
+	public Chunk(int[] code, Object[] constants, int maxStack) {
+
+		this.code = code;
+		this.constants = constants;
+		this.maxStack = maxStack;
+	}
+
+
+	/** One instruction per line, with its code index. */
+	public String disassemble() {
+
+		StringBuilder text = new StringBuilder();
+		for(int pc = 0; pc < this.code.length; pc += 1 + Opcode.OPERANDS[this.code[pc]]) {
+			int op = this.code[pc];
+			text.append(String.format("%5d  %s", pc, Opcode.name(op)));
+			for(int i = 1; i <= Opcode.OPERANDS[op]; i++)
+				text.append(' ').append(this.code[pc + i]);
+			if(op == Opcode.FCONST)
+				text.append("  (").append(Float.intBitsToFloat(this.code[pc + 1])).append(')');
+			else if(op == Opcode.ACONST)
+				text.append("  (\"").append(this.constants[this.code[pc + 1]]).append("\")");
+			text.append('\n');
+		}
+		return text.toString();
+	}
+}
\ No newline at end of file
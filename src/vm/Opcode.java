@@ -0,0 +1,81 @@
+package vm;
+
+/**
+ * The instructions of the stack VM. Each is an opcode in the code array
+ * followed by its operands.
+ *
+ * INT, BOOL and CHAR values are ints on the stack, BOOLs as 0 or 1; FP
+ * values are the raw bits of the float, and STR values sit in a parallel
+ * reference stack. The type checker has fixed every type, so each
+ * operation comes in the variant for its operands and never looks at a
+ * value to find out what it is.
+ *
+ * <pre>
+ * ICONST value        FCONST bits         ACONST pool index
+ * ILOAD  slot         FLOAD  slot         ALOAD  slot
+ * ISTORE slot         FSTORE slot         ASTORE slot     (pop and store)
+ * JUMP target         JUMP_FALSE target   JUMP_TRUE target (pop the condition)
+ * PRINT type          INPUT type slot line
+ * </pre>
+ *
+ * The operand of PRINT and INPUT is the index of the type in
+ * {@link BytecodeCompiler#TYPES}. Jump targets are code indexes.
+ */
+public final class Opcode {
+
+	public static final int HALT = 0, POP = 1, DUP = 2;
+	public static final int ICONST = 3, FCONST = 4, ACONST = 5;
+	public static final int ILOAD = 6, FLOAD = 7, ALOAD = 8;
+	public static final int ISTORE = 9, FSTORE = 10, ASTORE = 11;
+	public static final int IADD = 12, ISUB = 13, IMUL = 14, IDIV = 15, IREM = 16;
+	public static final int FADD = 17, FSUB = 18, FMUL = 19, FDIV = 20, FREM = 21;
+	public static final int ILT = 22, ILE = 23, IGT = 24, IGE = 25;
+	public static final int FLT = 26, FLE = 27, FGT = 28, FGE = 29;
+	public static final int IEQ = 30, INE = 31, FEQ = 32, FNE = 33, AEQ = 34, ANE = 35;
+	public static final int NOT = 36;
+	public static final int JUMP = 37, JUMP_FALSE = 38, JUMP_TRUE = 39;
+	public static final int PRINT = 40, INPUT = 41;
+
+	private static final String[] NAMES = {
+		"HALT", "POP", "DUP",
+		"ICONST", "FCONST", "ACONST",
+		"ILOAD", "FLOAD", "ALOAD",
+		"ISTORE", "FSTORE", "ASTORE",
+		"IADD", "ISUB", "IMUL", "IDIV", "IREM",
+		"FADD", "FSUB", "FMUL", "FDIV", "FREM",
+		"ILT", "ILE", "IGT", "IGE",
+		"FLT", "FLE", "FGT", "FGE",
+		"IEQ", "INE", "FEQ", "FNE", "AEQ", "ANE",
+		"NOT",
+		"JUMP", "JUMP_FALSE", "JUMP_TRUE",
+		"PRINT", "INPUT",
+	};
+
+	/** How many operands follow each opcode. */
+	static final int[] OPERANDS = new int[NAMES.length];
+
+	/** How many values each opcode leaves on the stack, less the ones it takes. */
+	static final int[] EFFECT = new int[NAMES.length];
+
+	static {
+		for(int op : new int[] { ICONST, FCONST, ACONST, ILOAD, FLOAD, ALOAD, ISTORE, FSTORE, ASTORE, JUMP, JUMP_FALSE, JUMP_TRUE, PRINT })
+			OPERANDS[op] = 1;
+		OPERANDS[INPUT] = 3;
+
+		for(int op = IADD; op <= ANE; op++)
+			EFFECT[op] = -1;
+		for(int op : new int[] { DUP, ICONST, FCONST, ACONST, ILOAD, FLOAD, ALOAD })
+			EFFECT[op] = 1;
+		for(int op : new int[] { POP, ISTORE, FSTORE, ASTORE, JUMP_FALSE, JUMP_TRUE, PRINT })
+			EFFECT[op] = -1;
+	}
+
+	private Opcode() {
+	}
+
+
+	public static String name(int op) {
+
+		return op >= 0 && op < NAMES.length ? NAMES[op] : "?" + op;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package vm;
+
+/** A program compiled for the register VM: its code, the strings it uses and the registers of each bank. */
+public class RegisterChunk {
+
+	public final int[] code;
+	public final Object[] constants;
+	public final int intRegisters, floatRegisters, objectRegisters;
+
+	public RegisterChunk(int[] code, Object[] constants, int intRegisters, int floatRegisters, int objectRegisters) {
+
+		this.code = code;
+		this.constants = constants;
+		this.intRegisters = intRegisters;
+		this.floatRegisters = floatRegisters;
+		this.objectRegisters = objectRegisters;
+	}
+
+
+	/** One instruction per line, with its code index. */
+	public String disassemble() {
+
+		StringBuilder text = new StringBuilder();
+		for(int pc = 0; pc < this.code.length; pc += 1 + RegisterOpcode.OPERANDS[this.code[pc]]) {
+			int op = this.code[pc];
+			text.append(String.format("%5d  %s", pc, RegisterOpcode.name(op)));
+			for(int i = 1; i <= RegisterOpcode.OPERANDS[op]; i++)
+				text.append(' ').append(this.code[pc + i]);
+			if(op == RegisterOpcode.FCONST || op >= RegisterOpcode.FADDK && op <= RegisterOpcode.FREMK)
+				text.append("  (").append(Float.intBitsToFloat(this.code[pc + RegisterOpcode.OPERANDS[op]])).append(')');
+			else if(op == RegisterOpcode.ACONST)
+				text.append("  (\"").append(this.constants[this.code[pc + 2]]).append("\")");
+			text.append('\n');
+		}
+		return text.toString();
+	}
+}
\ No newline at end of file
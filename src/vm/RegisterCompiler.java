@@ -0,0 +1,660 @@
+package vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.DataType;
+import ast.Expression;
+import ast.Expression.Additive;
+import ast.Expression.Assignment;
+import ast.Expression.Constant;
+import ast.Expression.Equality;
+import ast.Expression.Grouped;
+import ast.Expression.Identifier;
+import ast.Expression.LogAnd;
+import ast.Expression.LogOr;
+import ast.Expression.Multiplicative;
+import ast.Expression.Relational;
+import ast.Expression.Unary;
+import ast.Statement;
+import ast.Statement.BlockStatement;
+import ast.Statement.Declaration;
+import ast.Statement.DeclarationList;
+import ast.Statement.ExpressionStmt;
+import ast.Statement.IfStatement;
+import ast.Statement.InputStatement;
+import ast.Statement.PrintStatement;
+import ast.Statement.StatementList;
+import ast.Statement.WhileStatement;
+import lexer.TokenType;
+import semantic.Resolver;
+
+import static vm.RegisterOpcode.*;
+
+/**
+ * Compiles a checked, optimized and resolved program to register VM code.
+ *
+ * An expression is compiled into the register its value is wanted in, so
+ * {@code s = s + i} is one IADD straight into s, and a variable is read
+ * from its own register without being copied. Intermediate results take
+ * registers above the variables, which are free again after each
+ * statement. Constant operands are carried in the instruction.
+ *
+ * Conditions are compiled to branches rather than to BOOL values, so
+ * {@code i < n} is one compare-and-branch. WHILE is compiled as a test
+ * before the loop and one at the bottom, and a loop that counts
+ * {@code i} up to a limit with {@code i = i + k} last in its body ends in
+ * a single INC_JLT.
+ *
+ * The type checker has fixed every type before compiling, so every
+ * instruction is emitted in its int or float variant at once; nothing is
+ * left to find out when the program runs.
+ */
+public class RegisterCompiler implements Expression.Visitor<Integer>, Statement.Visitor<Void> {
+
+	/** A jump target, and the jumps to it emitted before it was known. */
+	private static class Label {
+
+		int target = -1;
+		int[] sites = new int[4];
+		int count;
+	}
+
+	private int[] code = new int[256];
+	private int count;
+	private final List<Object> constants = new ArrayList<>();
+	private final Map<Object, Integer> constantIndexes = new HashMap<>();
+
+	/** Per bank: the first register above the variables, the next free one and the most used. */
+	private final int[] base = new int[3], next = new int[3], size = new int[3];
+
+	/** The register the expression being visited must leave its value in, or -1 for any. */
+	private int dest = -1;
+
+
+	public RegisterChunk compile(List<Statement> program, Resolver resolver) {
+
+		this.count = 0;
+		this.constants.clear();
+		this.constantIndexes.clear();
+		for(int bank = 0; bank < 3; bank++)
+			this.base[bank] = this.next[bank] = this.size[bank] = resolver.getFrameSize(bank);
+
+		for(Statement statement : program)
+			compile(statement);
+		emit(HALT);
+		return new RegisterChunk(Arrays.copyOf(this.code, this.count), this.constants.toArray(),
+				this.size[Resolver.INTS], this.size[Resolver.FLOATS], this.size[Resolver.OBJECTS]);
+	}
+
+
+	/** No intermediate register outlives the statement that computed it. */
+	private void compile(Statement statement) {
+
+		int ints = this.next[Resolver.INTS], floats = this.next[Resolver.FLOATS], objects = this.next[Resolver.OBJECTS];
+		statement.accept(this);
+		this.next[Resolver.INTS] = ints;
+		this.next[Resolver.FLOATS] = floats;
+		this.next[Resolver.OBJECTS] = objects;
+	}
+
+
+	/** Compiles an expression into dest, or into any register if dest is -1, and returns that register. */
+	private int value(Expression expression, int dest) {
+
+		int outer = this.dest;
+		this.dest = dest;
+		int register = expression.accept(this);
+		this.dest = outer;
+		return register;
+	}
+
+
+	private int temporary(int bank) {
+
+		int register = this.next[bank]++;
+		if(this.next[bank] > this.size[bank])
+			this.size[bank] = this.next[bank];
+		return register;
+	}
+
+
+	/** The register a result goes into: the one asked for, or a fresh one. */
+	private int target(int bank) {
+
+		return this.dest >= 0 ? this.dest : temporary(bank);
+	}
+
+
+	private static int bank(DataType type) {
+
+		return Resolver.storage(type);
+	}
+
+
+	private void emit(int op, int... operands) {
+
+		if(this.count + operands.length >= this.code.length)
+			this.code = Arrays.copyOf(this.code, Math.max(this.code.length * 2, this.count + operands.length + 1));
+		this.code[this.count++] = op;
+		for(int operand : operands)
+			this.code[this.count++] = operand;
+	}
+
+
+	/** Emits an instruction whose last operand is the label's target. */
+	private void emitJump(Label label, int op, int... operands) {
+
+		emit(op, Arrays.copyOf(operands, operands.length + 1));
+		if(label.target >= 0) {
+			this.code[this.count - 1] = label.target;
+			return;
+		}
+		if(label.count == label.sites.length)
+			label.sites = Arrays.copyOf(label.sites, label.count * 2);
+		label.sites[label.count++] = this.count - 1;
+	}
+
+
+	private void bind(Label label) {
+
+		label.target = this.count;
+		for(int i = 0; i < label.count; i++)
+			this.code[label.sites[i]] = label.target;
+	}
+
+
+	private int constant(Object value) {
+
+		Integer index = this.constantIndexes.get(value);
+		if(index == null) {
+			index = this.constants.size();
+			this.constants.add(value);
+			this.constantIndexes.put(value, index);
+		}
+		return index;
+	}
+
+
+	/** A constant as it is carried in the code: an int, a BOOL as 0 or 1, a CHAR's code or a float's bits. */
+	private static int immediate(Constant constant) {
+
+		Object value = constant.value;
+		if(value instanceof Integer)
+			return (Integer) value;
+		if(value instanceof Float)
+			return Float.floatToRawIntBits((Float) value);
+		if(value instanceof Boolean)
+			return (Boolean) value ? 1 : 0;
+		if(value instanceof Character)
+			return (Character) value;
+		throw new IllegalArgumentException("No immediate form for " + value);
+	}
+
+
+	private static int typeIndex(DataType type) {
+
+		for(int i = 0; i < BytecodeCompiler.TYPES.length; i++)
+			if(BytecodeCompiler.TYPES[i] == type)
+				return i;
+		throw new IllegalArgumentException("Program is not type checked");
+	}
+
+
+	/** Whether evaluating the expression can change a variable. */
+	private static boolean assigns(Expression expression) {
+
+		if(expression instanceof Assignment)
+			return true;
+		if(expression instanceof Grouped)
+			return assigns(((Grouped) expression).expression);
+		if(expression instanceof Unary)
+			return assigns(((Unary) expression).rhs);
+		if(expression instanceof Multiplicative)
+			return assigns(((Multiplicative) expression).lhs) || assigns(((Multiplicative) expression).rhs);
+		if(expression instanceof Additive)
+			return assigns(((Additive) expression).lhs) || assigns(((Additive) expression).rhs);
+		if(expression instanceof Relational)
+			return assigns(((Relational) expression).lhs) || assigns(((Relational) expression).rhs);
+		if(expression instanceof Equality)
+			return assigns(((Equality) expression).lhs) || assigns(((Equality) expression).rhs);
+		if(expression instanceof LogAnd)
+			return assigns(((LogAnd) expression).lhs) || assigns(((LogAnd) expression).rhs);
+		if(expression instanceof LogOr)
+			return assigns(((LogOr) expression).lhs) || assigns(((LogOr) expression).rhs);
+		return false;
+	}
+
+
+	/**
+	 * The register of a left operand. A variable is read in place unless
+	 * the right operand may assign it first; then its value is copied.
+	 */
+	private int left(Expression lhs, Expression rhs) {
+
+		int bank = bank(lhs.type);
+		int register = value(lhs, -1);
+		if(register < this.base[bank] && assigns(rhs)) {
+			int copy = temporary(bank);
+			emit(bank == Resolver.FLOATS ? FMOV : bank == Resolver.OBJECTS ? AMOV : IMOV, copy, register);
+			register = copy;
+		}
+		return register;
+	}
+
+
+	/**
+	 * An operation on two operands: op on two registers, or its K form when
+	 * the right operand is a constant. K forms exist for every int
+	 * operation and for float arithmetic, not for float comparisons.
+	 */
+	private int binary(Expression lhs, Expression rhs, int op, int offsetK, boolean hasK, int resultBank) {
+
+		int dest = this.dest;
+		int a = left(lhs, rhs);
+		if(hasK && rhs instanceof Constant) {
+			int d = dest >= 0 ? dest : temporary(resultBank);
+			emit(op + offsetK, d, a, immediate((Constant) rhs));
+			return d;
+		}
+		int b = value(rhs, -1);
+		int d = dest >= 0 ? dest : temporary(resultBank);
+		emit(op, d, a, b);
+		return d;
+	}
+
+
+	private int arithmetic(Expression expression, Expression lhs, Expression rhs, int operation) {
+
+		boolean floating = expression.type == DataType.FP;
+		int op = (floating ? FADD : IADD) + operation;
+		int bank = bank(expression.type);
+
+		// a constant on the left of + or * can go on the right
+		if((operation == ADD || operation == MUL) && lhs instanceof Constant && !(rhs instanceof Constant)) {
+			Expression swap = lhs;
+			lhs = rhs;
+			rhs = swap;
+		}
+
+		// v = v + k and v = v - k become one IINC
+		if(!floating && (operation == ADD || operation == SUB) && rhs instanceof Constant && this.dest >= 0) {
+			int a = value(lhs, -1);
+			int k = immediate((Constant) rhs);
+			if(a == this.dest) {
+				emit(IINC, a, operation == ADD ? k : -k);
+				return a;
+			}
+			emit(op + ARITHMETIC_K, this.dest, a, k);
+			return this.dest;
+		}
+		return binary(lhs, rhs, op, ARITHMETIC_K, true, bank);
+	}
+
+
+	/** A comparison of two ints, BOOLs or CHARs, or of two FPs, or of two STRs, to 1 or 0. */
+	private int comparison(Expression lhs, Expression rhs, int comparison) {
+
+		DataType type = lhs.type;
+		if(type == DataType.FP)
+			return binary(lhs, rhs, FLT + comparison, 0, false, Resolver.INTS);
+		if(type == DataType.STR)
+			return binary(lhs, rhs, comparison == EQ ? AEQ : ANE, 0, false, Resolver.INTS);
+		return binary(lhs, rhs, ILT + comparison, COMPARISON_K, true, Resolver.INTS);
+	}
+
+
+	private static int comparison(Relational expression) {
+
+		switch(expression.operator.type) {
+			case LESS:		return LT;
+			case LESSEQ:	return LE;
+			case GREATER:	return GT;
+			default:		return GE;
+		}
+	}
+
+
+	/** Emits a jump to target, taken when the condition's value is when. */
+	private void branch(Expression condition, boolean when, Label target) {
+
+		if(condition instanceof Grouped) {
+			branch(((Grouped) condition).expression, when, target);
+		} else if(condition instanceof Constant) {
+			if((Boolean) ((Constant) condition).value == when)
+				emitJump(target, JUMP);
+		} else if(condition instanceof Unary) {
+			branch(((Unary) condition).rhs, !when, target);
+		} else if(condition instanceof LogAnd || condition instanceof LogOr) {
+			boolean and = condition instanceof LogAnd;
+			Expression lhs = and ? ((LogAnd) condition).lhs : ((LogOr) condition).lhs;
+			Expression rhs = and ? ((LogAnd) condition).rhs : ((LogOr) condition).rhs;
+			// false & x and true | x decide without x
+			if(when != and) {
+				branch(lhs, when, target);
+				branch(rhs, when, target);
+			} else {
+				Label skip = new Label();
+				branch(lhs, !when, skip);
+				branch(rhs, when, target);
+				bind(skip);
+			}
+		} else if(condition instanceof Relational && ((Relational) condition).lhs.type == DataType.INT) {
+			Relational relational = (Relational) condition;
+			compareAndBranch(relational.lhs, relational.rhs, comparison(relational), when, target);
+		} else if(condition instanceof Equality && bank(((Equality) condition).lhs.type) == Resolver.INTS) {
+			Equality equality = (Equality) condition;
+			int comparison = equality.operator.type == TokenType.EQUALTO ? EQ : NE;
+			compareAndBranch(equality.lhs, equality.rhs, comparison, when, target);
+		} else {
+			int register = value(condition, -1);
+			emitJump(target, when ? JUMP_TRUE : JUMP_FALSE, register);
+		}
+	}
+
+
+	/** Negating an int comparison is exact, so a jump when false is the opposite comparison's jump. */
+	private void compareAndBranch(Expression lhs, Expression rhs, int comparison, boolean when, Label target) {
+
+		if(!when)
+			comparison = NEGATED[comparison];
+		int a = left(lhs, rhs);
+		if(rhs instanceof Constant)
+			emitJump(target, JLTK + comparison, a, immediate((Constant) rhs));
+		else
+			emitJump(target, JLT + comparison, a, value(rhs, -1));
+	}
+
+
+	@Override
+	public Integer visitConstant(Constant expression) {
+
+		int bank = bank(expression.type);
+		int d = target(bank);
+		if(bank == Resolver.OBJECTS)
+			emit(ACONST, d, constant(expression.value));
+		else
+			emit(bank == Resolver.FLOATS ? FCONST : ICONST, d, immediate(expression));
+		return d;
+	}
+
+
+	@Override
+	public Integer visitIdentifier(Identifier expression) {
+
+		int bank = bank(expression.type);
+		if(this.dest < 0 || this.dest == expression.slot)
+			return expression.slot;
+		emit(bank == Resolver.FLOATS ? FMOV : bank == Resolver.OBJECTS ? AMOV : IMOV, this.dest, expression.slot);
+		return this.dest;
+	}
+
+
+	@Override
+	public Integer visitGrouped(Grouped expression) {
+
+		return value(expression.expression, this.dest);
+	}
+
+
+	@Override
+	public Integer visitUnary(Unary expression) {
+
+		int dest = this.dest;
+		int a = value(expression.rhs, -1);
+		int d = dest >= 0 ? dest : temporary(Resolver.INTS);
+		emit(NOT, d, a);
+		return d;
+	}
+
+
+	@Override
+	public Integer visitMultiplicative(Multiplicative expression) {
+
+		switch(expression.operator.type) {
+			case MULTI:	return arithmetic(expression, expression.lhs, expression.rhs, MUL);
+			case DIV:	return arithmetic(expression, expression.lhs, expression.rhs, DIV);
+			default:	return arithmetic(expression, expression.lhs, expression.rhs, REM);
+		}
+	}
+
+
+	@Override
+	public Integer visitAdditive(Additive expression) {
+
+		int operation = expression.operator.type == TokenType.PLUS ? ADD : SUB;
+		return arithmetic(expression, expression.lhs, expression.rhs, operation);
+	}
+
+
+	@Override
+	public Integer visitRelational(Relational expression) {
+
+		return comparison(expression.lhs, expression.rhs, comparison(expression));
+	}
+
+
+	@Override
+	public Integer visitEquality(Equality expression) {
+
+		return comparison(expression.lhs, expression.rhs, expression.operator.type == TokenType.EQUALTO ? EQ : NE);
+	}
+
+
+	/**
+	 * The left operand's value is the result if it decides the outcome.
+	 * It goes through a temporary when the result is a variable, which the
+	 * right operand may still read.
+	 */
+	private int shortCircuit(Expression lhs, Expression rhs, int decidingJump) {
+
+		int dest = this.dest;
+		int d = dest >= this.base[Resolver.INTS] ? dest : temporary(Resolver.INTS);
+		Label end = new Label();
+		value(lhs, d);
+		emitJump(end, decidingJump, d);
+		value(rhs, d);
+		bind(end);
+		if(dest >= 0 && dest != d) {
+			emit(IMOV, dest, d);
+			return dest;
+		}
+		return d;
+	}
+
+
+	@Override
+	public Integer visitLogAnd(LogAnd expression) {
+
+		return shortCircuit(expression.lhs, expression.rhs, JUMP_FALSE);
+	}
+
+
+	@Override
+	public Integer visitLogOr(LogOr expression) {
+
+		return shortCircuit(expression.lhs, expression.rhs, JUMP_TRUE);
+	}
+
+
+	/** The value is computed straight into the variable's register. */
+	@Override
+	public Integer visitAssignment(Assignment expression) {
+
+		Identifier name = (Identifier) expression.lhs;
+		int dest = this.dest;
+		value(expression.rhs, name.slot);
+		if(dest < 0 || dest == name.slot)
+			return name.slot;
+		int bank = bank(name.type);
+		emit(bank == Resolver.FLOATS ? FMOV : bank == Resolver.OBJECTS ? AMOV : IMOV, dest, name.slot);
+		return dest;
+	}
+
+
+	/** A declaration without a value resets its register, which an earlier block may have used. */
+	@Override
+	public Void visitDeclaration(Declaration statement) {
+
+		if(statement.initialization instanceof Assignment) {
+			value(statement.initialization, -1);
+			return null;
+		}
+		Identifier name = (Identifier) statement.initialization;
+		if(name.type == DataType.FP)
+			emit(FCONST, name.slot, Float.floatToRawIntBits(0.0f));
+		else if(name.type == DataType.STR)
+			emit(ACONST, name.slot, constant(""));
+		else
+			emit(ICONST, name.slot, 0);
+		return null;
+	}
+
+
+	@Override
+	public Void visitDeclarationList(DeclarationList statement) {
+
+		for(Declaration declaration : statement.getList())
+			compile(declaration);
+		return null;
+	}
+
+
+	@Override
+	public Void visitPrintStmt(PrintStatement statement) {
+
+		int register = value(statement.expression, -1);
+		emit(PRINT, typeIndex(statement.expression.type), register);
+		return null;
+	}
+
+
+	@Override
+	public Void visitInputStmt(InputStatement statement) {
+
+		Identifier name = (Identifier) statement.expression;
+		emit(INPUT, typeIndex(name.type), name.slot, name.token.line);
+		return null;
+	}
+
+
+	@Override
+	public Void visitIfStmt(IfStatement statement) {
+
+		Label otherwise = new Label();
+		branch(statement.condition, false, otherwise);
+		compile(statement.thenStatement);
+		if(statement.elseStatement == null) {
+			bind(otherwise);
+			return null;
+		}
+		Label end = new Label();
+		emitJump(end, JUMP);
+		bind(otherwise);
+		compile(statement.elseStatement);
+		bind(end);
+		return null;
+	}
+
+
+	@Override
+	public Void visitWhileStmt(WhileStatement statement) {
+
+		Label body = new Label(), end = new Label();
+		branch(statement.condition, false, end);
+		bind(body);
+
+		Statement step = countingStep(statement);
+		if(step == null) {
+			compile(statement.todoStatement);
+			branch(statement.condition, true, body);
+		} else {
+			List<Statement> statements = ((StatementList) statement.todoStatement).getList();
+			for(int i = 0; i < statements.size() - 1; i++)
+				compile(statements.get(i));
+
+			Relational condition = (Relational) statement.condition;
+			Additive add = (Additive) ((Assignment) ((ExpressionStmt) step).expression).rhs;
+			int counter = ((Identifier) condition.lhs).slot;
+			int k = immediate((Constant) add.rhs);
+			if(add.operator.type == TokenType.MINUS)
+				k = -k;
+			if(condition.rhs instanceof Constant)
+				emitJump(body, INC_JLTK, counter, k, immediate((Constant) condition.rhs));
+			else
+				emitJump(body, INC_JLT, counter, k, ((Identifier) condition.rhs).slot);
+		}
+		bind(end);
+		return null;
+	}
+
+
+	/**
+	 * The last statement of a loop of the shape
+	 * {@code WHILE (i < n) { ... i = i + k; }}, with n a constant or another
+	 * INT variable, or null if the loop has another shape.
+	 */
+	private static Statement countingStep(WhileStatement loop) {
+
+		if(!(loop.condition instanceof Relational) || !(loop.todoStatement instanceof StatementList))
+			return null;
+		Relational condition = (Relational) loop.condition;
+		if(condition.operator.type != TokenType.LESS || condition.lhs.type != DataType.INT
+				|| !(condition.lhs instanceof Identifier)
+				|| !(condition.rhs instanceof Constant || condition.rhs instanceof Identifier))
+			return null;
+		int counter = ((Identifier) condition.lhs).slot;
+		if(condition.rhs instanceof Identifier && ((Identifier) condition.rhs).slot == counter)
+			return null;
+
+		List<Statement> body = ((StatementList) loop.todoStatement).getList();
+		if(body.isEmpty() || !(body.get(body.size() - 1) instanceof ExpressionStmt))
+			return null;
+		Statement last = body.get(body.size() - 1);
+		Expression expression = ((ExpressionStmt) last).expression;
+		if(!(expression instanceof Assignment) || !isVariable(((Assignment) expression).lhs, counter))
+			return null;
+		Expression rhs = ((Assignment) expression).rhs;
+		if(!(rhs instanceof Additive))
+			return null;
+		Additive add = (Additive) rhs;
+		if(!isVariable(add.lhs, counter) || !(add.rhs instanceof Constant))
+			return null;
+		return last;
+	}
+
+
+	/** Two INT variables alive at the same time never share a register, so the slot names the variable. */
+	private static boolean isVariable(Expression expression, int slot) {
+
+		return expression instanceof Identifier && expression.type == DataType.INT && ((Identifier) expression).slot == slot;
+	}
+
+
+	@Override
+	public Void visitExpressionStmt(ExpressionStmt statement) {
+
+		value(statement.expression, -1);
+		return null;
+	}
+
+
+	@Override
+	public Void visitBlockStmt(BlockStatement statement) {
+
+		compile(statement.statementList);
+		return null;
+	}
+
+
+	@Override
+	public Void visitStatementList(StatementList statement) {
+
+		for(Statement element : statement.getList())
+			compile(element);
+		return null;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,200 @@
+package vm;
+
+import java.util.List;
+import java.util.Objects;
+
+import ast.DataType;
+import ast.Statement;
+import interpreter.Frame;
+import interpreter.Interpreter;
+import semantic.Optimizer;
+import semantic.Resolver;
+import semantic.TypeChecker;
+
+import static vm.RegisterOpcode.*;
+
+/**
+ * Runs register VM code. The registers are the arrays of a frame sized for
+ * the chunk: its variables where the resolver put them, then the
+ * compiler's intermediate results.
+ */
+public class RegisterMachine {
+
+	private long dispatches;
+
+
+	/** Checks, compiles and runs a program, like {@link Interpreter#interpret}. */
+	public void interpret(List<Statement> program) {
+
+		new TypeChecker().check(program);
+		program = new Optimizer().optimize(program);
+		Resolver resolver = new Resolver();
+		resolver.resolve(program);
+
+		RegisterChunk chunk = new RegisterCompiler().compile(program, resolver);
+		run(chunk, new Frame(chunk.intRegisters, chunk.floatRegisters, chunk.objectRegisters));
+	}
+
+
+	/** How many instructions the last run executed. */
+	public long getDispatches() {
+
+		return this.dispatches;
+	}
+
+
+	public void run(RegisterChunk chunk, Frame frame) {
+
+		final int[] code = chunk.code;
+		final Object[] constants = chunk.constants;
+		final int[] ints = frame.ints;
+		final float[] floats = frame.floats;
+		final Object[] objects = frame.objects;
+		int pc = 0;
+		long dispatches = 0;
+
+		while(true) {
+			dispatches++;
+			switch(code[pc]) {
+				case HALT:
+					this.dispatches = dispatches;
+					return;
+
+				case IMOV:		ints[code[pc + 1]] = ints[code[pc + 2]]; pc += 3; break;
+				case FMOV:		floats[code[pc + 1]] = floats[code[pc + 2]]; pc += 3; break;
+				case AMOV:		objects[code[pc + 1]] = objects[code[pc + 2]]; pc += 3; break;
+				case ICONST:	ints[code[pc + 1]] = code[pc + 2]; pc += 3; break;
+				case FCONST:	floats[code[pc + 1]] = Float.intBitsToFloat(code[pc + 2]); pc += 3; break;
+				case ACONST:	objects[code[pc + 1]] = constants[code[pc + 2]]; pc += 3; break;
+
+				case IADD:	ints[code[pc + 1]] = ints[code[pc + 2]] + ints[code[pc + 3]]; pc += 4; break;
+				case ISUB:	ints[code[pc + 1]] = ints[code[pc + 2]] - ints[code[pc + 3]]; pc += 4; break;
+				case IMUL:	ints[code[pc + 1]] = ints[code[pc + 2]] * ints[code[pc + 3]]; pc += 4; break;
+				case IDIV:	ints[code[pc + 1]] = ints[code[pc + 2]] / ints[code[pc + 3]]; pc += 4; break;
+				case IREM:	ints[code[pc + 1]] = ints[code[pc + 2]] % ints[code[pc + 3]]; pc += 4; break;
+				case IADDK:	ints[code[pc + 1]] = ints[code[pc + 2]] + code[pc + 3]; pc += 4; break;
+				case ISUBK:	ints[code[pc + 1]] = ints[code[pc + 2]] - code[pc + 3]; pc += 4; break;
+				case IMULK:	ints[code[pc + 1]] = ints[code[pc + 2]] * code[pc + 3]; pc += 4; break;
+				case IDIVK:	ints[code[pc + 1]] = ints[code[pc + 2]] / code[pc + 3]; pc += 4; break;
+				case IREMK:	ints[code[pc + 1]] = ints[code[pc + 2]] % code[pc + 3]; pc += 4; break;
+
+				case FADD:	floats[code[pc + 1]] = floats[code[pc + 2]] + floats[code[pc + 3]]; pc += 4; break;
+				case FSUB:	floats[code[pc + 1]] = floats[code[pc + 2]] - floats[code[pc + 3]]; pc += 4; break;
+				case FMUL:	floats[code[pc + 1]] = floats[code[pc + 2]] * floats[code[pc + 3]]; pc += 4; break;
+				case FDIV:	floats[code[pc + 1]] = floats[code[pc + 2]] / floats[code[pc + 3]]; pc += 4; break;
+				case FREM:	floats[code[pc + 1]] = floats[code[pc + 2]] % floats[code[pc + 3]]; pc += 4; break;
+				case FADDK:	floats[code[pc + 1]] = floats[code[pc + 2]] + f(code[pc + 3]); pc += 4; break;
+				case FSUBK:	floats[code[pc + 1]] = floats[code[pc + 2]] - f(code[pc + 3]); pc += 4; break;
+				case FMULK:	floats[code[pc + 1]] = floats[code[pc + 2]] * f(code[pc + 3]); pc += 4; break;
+				case FDIVK:	floats[code[pc + 1]] = floats[code[pc + 2]] / f(code[pc + 3]); pc += 4; break;
+				case FREMK:	floats[code[pc + 1]] = floats[code[pc + 2]] % f(code[pc + 3]); pc += 4; break;
+
+				case ILT:	ints[code[pc + 1]] = ints[code[pc + 2]] < ints[code[pc + 3]] ? 1 : 0; pc += 4; break;
+				case ILE:	ints[code[pc + 1]] = ints[code[pc + 2]] <= ints[code[pc + 3]] ? 1 : 0; pc += 4; break;
+				case IGT:	ints[code[pc + 1]] = ints[code[pc + 2]] > ints[code[pc + 3]] ? 1 : 0; pc += 4; break;
+				case IGE:	ints[code[pc + 1]] = ints[code[pc + 2]] >= ints[code[pc + 3]] ? 1 : 0; pc += 4; break;
+				case IEQ:	ints[code[pc + 1]] = ints[code[pc + 2]] == ints[code[pc + 3]] ? 1 : 0; pc += 4; break;
+				case INE:	ints[code[pc + 1]] = ints[code[pc + 2]] != ints[code[pc + 3]] ? 1 : 0; pc += 4; break;
+				case ILTK:	ints[code[pc + 1]] = ints[code[pc + 2]] < code[pc + 3] ? 1 : 0; pc += 4; break;
+				case ILEK:	ints[code[pc + 1]] = ints[code[pc + 2]] <= code[pc + 3] ? 1 : 0; pc += 4; break;
+				case IGTK:	ints[code[pc + 1]] = ints[code[pc + 2]] > code[pc + 3] ? 1 : 0; pc += 4; break;
+				case IGEK:	ints[code[pc + 1]] = ints[code[pc + 2]] >= code[pc + 3] ? 1 : 0; pc += 4; break;
+				case IEQK:	ints[code[pc + 1]] = ints[code[pc + 2]] == code[pc + 3] ? 1 : 0; pc += 4; break;
+				case INEK:	ints[code[pc + 1]] = ints[code[pc + 2]] != code[pc + 3] ? 1 : 0; pc += 4; break;
+
+				case FLT:	ints[code[pc + 1]] = floats[code[pc + 2]] < floats[code[pc + 3]] ? 1 : 0; pc += 4; break;
+				case FLE:	ints[code[pc + 1]] = floats[code[pc + 2]] <= floats[code[pc + 3]] ? 1 : 0; pc += 4; break;
+				case FGT:	ints[code[pc + 1]] = floats[code[pc + 2]] > floats[code[pc + 3]] ? 1 : 0; pc += 4; break;
+				case FGE:	ints[code[pc + 1]] = floats[code[pc + 2]] >= floats[code[pc + 3]] ? 1 : 0; pc += 4; break;
+				// Float.equals, as the interpreter compares: NaN equals NaN, 0.0 does not equal -0.0
+				case FEQ:	ints[code[pc + 1]] = floatEquals(floats[code[pc + 2]], floats[code[pc + 3]]) ? 1 : 0; pc += 4; break;
+				case FNE:	ints[code[pc + 1]] = floatEquals(floats[code[pc + 2]], floats[code[pc + 3]]) ? 0 : 1; pc += 4; break;
+				case AEQ:	ints[code[pc + 1]] = Objects.equals(objects[code[pc + 2]], objects[code[pc + 3]]) ? 1 : 0; pc += 4; break;
+				case ANE:	ints[code[pc + 1]] = Objects.equals(objects[code[pc + 2]], objects[code[pc + 3]]) ? 0 : 1; pc += 4; break;
+				case NOT:	ints[code[pc + 1]] = ints[code[pc + 2]] ^ 1; pc += 3; break;
+
+				case JUMP:			pc = code[pc + 1]; break;
+				case JUMP_FALSE:	pc = ints[code[pc + 1]] == 0 ? code[pc + 2] : pc + 3; break;
+				case JUMP_TRUE:		pc = ints[code[pc + 1]] != 0 ? code[pc + 2] : pc + 3; break;
+
+				case JLT:	pc = ints[code[pc + 1]] < ints[code[pc + 2]] ? code[pc + 3] : pc + 4; break;
+				case JLE:	pc = ints[code[pc + 1]] <= ints[code[pc + 2]] ? code[pc + 3] : pc + 4; break;
+				case JGT:	pc = ints[code[pc + 1]] > ints[code[pc + 2]] ? code[pc + 3] : pc + 4; break;
+				case JGE:	pc = ints[code[pc + 1]] >= ints[code[pc + 2]] ? code[pc + 3] : pc + 4; break;
+				case JEQ:	pc = ints[code[pc + 1]] == ints[code[pc + 2]] ? code[pc + 3] : pc + 4; break;
+				case JNE:	pc = ints[code[pc + 1]] != ints[code[pc + 2]] ? code[pc + 3] : pc + 4; break;
+				case JLTK:	pc = ints[code[pc + 1]] < code[pc + 2] ? code[pc + 3] : pc + 4; break;
+				case JLEK:	pc = ints[code[pc + 1]] <= code[pc + 2] ? code[pc + 3] : pc + 4; break;
+				case JGTK:	pc = ints[code[pc + 1]] > code[pc + 2] ? code[pc + 3] : pc + 4; break;
+				case JGEK:	pc = ints[code[pc + 1]] >= code[pc + 2] ? code[pc + 3] : pc + 4; break;
+				case JEQK:	pc = ints[code[pc + 1]] == code[pc + 2] ? code[pc + 3] : pc + 4; break;
+				case JNEK:	pc = ints[code[pc + 1]] != code[pc + 2] ? code[pc + 3] : pc + 4; break;
+
+				case IINC:
+					ints[code[pc + 1]] += code[pc + 2];
+					pc += 3;
+					break;
+				case INC_JLT: {
+					int counter = ints[code[pc + 1]] += code[pc + 2];
+					pc = counter < ints[code[pc + 3]] ? code[pc + 4] : pc + 5;
+					break;
+				}
+				case INC_JLTK: {
+					int counter = ints[code[pc + 1]] += code[pc + 2];
+					pc = counter < code[pc + 3] ? code[pc + 4] : pc + 5;
+					break;
+				}
+
+				case PRINT: {
+					DataType type = BytecodeCompiler.TYPES[code[pc + 1]];
+					int register = code[pc + 2];
+					Object value;
+					if(type == DataType.INT)
+						value = ints[register];
+					else if(type == DataType.FP)
+						value = floats[register];
+					else if(type == DataType.BOOL)
+						value = ints[register] != 0;
+					else if(type == DataType.CHAR)
+						value = (char) ints[register];
+					else
+						value = objects[register];
+					System.out.println(Interpreter.toString(value));
+					pc += 3;
+					break;
+				}
+				case INPUT: {
+					DataType type = BytecodeCompiler.TYPES[code[pc + 1]];
+					int register = code[pc + 2];
+					Object value = Interpreter.read(type, code[pc + 3]);
+					if(type == DataType.INT)
+						ints[register] = (Integer) value;
+					else if(type == DataType.FP)
+						floats[register] = (Float) value;
+					else if(type == DataType.BOOL)
+						ints[register] = (Boolean) value ? 1 : 0;
+					else if(type == DataType.CHAR)
+						ints[register] = (Character) value;
+					else
+						objects[register] = value;
+					pc += 4;
+					break;
+				}
+				default:
+					throw new IllegalStateException("Bad opcode " + code[pc] + " at " + pc);
+			}
+		}
+	}
+
+
+	private static float f(int bits) {
+
+		return Float.intBitsToFloat(bits);
+	}
+
+
+	private static boolean floatEquals(float lhs, float rhs) {
+
+		return Float.floatToIntBits(lhs) == Float.floatToIntBits(rhs);
+	}
+}
\ No newline at end of file
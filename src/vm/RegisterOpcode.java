@@ -0,0 +1,110 @@
+package vm;
+
+/**
+ * The instructions of the register VM. An instruction names its operands
+ * directly: registers of the int, float or object bank, or a constant
+ * carried in the code array, so no value is pushed or popped.
+ *
+ * Registers below the resolver's frame size are the program's variables,
+ * the ones above hold intermediate results. INT, BOOL and CHAR use the int
+ * bank, FP the float bank, STR the object bank.
+ *
+ * <pre>
+ * IMOV FMOV AMOV d a          ICONST FCONST d value      ACONST d pool index
+ * IADD ... IREM  d a b        IADDK ... IREMK  d a value
+ * FADD ... FREM  d a b        FADDK ... FREMK  d a bits
+ * ILT ... INE    d a b        ILTK ... INEK    d a value    (d = 1 or 0)
+ * FLT ... FNE    d a b        AEQ ANE d a b               NOT d a
+ * JUMP target                 JUMP_FALSE JUMP_TRUE r target
+ * JLT ... JNE    a b target   JLTK ... JNEK    a value target
+ * IINC r value                INC_JLT r value b target     INC_JLTK r value limit target
+ * PRINT type r                INPUT type r line
+ * </pre>
+ *
+ * The K forms take a constant as the last operand. The J forms compare
+ * and branch in one instruction. IINC is an assignment of the shape
+ * {@code i = i + 1}, and the INC_JLT forms add to a counter and test it
+ * against its limit, which is all the last step of a counting loop does.
+ *
+ * The arithmetic, comparison and branch groups each keep the order
+ * ADD SUB MUL DIV REM and LT LE GT GE EQ NE, and each K group follows its
+ * register group at the same distance, so the compiler picks an
+ * instruction by adding offsets.
+ */
+public final class RegisterOpcode {
+
+	public static final int HALT = 0;
+	public static final int IMOV = 1, FMOV = 2, AMOV = 3, ICONST = 4, FCONST = 5, ACONST = 6;
+	public static final int IADD = 7, ISUB = 8, IMUL = 9, IDIV = 10, IREM = 11;
+	public static final int IADDK = 12, ISUBK = 13, IMULK = 14, IDIVK = 15, IREMK = 16;
+	public static final int FADD = 17, FSUB = 18, FMUL = 19, FDIV = 20, FREM = 21;
+	public static final int FADDK = 22, FSUBK = 23, FMULK = 24, FDIVK = 25, FREMK = 26;
+	public static final int ILT = 27, ILE = 28, IGT = 29, IGE = 30, IEQ = 31, INE = 32;
+	public static final int ILTK = 33, ILEK = 34, IGTK = 35, IGEK = 36, IEQK = 37, INEK = 38;
+	public static final int FLT = 39, FLE = 40, FGT = 41, FGE = 42, FEQ = 43, FNE = 44;
+	public static final int AEQ = 45, ANE = 46, NOT = 47;
+	public static final int JUMP = 48, JUMP_FALSE = 49, JUMP_TRUE = 50;
+	public static final int JLT = 51, JLE = 52, JGT = 53, JGE = 54, JEQ = 55, JNE = 56;
+	public static final int JLTK = 57, JLEK = 58, JGTK = 59, JGEK = 60, JEQK = 61, JNEK = 62;
+	public static final int IINC = 63, INC_JLT = 64, INC_JLTK = 65;
+	public static final int PRINT = 66, INPUT = 67;
+
+	/** Distance from an arithmetic instruction to its K form. */
+	static final int ARITHMETIC_K = IADDK - IADD;
+
+	/** Distance from a comparison or compare-and-branch to its K form. */
+	static final int COMPARISON_K = ILTK - ILT;
+
+	/** Operations in group order, ADD SUB MUL DIV REM, then LT LE GT GE EQ NE. */
+	static final int ADD = 0, SUB = 1, MUL = 2, DIV = 3, REM = 4;
+	static final int LT = 0, LE = 1, GT = 2, GE = 3, EQ = 4, NE = 5;
+
+	/** The comparison that is true exactly when the one at the same index is false, for ints. */
+	static final int[] NEGATED = { GE, GT, LE, LT, NE, EQ };
+
+	private static final String[] NAMES = {
+		"HALT",
+		"IMOV", "FMOV", "AMOV", "ICONST", "FCONST", "ACONST",
+		"IADD", "ISUB", "IMUL", "IDIV", "IREM",
+		"IADDK", "ISUBK", "IMULK", "IDIVK", "IREMK",
+		"FADD", "FSUB", "FMUL", "FDIV", "FREM",
+		"FADDK", "FSUBK", "FMULK", "FDIVK", "FREMK",
+		"ILT", "ILE", "IGT", "IGE", "IEQ", "INE",
+		"ILTK", "ILEK", "IGTK", "IGEK", "IEQK", "INEK",
+		"FLT", "FLE", "FGT", "FGE", "FEQ", "FNE",
+		"AEQ", "ANE", "NOT",
+		"JUMP", "JUMP_FALSE", "JUMP_TRUE",
+		"JLT", "JLE", "JGT", "JGE", "JEQ", "JNE",
+		"JLTK", "JLEK", "JGTK", "JGEK", "JEQK", "JNEK",
+		"IINC", "INC_JLT", "INC_JLTK",
+		"PRINT", "INPUT",
+	};
+
+	/** How many operands follow each opcode. */
+	static final int[] OPERANDS = new int[NAMES.length];
+
+	static {
+		for(int op = IMOV; op <= ACONST; op++)
+			OPERANDS[op] = 2;
+		for(int op = IADD; op <= ANE; op++)
+			OPERANDS[op] = 3;
+		OPERANDS[NOT] = 2;
+		OPERANDS[JUMP] = 1;
+		OPERANDS[JUMP_FALSE] = OPERANDS[JUMP_TRUE] = 2;
+		for(int op = JLT; op <= JNEK; op++)
+			OPERANDS[op] = 3;
+		OPERANDS[IINC] = 2;
+		OPERANDS[INC_JLT] = OPERANDS[INC_JLTK] = 4;
+		OPERANDS[PRINT] = 2;
+		OPERANDS[INPUT] = 3;
+	}
+
+	private RegisterOpcode() {
+	}
+
+
+	public static String name(int op) {
+
+		return op >= 0 && op < NAMES.length ? NAMES[op] : "?" + op;
+	}
+}
\ No newline at end of file
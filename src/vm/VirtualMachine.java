@@ -0,0 +1,219 @@
+package vm;
+
+import java.util.List;
+import java.util.Objects;
+
+import ast.DataType;
+import ast.Statement;
+import interpreter.Frame;
+import interpreter.Interpreter;
+import semantic.Optimizer;
+import semantic.Resolver;
+import semantic.TypeChecker;
+
+import static vm.Opcode.*;
+
+/**
+ * Runs stack VM code in one loop over the code array. Values live in an
+ * int stack, with FPs as their raw bits, and STR values in a reference
+ * stack beside it at the same depth. The top int is kept in a local rather
+ * than in the array, which saves a store and a load on most instructions;
+ * slot 0 of the array only ever holds the empty stack's top.
+ *
+ * The tree-walking {@link Interpreter} stays the reference engine: both
+ * check, optimize and resolve a program the same way, then print the same
+ * output for it.
+ */
+public class VirtualMachine {
+
+	private long dispatches;
+
+	/** Checks, compiles and runs a program, like {@link Interpreter#interpret}. */
+	public void interpret(List<Statement> program) {
+
+		new TypeChecker().check(program);
+		program = new Optimizer().optimize(program);
+		Resolver resolver = new Resolver();
+		resolver.resolve(program);
+
+		Chunk chunk = new BytecodeCompiler().compile(program);
+		run(chunk, new Frame(resolver.getFrameSize(Resolver.INTS), resolver.getFrameSize(Resolver.FLOATS),
+				resolver.getFrameSize(Resolver.OBJECTS)));
+	}
+
+
+	/** How many instructions the last run executed. */
+	public long getDispatches() {
+
+		return this.dispatches;
+	}
+
+
+	public void run(Chunk chunk, Frame frame) {
+
+		final int[] code = chunk.code;
+		final Object[] constants = chunk.constants;
+		final int[] ints = frame.ints;
+		final float[] floats = frame.floats;
+		final Object[] objects = frame.objects;
+		final int[] stack = new int[chunk.maxStack + 1];
+		final Object[] refs = new Object[chunk.maxStack + 1];
+		int pc = 0, sp = 0, tos = 0;
+		long dispatches = 0;
+
+		while(true) {
+			dispatches++;
+			switch(code[pc++]) {
+				case HALT:
+					this.dispatches = dispatches;
+					return;
+				case POP:
+					refs[sp] = null;
+					tos = stack[--sp];
+					break;
+				case DUP:
+					stack[sp++] = tos;
+					refs[sp] = refs[sp - 1];
+					break;
+				case ICONST:
+				case FCONST:
+					stack[sp++] = tos;
+					tos = code[pc++];
+					break;
+				case ACONST:
+					stack[sp++] = tos;
+					refs[sp] = constants[code[pc++]];
+					break;
+				case ILOAD:
+					stack[sp++] = tos;
+					tos = ints[code[pc++]];
+					break;
+				case FLOAD:
+					stack[sp++] = tos;
+					tos = Float.floatToRawIntBits(floats[code[pc++]]);
+					break;
+				case ALOAD:
+					stack[sp++] = tos;
+					refs[sp] = objects[code[pc++]];
+					break;
+				case ISTORE:
+					ints[code[pc++]] = tos;
+					tos = stack[--sp];
+					break;
+				case FSTORE:
+					floats[code[pc++]] = Float.intBitsToFloat(tos);
+					tos = stack[--sp];
+					break;
+				case ASTORE:
+					objects[code[pc++]] = refs[sp];
+					refs[sp] = null;
+					tos = stack[--sp];
+					break;
+
+				case IADD: tos = stack[--sp] + tos; break;
+				case ISUB: tos = stack[--sp] - tos; break;
+				case IMUL: tos = stack[--sp] * tos; break;
+				case IDIV: tos = stack[--sp] / tos; break;
+				case IREM: tos = stack[--sp] % tos; break;
+
+				case FADD: tos = Float.floatToRawIntBits(f(stack[--sp]) + f(tos)); break;
+				case FSUB: tos = Float.floatToRawIntBits(f(stack[--sp]) - f(tos)); break;
+				case FMUL: tos = Float.floatToRawIntBits(f(stack[--sp]) * f(tos)); break;
+				case FDIV: tos = Float.floatToRawIntBits(f(stack[--sp]) / f(tos)); break;
+				case FREM: tos = Float.floatToRawIntBits(f(stack[--sp]) % f(tos)); break;
+
+				case ILT: tos = stack[--sp] < tos ? 1 : 0; break;
+				case ILE: tos = stack[--sp] <= tos ? 1 : 0; break;
+				case IGT: tos = stack[--sp] > tos ? 1 : 0; break;
+				case IGE: tos = stack[--sp] >= tos ? 1 : 0; break;
+				case FLT: tos = f(stack[--sp]) < f(tos) ? 1 : 0; break;
+				case FLE: tos = f(stack[--sp]) <= f(tos) ? 1 : 0; break;
+				case FGT: tos = f(stack[--sp]) > f(tos) ? 1 : 0; break;
+				case FGE: tos = f(stack[--sp]) >= f(tos) ? 1 : 0; break;
+
+				case IEQ: tos = stack[--sp] == tos ? 1 : 0; break;
+				case INE: tos = stack[--sp] != tos ? 1 : 0; break;
+				// Float.equals, as the interpreter compares: NaN equals NaN, 0.0 does not equal -0.0
+				case FEQ: tos = floatEquals(stack[--sp], tos) ? 1 : 0; break;
+				case FNE: tos = floatEquals(stack[--sp], tos) ? 0 : 1; break;
+				case AEQ:
+				case ANE: {
+					boolean equal = Objects.equals(refs[sp - 1], refs[sp]);
+					refs[sp] = refs[sp - 1] = null;
+					sp--;
+					tos = equal == (code[pc - 1] == AEQ) ? 1 : 0;
+					break;
+				}
+				case NOT:
+					tos ^= 1;
+					break;
+
+				case JUMP:
+					pc = code[pc];
+					break;
+				case JUMP_FALSE:
+					pc = tos == 0 ? code[pc] : pc + 1;
+					tos = stack[--sp];
+					break;
+				case JUMP_TRUE:
+					pc = tos != 0 ? code[pc] : pc + 1;
+					tos = stack[--sp];
+					break;
+
+				case PRINT: {
+					DataType type = BytecodeCompiler.TYPES[code[pc++]];
+					System.out.println(Interpreter.toString(value(type, tos, refs[sp])));
+					refs[sp] = null;
+					tos = stack[--sp];
+					break;
+				}
+				case INPUT: {
+					DataType type = BytecodeCompiler.TYPES[code[pc]];
+					int slot = code[pc + 1];
+					Object value = Interpreter.read(type, code[pc + 2]);
+					pc += 3;
+					if(type == DataType.INT)
+						ints[slot] = (Integer) value;
+					else if(type == DataType.FP)
+						floats[slot] = (Float) value;
+					else if(type == DataType.BOOL)
+						ints[slot] = (Boolean) value ? 1 : 0;
+					else if(type == DataType.CHAR)
+						ints[slot] = (Character) value;
+					else
+						objects[slot] = value;
+					break;
+				}
+				default:
+					throw new IllegalStateException("Bad opcode " + code[pc - 1] + " at " + (pc - 1));
+			}
+		}
+	}
+
+
+	private static float f(int bits) {
+
+		return Float.intBitsToFloat(bits);
+	}
+
+
+	private static boolean floatEquals(int lhs, int rhs) {
+
+		return Float.floatToIntBits(f(lhs)) == Float.floatToIntBits(f(rhs));
+	}
+
+
+	/** A stack value as the boxed object the interpreter would have. */
+	private static Object value(DataType type, int bits, Object ref) {
+
+		if(type == DataType.INT)
+			return bits;
+		if(type == DataType.FP)
+			return f(bits);
+		if(type == DataType.BOOL)
+			return bits != 0;
+		if(type == DataType.CHAR)
+			return (char) bits;
+		return ref;
+	}
+}
\ No newline at end of file